@@ -28,6 +28,55 @@ CREATE TABLE contacts (
 	PRIMARY KEY (contact_id)
 );
 
+-- Range scans for the growth statistics
+CREATE INDEX idx_contacts_created_at ON contacts (created_at);
+CREATE INDEX idx_contacts_updated_at ON contacts (updated_at);
+
+-- Contacts moved out of the hot table by services.ContactArchiver; no UNIQUE keys,
+-- a phone or email may be reused by a newer contact after archiving
+CREATE TABLE contacts_archive (
+	contact_id INT NOT NULL,
+	first_name VARCHAR(50) NOT NULL,
+	middle_name VARCHAR(50),
+	last_name VARCHAR(50) NOT NULL,
+	nickname VARCHAR(40) NOT NULL,
+	phone_primary VARCHAR(20) NOT NULL,
+	phone_secondary VARCHAR(20),
+	email VARCHAR(100) NOT NULL,
+	linkedin_url VARCHAR(150),
+	birth_date DATE NOT NULL,
+	created_at TIMESTAMP NULL,
+	updated_at TIMESTAMP NULL,
+	archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+	PRIMARY KEY (contact_id),
+	INDEX idx_contacts_archive_archived_at (archived_at)
+);
+
+-- Global index of the unique contact keys when contacts are sharded (see dao.ShardedContactDao);
+-- a negative contact_id marks a key reserved by a write in progress
+CREATE TABLE contact_keys (
+	key_type VARCHAR(5) NOT NULL,
+	key_value VARCHAR(100) NOT NULL,
+	contact_id INT NOT NULL,
+	PRIMARY KEY (key_type, key_value),
+	INDEX idx_contact_keys_contact (contact_id)
+);
+
+-- Per-user undo/redo history (see services.UndoService)
+CREATE TABLE undo_journal (
+	entry_id BIGINT NOT NULL AUTO_INCREMENT,
+	user_id INT NOT NULL,
+	entity_type VARCHAR(10) NOT NULL,
+	operation VARCHAR(12) NOT NULL,
+	entity_id INT NOT NULL,
+	before_state LONGTEXT,
+	after_state LONGTEXT,
+	undone TINYINT(1) NOT NULL DEFAULT 0,
+	created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+	PRIMARY KEY (entry_id),
+	INDEX idx_undo_journal_user (user_id, undone, entry_id)
+);
+
 INSERT INTO users (username, password_hash, first_name, last_name, user_role)
 VALUES	('tt', SHA2('tt', 256), 'Kaan', 'Yılmaz', 'TESTER'),
 		('jd', SHA2('jd', 256), 'Nur', 'Kumbasar', 'JUNIOR_DEVELOPER'),
@@ -6,21 +6,48 @@ if not exist "out" mkdir out
 
 REM Compile all Java files
 javac -cp "mysql-connector-j-8.2.0.jar;main/src" -d out -encoding UTF-8 ^
+    main/src/api/ApiException.java ^
+    main/src/api/ApiHandler.java ^
+    main/src/api/ApiRequest.java ^
+    main/src/api/ApiServer.java ^
+    main/src/api/ContactsHandler.java ^
+    main/src/api/StatisticsHandler.java ^
+    main/src/api/UsersHandler.java ^
     main/src/app/Application.java ^
+    main/src/app/Bootstrap.java ^
     main/src/auth/AuthService.java ^
     main/src/auth/PasswordHasher.java ^
+    main/src/auth/Permission.java ^
+    main/src/batch/BatchRunner.java ^
+    main/src/config/Config.java ^
+    main/src/config/ConfigWatcher.java ^
     main/src/controllers/BaseMenuController.java ^
     main/src/controllers/JuniorDeveloperMenuController.java ^
     main/src/controllers/ManagerMenuController.java ^
+    main/src/controllers/PagedViewer.java ^
     main/src/controllers/SeniorDeveloperMenuController.java ^
     main/src/controllers/TesterMenuController.java ^
+    main/src/dao/ArchiveCursor.java ^
+    main/src/dao/ChunkedContactScanner.java ^
+    main/src/dao/ContactArchiveDao.java ^
+    main/src/dao/ContactArchiveDaoImplementation.java ^
     main/src/dao/ContactDao.java ^
     main/src/dao/ContactDaoImplementation.java ^
+    main/src/dao/ContactKeyIndex.java ^
+    main/src/dao/PartialUpdateStatements.java ^
+    main/src/dao/ShardedContactDao.java ^
+    main/src/dao/UndoJournalDao.java ^
+    main/src/dao/UndoJournalDaoImplementation.java ^
+    main/src/dao/UpsertResult.java ^
     main/src/dao/UserDao.java ^
     main/src/dao/UserDaoImplementation.java ^
+    main/src/db/ConnectionPool.java ^
     main/src/db/DatabaseConnection.java ^
+    main/src/db/ReplicaRouter.java ^
     main/src/exceptions/AuthenticationException.java ^
+    main/src/exceptions/ConcurrentUpdateException.java ^
     main/src/exceptions/DatabaseException.java ^
+    main/src/exceptions/DuplicateValueException.java ^
     main/src/exceptions/InvalidInputException.java ^
     main/src/menus/JuniorDeveloperMenu.java ^
     main/src/menus/LoginMenu.java ^
@@ -28,16 +55,49 @@ javac -cp "mysql-connector-j-8.2.0.jar;main/src" -d out -encoding UTF-8 ^
     main/src/menus/SeniorDeveloperMenu.java ^
     main/src/menus/TesterMenu.java ^
     main/src/models/Contact.java ^
+    main/src/models/ContactField.java ^
+    main/src/models/FieldDelta.java ^
     main/src/models/Role.java ^
+    main/src/models/UndoEntry.java ^
+    main/src/models/UpcomingBirthday.java ^
     main/src/models/User.java ^
+    main/src/models/UserField.java ^
+    main/src/mutationlog/MutationLog.java ^
+    main/src/mutationlog/MutationRecord.java ^
+    main/src/server/ConsoleServer.java ^
+    main/src/server/SessionPrintStream.java ^
+    main/src/services/AdaptiveChunkSizer.java ^
+    main/src/services/AsyncContactService.java ^
+    main/src/services/AsyncUserService.java ^
+    main/src/services/BirthdayIndex.java ^
+    main/src/services/BulkResult.java ^
+    main/src/services/ContactArchiver.java ^
+    main/src/services/ContactInput.java ^
     main/src/services/ContactService.java ^
+    main/src/services/DatabaseExecutor.java ^
+    main/src/services/MutationRecorder.java ^
+    main/src/services/ServiceRegistry.java ^
     main/src/services/StatisticalInfoService.java ^
+    main/src/services/StatisticsCache.java ^
+    main/src/services/UndoHistoryBuffer.java ^
     main/src/services/UndoService.java ^
+    main/src/services/UnitOfWork.java ^
     main/src/services/UserService.java ^
+    main/src/statistics/ApproximationSettings.java ^
+    main/src/statistics/ContactStatsAccumulator.java ^
+    main/src/statistics/CountMinSketch.java ^
+    main/src/statistics/Granularity.java ^
+    main/src/statistics/Hashing.java ^
+    main/src/statistics/HyperLogLog.java ^
+    main/src/statistics/TDigest.java ^
+    main/src/statistics/TopKTracker.java ^
     main/src/utils/AsciiAnimations.java ^
+    main/src/utils/ColumnCodec.java ^
     main/src/utils/ConsoleColor.java ^
     main/src/utils/ConsoleUtils.java ^
-    main/src/utils/InputValidator.java
+    main/src/utils/InputValidator.java ^
+    main/src/utils/Json.java ^
+    main/src/utils/TableRenderer.java
 
 if %errorlevel% equ 0 (
     echo.
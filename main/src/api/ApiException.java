@@ -0,0 +1,20 @@
+package api;
+
+/**
+ * Ends an API request with an HTTP error status and a JSON {@code {"error": message}} body.
+ */
+class ApiException extends RuntimeException
+{
+    private final int status;
+
+    ApiException(int status, String message)
+    {
+        super(message);
+        this.status = status;
+    }
+
+    int getStatus()
+    {
+        return status;
+    }
+}
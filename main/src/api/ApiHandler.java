@@ -0,0 +1,202 @@
+package api;
+
+import auth.AuthService;
+import auth.Permission;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import db.DatabaseConnection;
+import exceptions.ConcurrentUpdateException;
+import exceptions.DatabaseException;
+import exceptions.DuplicateValueException;
+import models.User;
+import utils.Json;
+import services.ServiceRegistry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Common part of every API endpoint: HTTP Basic authentication against the users
+ * table, attribution of the request's database work to the caller, and mapping of
+ * failures to status codes.
+ */
+abstract class ApiHandler implements HttpHandler
+{
+    private final AuthService authService = ServiceRegistry.get().auth();
+    private final String context;
+
+    /**
+     * @param context path the handler is registered under, e.g. {@code /api/contacts}
+     */
+    ApiHandler(String context)
+    {
+        this.context = context;
+    }
+
+    /**
+     * Serves one authenticated request.
+     */
+    abstract void handle(ApiRequest request) throws IOException, DatabaseException;
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException
+    {
+        ApiRequest request = null;
+        boolean aborted = false;
+        try
+        {
+            try
+            {
+                User user = authenticate(exchange);
+                if (user == null)
+                {
+                    exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"contacts\", charset=\"UTF-8\"");
+                    sendError(exchange, 401, "Authentication required");
+                    return;
+                }
+                request = new ApiRequest(exchange, user, Permission.roleOf(user), pathBelowContext(exchange));
+                DatabaseConnection.setSession(user.getUserId());
+                handle(request);
+            }
+            catch (IOException | DatabaseException | RuntimeException e)
+            {
+                if (exchange.getResponseCode() != -1)
+                {
+                    // The status is already out; leaving the body unterminated makes the server drop
+                    // the connection, so the client sees a failed transfer instead of a short one
+                    aborted = true;
+                    throw new IOException("Response aborted after it started: " + e.getMessage(), e);
+                }
+                throw e;
+            }
+        }
+        catch (ApiException e)
+        {
+            sendError(exchange, e.getStatus(), e.getMessage());
+        }
+        catch (IllegalArgumentException e)
+        {
+            sendError(exchange, 400, e.getMessage());
+        }
+        catch (DuplicateValueException e)
+        {
+            sendError(exchange, 409, e.getMessage());
+        }
+        catch (ConcurrentUpdateException e)
+        {
+            if (request != null)
+            {
+                request.sendJson(409, Map.of("error", "The contact was changed by someone else",
+                        "current", ContactsHandler.toJson(e.getCurrent())));
+            }
+        }
+        catch (DatabaseException e)
+        {
+            sendError(exchange, 500, e.getMessage());
+        }
+        catch (RuntimeException e)
+        {
+            System.err.println("API request " + exchange.getRequestURI() + " failed: " + e);
+            sendError(exchange, 500, "Internal error");
+        }
+        finally
+        {
+            DatabaseConnection.clearSession();
+            if (!aborted)
+            {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * @return the path segment at the index, or null
+     */
+    static String segment(ApiRequest request, int index)
+    {
+        return request.getPath().size() > index ? request.getPath().get(index) : null;
+    }
+
+    /**
+     * @return the path segment as a positive id
+     * @throws ApiException 404 if it is not one
+     */
+    static int idSegment(ApiRequest request, int index)
+    {
+        try
+        {
+            int id = Integer.parseInt(segment(request, index));
+            if (id > 0)
+            {
+                return id;
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            // Falls through to 404
+        }
+        throw new ApiException(404, "Not found");
+    }
+
+    static ApiException methodNotAllowed(ApiRequest request)
+    {
+        return new ApiException(405, "Method " + request.getMethod() + " is not allowed here");
+    }
+
+    private User authenticate(HttpExchange exchange)
+    {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Basic ", 0, 6))
+        {
+            return null;
+        }
+        String credentials;
+        try
+        {
+            credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+        }
+        catch (IllegalArgumentException e)
+        {
+            return null;
+        }
+        int colon = credentials.indexOf(':');
+        if (colon < 0)
+        {
+            return null;
+        }
+        try
+        {
+            return authService.login(credentials.substring(0, colon), credentials.substring(colon + 1));
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    private List<String> pathBelowContext(HttpExchange exchange)
+    {
+        String path = exchange.getRequestURI().getPath().substring(context.length());
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/"))
+        {
+            if (!segment.isEmpty())
+            {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException
+    {
+        byte[] body = Json.write(Map.of("error", message == null ? "Error" : message)).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+}
@@ -0,0 +1,239 @@
+package api;
+
+import auth.Permission;
+import com.sun.net.httpserver.HttpExchange;
+import models.Role;
+import models.User;
+import utils.Json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One authenticated API call: the exchange, the caller and helpers to read the
+ * request and write JSON responses.
+ */
+class ApiRequest
+{
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    private final HttpExchange exchange;
+    private final User user;
+    private final Role role;
+    private final List<String> path;
+    private final Map<String, String> query;
+
+    ApiRequest(HttpExchange exchange, User user, Role role, List<String> path)
+    {
+        this.exchange = exchange;
+        this.user = user;
+        this.role = role;
+        this.path = path;
+        this.query = parseQuery(exchange.getRequestURI().getRawQuery());
+    }
+
+    User getUser()
+    {
+        return user;
+    }
+
+    String getMethod()
+    {
+        return exchange.getRequestMethod();
+    }
+
+    /**
+     * @return path segments below the handler's context, e.g. {@code ["12"]} for {@code /api/contacts/12}
+     */
+    List<String> getPath()
+    {
+        return path;
+    }
+
+    /**
+     * @return decoded query parameters in request order
+     */
+    Map<String, String> getQuery()
+    {
+        return query;
+    }
+
+    /**
+     * @throws ApiException 403 if the caller's role lacks the permission
+     */
+    void require(Permission permission)
+    {
+        if (!permission.isGrantedTo(role))
+        {
+            throw new ApiException(403, "Your role may not " + permission.name().toLowerCase().replace('_', ' '));
+        }
+    }
+
+    /**
+     * @return an integer query parameter, or the default when it is absent
+     * @throws ApiException 400 if the parameter is not an integer
+     */
+    int intParam(String name, int defaultValue)
+    {
+        String value = query.get(name);
+        if (value == null || value.isBlank())
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ApiException(400, "Query parameter " + name + " must be an integer");
+        }
+    }
+
+    /**
+     * @return the request body as a JSON object
+     * @throws ApiException 400 if the body is missing, too large or not a JSON object
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> readJsonObject() throws IOException
+    {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody())
+        {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES)
+        {
+            throw new ApiException(413, "Request body is too large");
+        }
+        Object value;
+        try
+        {
+            value = Json.parse(new String(body, StandardCharsets.UTF_8));
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ApiException(400, e.getMessage());
+        }
+        if (!(value instanceof Map))
+        {
+            throw new ApiException(400, "Request body must be a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * @return the request header, or null
+     */
+    String header(String name)
+    {
+        return exchange.getRequestHeaders().getFirst(name);
+    }
+
+    /**
+     * Sends a JSON response tagged with a strong ETag of its body. A matching
+     * {@code If-None-Match} gets {@code 304 Not Modified} without a body.
+     */
+    void sendJson(int status, Object value) throws IOException
+    {
+        byte[] body = Json.write(value).getBytes(StandardCharsets.UTF_8);
+        String etag = etagOf(body);
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (status == 200 && matches(header("If-None-Match"), etag))
+        {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Starts a chunked JSON response of unknown length; the caller writes the body.
+     */
+    OutputStream startStream() throws IOException
+    {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        return exchange.getResponseBody();
+    }
+
+    /**
+     * Sends a response without a body.
+     */
+    void sendEmpty(int status) throws IOException
+    {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    /**
+     * @return the ETag {@link #sendJson} would send for the value
+     */
+    static String etagOf(Object value)
+    {
+        return etagOf(Json.write(value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return true if an {@code If-None-Match} or {@code If-Match} header lists the ETag (or is {@code *})
+     */
+    static boolean matches(String header, String etag)
+    {
+        if (header == null)
+        {
+            return false;
+        }
+        for (String candidate : header.split(","))
+        {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String etagOf(byte[] body)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery)
+    {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty())
+        {
+            return params;
+        }
+        for (String pair : rawQuery.split("&"))
+        {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+}
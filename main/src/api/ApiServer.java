@@ -0,0 +1,54 @@
+package api;
+
+import com.sun.net.httpserver.HttpServer;
+import services.ServiceRegistry;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the contact book as a JSON API on the JDK's built-in HTTP server.
+ * Clients authenticate every request with HTTP Basic and get exactly the
+ * operations their role has in the console menus. Each exchange runs on its
+ * own virtual thread; database concurrency stays bounded by the connection pool.
+ * On shutdown the server stops accepting and lets open exchanges finish first.
+ */
+public class ApiServer
+{
+    private final int port;
+
+    public ApiServer(int port)
+    {
+        this.port = port;
+    }
+
+    /**
+     * Starts serving in the background and registers the server for shutdown.
+     */
+    public void start() throws IOException
+    {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/api/contacts", new ContactsHandler("/api/contacts"));
+        server.createContext("/api/users", new UsersHandler("/api/users"));
+        server.createContext("/api/statistics", new StatisticsHandler("/api/statistics"));
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.start();
+        ServiceRegistry.get().register(new ServiceRegistry.Component("HTTP API", List.of("Database"), () -> { },
+                timeout -> stop(server, executor, timeout)));
+        System.out.println("HTTP API listening on port " + port);
+    }
+
+    // Stops accepting, then waits for the exchanges in flight
+    private static boolean stop(HttpServer server, ExecutorService executor, long timeoutMillis) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        server.stop((int) Math.max(0, timeoutMillis / 1000));
+        executor.shutdown();
+        return executor.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+}
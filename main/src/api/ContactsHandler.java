@@ -0,0 +1,274 @@
+package api;
+
+import auth.Permission;
+import exceptions.DatabaseException;
+import models.Contact;
+import models.ContactField;
+import services.AsyncContactService;
+import services.ContactInput;
+import services.ContactService;
+import services.DatabaseExecutor;
+import services.ServiceRegistry;
+import utils.Json;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@code /api/contacts}:
+ * <ul>
+ *     <li>{@code GET /api/contacts?after=&limit=} one page in id order, with the cursor of the next page</li>
+ *     <li>{@code GET /api/contacts/export} every contact, streamed</li>
+ *     <li>{@code GET /api/contacts/search?column=value&...&archive=true&sort=column&order=desc}</li>
+ *     <li>{@code GET|PUT|DELETE /api/contacts/{id}} and {@code POST /api/contacts}</li>
+ * </ul>
+ * {@code PUT} honours {@code If-Match} with the ETag of the contact's {@code GET}.
+ */
+class ContactsHandler extends ApiHandler
+{
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int EXPORT_PAGE_SIZE = 500;
+
+    private final ContactService contactService = ServiceRegistry.get().contacts();
+    private final AsyncContactService asyncContactService = ServiceRegistry.get().asyncContacts();
+
+    ContactsHandler(String context)
+    {
+        super(context);
+    }
+
+    @Override
+    void handle(ApiRequest request) throws IOException, DatabaseException
+    {
+        String first = segment(request, 0);
+        switch (request.getMethod())
+        {
+            case "GET" ->
+            {
+                if (first == null)
+                {
+                    listPage(request);
+                }
+                else if (first.equals("export"))
+                {
+                    export(request);
+                }
+                else if (first.equals("search"))
+                {
+                    search(request);
+                }
+                else
+                {
+                    get(request);
+                }
+            }
+            case "POST" ->
+            {
+                if (first != null)
+                {
+                    throw methodNotAllowed(request);
+                }
+                add(request);
+            }
+            case "PUT" -> update(request);
+            case "DELETE" -> delete(request);
+            default -> throw methodNotAllowed(request);
+        }
+    }
+
+    private void listPage(ApiRequest request) throws IOException, DatabaseException
+    {
+        request.require(Permission.LIST_CONTACTS);
+        int after = request.intParam("after", 0);
+        int limit = request.intParam("limit", DEFAULT_PAGE_SIZE);
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+        {
+            throw new ApiException(400, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        List<Contact> page = contactService.listPage(after, limit);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("items", page.stream().map(ContactsHandler::toJson).toList());
+        body.put("next", page.size() == limit ? page.get(page.size() - 1).getContactId() : null);
+        request.sendJson(200, body);
+    }
+
+    // Streams page by page, so no connection is held while a slow client reads. Each page is
+    // fetched before the previous one is written; if a fetch fails, the writer is left open and
+    // ApiHandler drops the connection, so the client never gets a closed but incomplete array.
+    private void export(ApiRequest request) throws IOException, DatabaseException
+    {
+        request.require(Permission.LIST_CONTACTS);
+        List<Contact> page = contactService.listPage(0, EXPORT_PAGE_SIZE);
+        Writer out = new BufferedWriter(new OutputStreamWriter(request.startStream(), StandardCharsets.UTF_8));
+        out.write('[');
+        boolean first = true;
+        while (!page.isEmpty())
+        {
+            List<Contact> next = page.size() < EXPORT_PAGE_SIZE
+                    ? List.of()
+                    : contactService.listPage(page.get(page.size() - 1).getContactId(), EXPORT_PAGE_SIZE);
+            for (Contact contact : page)
+            {
+                if (!first)
+                {
+                    out.write(',');
+                }
+                first = false;
+                out.write(Json.write(toJson(contact)));
+            }
+            out.flush();
+            page = next;
+        }
+        out.write(']');
+        out.close();
+    }
+
+    private void search(ApiRequest request) throws IOException, DatabaseException
+    {
+        request.require(Permission.SEARCH_CONTACTS);
+        Map<String, String> criteria = new LinkedHashMap<>();
+        for (Map.Entry<String, String> param : request.getQuery().entrySet())
+        {
+            switch (param.getKey())
+            {
+                case "archive", "sort", "order" -> { }
+                default ->
+                {
+                    if (ContactField.fromColumn(param.getKey()) == null)
+                    {
+                        throw new ApiException(400, "Unknown contact column: " + param.getKey());
+                    }
+                    criteria.put(param.getKey(), param.getValue());
+                }
+            }
+        }
+        if (criteria.isEmpty())
+        {
+            throw new ApiException(400, "Give at least one column=value criterion");
+        }
+
+        boolean includeArchive = Boolean.parseBoolean(request.getQuery().get("archive"));
+        List<Contact> results = contactService.searchMultipleFields(criteria, includeArchive);
+        String sort = request.getQuery().get("sort");
+        if (sort != null)
+        {
+            contactService.sortContacts(results, sort, !"desc".equalsIgnoreCase(request.getQuery().get("order")));
+        }
+        request.sendJson(200, results.stream().map(ContactsHandler::toJson).toList());
+    }
+
+    private void get(ApiRequest request) throws IOException, DatabaseException
+    {
+        request.require(Permission.LIST_CONTACTS);
+        request.sendJson(200, toJson(load(idSegment(request, 0))));
+    }
+
+    private void add(ApiRequest request) throws IOException, DatabaseException
+    {
+        request.require(Permission.ADD_CONTACTS);
+        Map<String, Object> body = request.readJsonObject();
+        for (String column : ContactInput.REQUIRED)
+        {
+            if (!(body.get(column) instanceof String value) || value.isBlank())
+            {
+                throw new ApiException(400, column + " is required");
+            }
+        }
+        Contact contact = new Contact();
+        applyFields(contact, body);
+
+        // Both unique keys are checked side by side
+        CompletableFuture<List<Contact>> byPhone = asyncContactService.searchSingleField("phone_primary", contact.getPhonePrimary());
+        CompletableFuture<List<Contact>> byEmail = asyncContactService.searchSingleField("email", contact.getEmail());
+        if (DatabaseExecutor.await(byPhone).stream().anyMatch(c -> contact.getPhonePrimary().equals(c.getPhonePrimary())))
+        {
+            throw new ApiException(409, "Primary phone is already used by another contact");
+        }
+        if (DatabaseExecutor.await(byEmail).stream().anyMatch(c -> contact.getEmail().equalsIgnoreCase(c.getEmail())))
+        {
+            throw new ApiException(409, "Email address is already used by another contact");
+        }
+
+        contact.setCreatedAt(LocalDateTime.now());
+        contact.updateTimestamp();
+        contactService.addContact(contact);
+        if (contact.getContactId() <= 0)
+        {
+            throw new DatabaseException("Contact could not be saved");
+        }
+        ServiceRegistry.get().undoFor(request.getUser().getUserId()).recordContactAdded(contact);
+        request.sendJson(201, toJson(contact));
+    }
+
+    private void update(ApiRequest request) throws IOException, DatabaseException
+    {
+        request.require(Permission.UPDATE_CONTACTS);
+        Contact contact = load(idSegment(request, 0));
+        String ifMatch = request.header("If-Match");
+        if (ifMatch != null && !ApiRequest.matches(ifMatch, ApiRequest.etagOf(toJson(contact))))
+        {
+            throw new ApiException(412, "The contact was changed since it was read");
+        }
+
+        Map<String, String> before = ContactField.snapshot(contact);
+        applyFields(contact, request.readJsonObject());
+        contactService.updateContact(contact);
+        ServiceRegistry.get().undoFor(request.getUser().getUserId()).recordContactUpdated(before, contact);
+        request.sendJson(200, toJson(contact));
+    }
+
+    private void delete(ApiRequest request) throws IOException, DatabaseException
+    {
+        request.require(Permission.DELETE_CONTACTS);
+        Contact contact = load(idSegment(request, 0));
+        contactService.deleteContact(contact.getContactId());
+        ServiceRegistry.get().undoFor(request.getUser().getUserId()).recordContactDeleted(contact);
+        request.sendEmpty(204);
+    }
+
+    private Contact load(int id) throws DatabaseException
+    {
+        Contact contact = contactService.findById(id);
+        if (contact == null)
+        {
+            throw new ApiException(404, "No contact with id " + id);
+        }
+        return contact;
+    }
+
+    // Only strings and nulls; the values are validated like the console forms
+    private static void applyFields(Contact contact, Map<String, Object> body)
+    {
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : body.entrySet())
+        {
+            if (entry.getValue() != null && !(entry.getValue() instanceof String))
+            {
+                throw new ApiException(400, entry.getKey() + " must be a string or null");
+            }
+            fields.put(entry.getKey(), (String) entry.getValue());
+        }
+        ContactInput.apply(contact, fields);
+    }
+
+    /**
+     * @return the contact as a JSON object: {@code contact_id} and every column as text
+     */
+    static Map<String, Object> toJson(Contact contact)
+    {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("contact_id", contact.getContactId());
+        json.putAll(ContactField.snapshot(contact));
+        return json;
+    }
+}
@@ -0,0 +1,42 @@
+package api;
+
+import auth.Permission;
+import exceptions.DatabaseException;
+import services.ServiceRegistry;
+import services.StatisticalInfoService;
+import services.StatisticsCache;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code GET /api/statistics}: the cached exact contact statistics, when they were
+ * computed and how old they are.
+ */
+class StatisticsHandler extends ApiHandler
+{
+    private final StatisticalInfoService statsService = ServiceRegistry.get().statistics();
+
+    StatisticsHandler(String context)
+    {
+        super(context);
+    }
+
+    @Override
+    void handle(ApiRequest request) throws IOException, DatabaseException
+    {
+        request.require(Permission.VIEW_STATISTICS);
+        if (!request.getMethod().equals("GET") || segment(request, 0) != null)
+        {
+            throw methodNotAllowed(request);
+        }
+        StatisticsCache.Snapshot snapshot = statsService.getCachedStatistics();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("statistics", snapshot.getStatistics());
+        body.put("computedAt", snapshot.getComputedAt());
+        body.put("ageSeconds", snapshot.getAge().toSeconds());
+        body.put("refreshError", snapshot.getRefreshError());
+        request.sendJson(200, body);
+    }
+}
@@ -0,0 +1,153 @@
+package api;
+
+import auth.PasswordHasher;
+import auth.Permission;
+import exceptions.DatabaseException;
+import models.User;
+import models.UserField;
+import services.ServiceRegistry;
+import services.UserService;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /api/users} for managers: {@code GET}, {@code POST}, and
+ * {@code GET|PUT|DELETE /api/users/{id}}. Password hashes are never returned;
+ * a {@code password} property sets a new one.
+ */
+class UsersHandler extends ApiHandler
+{
+    private final UserService userService = ServiceRegistry.get().users();
+
+    UsersHandler(String context)
+    {
+        super(context);
+    }
+
+    @Override
+    void handle(ApiRequest request) throws IOException, DatabaseException
+    {
+        request.require(Permission.MANAGE_USERS);
+        boolean collection = segment(request, 0) == null;
+        switch (request.getMethod())
+        {
+            case "GET" ->
+            {
+                if (collection)
+                {
+                    request.sendJson(200, userService.listUsers().stream().map(UsersHandler::toJson).toList());
+                }
+                else
+                {
+                    request.sendJson(200, toJson(load(idSegment(request, 0))));
+                }
+            }
+            case "POST" ->
+            {
+                if (!collection)
+                {
+                    throw methodNotAllowed(request);
+                }
+                add(request);
+            }
+            case "PUT" -> update(request);
+            case "DELETE" ->
+            {
+                User user = load(idSegment(request, 0));
+                userService.deleteUser(user.getUserId());
+                ServiceRegistry.get().undoFor(request.getUser().getUserId()).recordUserDeleted(user);
+                request.sendEmpty(204);
+            }
+            default -> throw methodNotAllowed(request);
+        }
+    }
+
+    private void add(ApiRequest request) throws IOException, DatabaseException
+    {
+        Map<String, Object> body = request.readJsonObject();
+        for (String property : List.of("username", "password", "first_name", "last_name", "user_role"))
+        {
+            if (!(body.get(property) instanceof String value) || value.isBlank())
+            {
+                throw new ApiException(400, property + " is required");
+            }
+        }
+        User user = new User();
+        applyFields(user, body);
+        user.setCreatedAt(LocalDateTime.now());
+        userService.addUser(user);
+        if (user.getUserId() <= 0)
+        {
+            throw new ApiException(409, "User could not be added; the username may be taken");
+        }
+        ServiceRegistry.get().undoFor(request.getUser().getUserId()).recordUserAdded(user);
+        request.sendJson(201, toJson(user));
+    }
+
+    private void update(ApiRequest request) throws IOException, DatabaseException
+    {
+        User user = load(idSegment(request, 0));
+        Map<String, String> before = UserField.snapshot(user);
+        applyFields(user, request.readJsonObject());
+        userService.updateUser(user);
+        ServiceRegistry.get().undoFor(request.getUser().getUserId()).recordUserUpdated(before, user);
+        request.sendJson(200, toJson(user));
+    }
+
+    private User load(int id) throws DatabaseException
+    {
+        for (User user : userService.listUsers())
+        {
+            if (user.getUserId() == id)
+            {
+                return user;
+            }
+        }
+        throw new ApiException(404, "No user with id " + id);
+    }
+
+    private static void applyFields(User user, Map<String, Object> body)
+    {
+        for (Map.Entry<String, Object> entry : body.entrySet())
+        {
+            if (!(entry.getValue() instanceof String value) || value.isBlank())
+            {
+                throw new ApiException(400, entry.getKey() + " must be a non-empty string");
+            }
+            switch (entry.getKey())
+            {
+                case "username" -> user.setUsername(value.trim());
+                case "password" -> user.setPasswordHash(PasswordHasher.hash(value));
+                case "first_name" -> user.setFirstName(value.trim());
+                case "last_name" -> user.setLastName(value.trim());
+                case "user_role" ->
+                {
+                    User probe = new User();
+                    probe.setUserRole(value);
+                    if (Permission.roleOf(probe) == null)
+                    {
+                        throw new ApiException(400, "Unknown role: " + value);
+                    }
+                    user.setUserRole(value.trim());
+                }
+                default -> throw new ApiException(400, "Property cannot be set: " + entry.getKey());
+            }
+        }
+    }
+
+    static Map<String, Object> toJson(User user)
+    {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("user_id", user.getUserId());
+        json.put("username", user.getUsername());
+        json.put("first_name", user.getFirstName());
+        json.put("last_name", user.getLastName());
+        json.put("user_role", user.getUserRole());
+        json.put("created_at", user.getCreatedAt());
+        return json;
+    }
+}
@@ -5,55 +5,136 @@ import menus.LoginMenu;
 import models.User;
 import models.Role;
 import auth.AuthService;
+import auth.Permission;
 import controllers.TesterMenuController;
 import controllers.JuniorDeveloperMenuController;
 import controllers.SeniorDeveloperMenuController;
 import controllers.ManagerMenuController;
 import utils.ConsoleColor;
 import utils.AsciiAnimations;
+import server.ConsoleServer;
+import api.ApiServer;
+import batch.BatchRunner;
+import services.ServiceRegistry;
+import config.Config;
 
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
 public class Application
 {
     // Shared objects
-    private final AuthService authService = new AuthService();
-    private final Scanner scanner = new Scanner(System.in);
+    private final AuthService authService = ServiceRegistry.get().auth();
+    private final Scanner scanner;
     private boolean running = true;
 
-    public static void main(String[] args) throws DatabaseException
+    public Application()
     {
-        new Application().startApp();
+        this(new Scanner(System.in));
+    }
+
+    // Runs the menus on the given input, e.g. one network session
+    public Application(Scanner scanner)
+    {
+        this.scanner = scanner;
+    }
+
+    // "--server [port]" serves many sessions over TCP instead of the local console,
+    // "--http [port]" serves the JSON API, "--batch [file]" runs a command script (stdin without a file);
+    // "--no-animation" skips the startup animation
+    public static void main(String[] args) throws DatabaseException, IOException
+    {
+        List<String> options = new ArrayList<>(List.of(args));
+        boolean animate = !options.remove("--no-animation") && !Config.getBoolean("startup.skipAnimation", false);
+
+        if (!options.isEmpty() && options.get(0).equals("--server"))
+        {
+            int port = options.size() > 1 ? Integer.parseInt(options.get(1)) : Config.getInt("server.port", 2323);
+            Bootstrap.warmUp();
+            new ConsoleServer(port).run();
+            return;
+        }
+        if (!options.isEmpty() && options.get(0).equals("--http"))
+        {
+            int port = options.size() > 1 ? Integer.parseInt(options.get(1)) : Config.getInt("http.port", 8080);
+            Bootstrap.warmUp();
+            new ApiServer(port).start();
+            return;
+        }
+        if (!options.isEmpty() && options.get(0).equals("--batch"))
+        {
+            int code = runBatch(options.size() > 1 ? options.get(1) : "-");
+            ServiceRegistry.get().shutdown();
+            System.exit(code);
+        }
+        new Application().startApp(animate);
+    }
+
+    // Results go to stdout as JSON lines; anything else the application prints goes to stderr
+    private static int runBatch(String script) throws IOException
+    {
+        BatchRunner runner = new BatchRunner(new PrintStream(new FileOutputStream(FileDescriptor.out), false, StandardCharsets.UTF_8));
+        System.setOut(System.err);
+        if (script.equals("-"))
+        {
+            return runner.run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+        }
+        try (BufferedReader in = Files.newBufferedReader(Path.of(script), StandardCharsets.UTF_8))
+        {
+            return runner.run(in);
+        }
     }
 
     // Controls the full application lifecycle
     public void startApp() throws DatabaseException
     {
-        AsciiAnimations.showStartup();
+        startApp(true);
+    }
+
+    // Warms up in the background while the animation plays, then reports how startup went
+    public void startApp(boolean animate) throws DatabaseException
+    {
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.start();
+        if (animate)
+        {
+            AsciiAnimations.showStartup(bootstrap::progress);
+        }
+        bootstrap.awaitAndReport();
+        runSession();
+        shutdown();
+    }
+
+    // Login, role menu and logout for one user of this application's input
+    public void runSession() throws DatabaseException
+    {
         System.out.println(ConsoleColor.CYAN + "Welcome to the Contact Management System!" + ConsoleColor.RESET);
 
         while (running)
         {
-            User user = LoginMenu.showLoginScreen();
+            User user = LoginMenu.showLoginScreen(scanner);
             if (user != null)
             {
                 routeToRoleMenu(user);
             }
             running = false;
         }
-
-        shutdown();
     }
 
     // Decides which role-menu controller should run
     private void routeToRoleMenu(User user) throws DatabaseException {
-        Role role;
-        try
-        {
-            // Convert the user's role string to enum (spaces replaced with underscores)
-            role = Role.valueOf(user.getUserRole().toUpperCase().replace(" ", "_"));
-        }
-        catch (IllegalArgumentException e)
+        Role role = Permission.roleOf(user);
+        if (role == null)
         {
             System.out.println(ConsoleColor.MAGENTA + "Unknown role. Returning to login..." + ConsoleColor.RESET);
             return;
@@ -68,9 +149,10 @@ public class Application
         }
     }
 
-    // Exits the system cleanly with animation
+    // Exits the system cleanly with animation, letting pending work finish first
     private void shutdown() {
         AsciiAnimations.showShutdown();
+        ServiceRegistry.get().shutdown();
         System.out.println(ConsoleColor.CYAN + "Thank you for using the system. Goodbye! ☕✨" + ConsoleColor.RESET);
         scanner.close(); // Close scanner
         System.exit(0);
@@ -0,0 +1,285 @@
+package app;
+
+import config.Config;
+import db.ConnectionPool;
+import models.Contact;
+import models.ContactField;
+import services.ServiceRegistry;
+import utils.ColumnCodec;
+import utils.ConsoleColor;
+import utils.Json;
+import utils.TableRenderer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms the application up in parallel, e.g. while the startup animation plays.
+ * <p>
+ * Steps run on virtual threads as soon as the steps they depend on are done:
+ * starting the components of the {@link ServiceRegistry} (database pool,
+ * mutation log, ...), opening the first pooled connections and preparing the
+ * most used statements on them, loading the birthday index, and running the row
+ * mappers often enough for the JIT to compile them. A failed step only skips
+ * the steps that depend on it; the application then starts as it would have
+ * without the warm-up.
+ */
+class Bootstrap
+{
+    // Connections opened up front, capped at the pool size
+    private static final int PREFILL = Config.getInt("startup.prefill", 2);
+    // The warm-up is not waited for longer than this
+    private static final long TIMEOUT_MILLIS = Config.getLong("startup.timeoutMillis", 10_000L);
+    private static final int WARM_UP_ROWS = 200;
+    private static final int WARM_UP_ROUNDS = 50;
+
+    // Statements of the login and the first listing screens
+    private static final List<String> PRIMED_STATEMENTS = List.of(
+            "SELECT * FROM users WHERE username = ?",
+            "SELECT * FROM contacts WHERE contact_id > ? ORDER BY contact_id LIMIT ?",
+            "SELECT * FROM contacts WHERE contact_id = ?",
+            "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?");
+
+    private static final TableRenderer<Step> REPORT = new TableRenderer<Step>()
+            .column("Step", 20, Step::name)
+            .column("Start ms", 8, s -> s.started == 0 ? null : String.valueOf(s.offsetMillis(s.started)))
+            .column("Took ms", 8, s -> s.finished == 0 ? null : String.valueOf((s.finished - s.started) / 1_000_000))
+            .column("Result", 50, s -> s.outcome);
+
+    /**
+     * Warm-up task.
+     */
+    @FunctionalInterface
+    private interface Task
+    {
+        void run() throws Exception;
+    }
+
+    private final class Step
+    {
+        private final String name;
+        private volatile long started;
+        private volatile long finished;
+        private volatile String outcome = "running";
+
+        private Step(String name)
+        {
+            this.name = name;
+        }
+
+        private String name()
+        {
+            return name;
+        }
+
+        private long offsetMillis(long nanos)
+        {
+            return (nanos - startedAt) / 1_000_000;
+        }
+
+        private void run(Task task)
+        {
+            started = System.nanoTime();
+            try
+            {
+                task.run();
+                outcome = "ok";
+            }
+            catch (Exception e)
+            {
+                String message = String.valueOf(e.getMessage());
+                outcome = "failed: " + message.lines().findFirst().orElse(message);
+                throw new CompletionException(e);
+            }
+            finally
+            {
+                finished = System.nanoTime();
+            }
+        }
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Step> steps = new ArrayList<>();
+    private final List<CompletableFuture<Void>> pending = new ArrayList<>();
+    private final AtomicInteger done = new AtomicInteger();
+    private long startedAt;
+
+    /**
+     * Starts every step in the background and returns immediately.
+     */
+    void start()
+    {
+        startedAt = System.nanoTime();
+        // The registered components first, each once the components it depends on are up
+        Map<String, CompletableFuture<Void>> started = new HashMap<>();
+        for (ServiceRegistry.Component component : ServiceRegistry.get().components())
+        {
+            List<CompletableFuture<Void>> dependencies = component.dependsOn().stream().map(started::get).toList();
+            started.put(component.name(), step(component.name(), component.start()::run, dependencies));
+        }
+
+        CompletableFuture<Void> pool = step("Connection pool", this::prefillPool, List.of(started.get("Database")));
+        step("Birthday index", () -> ServiceRegistry.get().contacts().upcomingBirthdays(LocalDate.now(), 1), List.of(pool));
+        step("Mapper warm-up", this::warmUpMappers, List.of(pool));
+    }
+
+    /**
+     * @return fraction of the steps that have ended, from 0 to 1; 1 once {@code startup.timeoutMillis}
+     *         has passed, so a step that hangs does not hold up the loading bar either
+     */
+    double progress()
+    {
+        if (steps.isEmpty() || remainingMillis() == 0)
+        {
+            return 1;
+        }
+        return (double) done.get() / steps.size();
+    }
+
+    /**
+     * Waits for the warm-up (until {@code startup.timeoutMillis} after the start) and prints how long
+     * each step took.
+     */
+    void awaitAndReport()
+    {
+        try
+        {
+            CompletableFuture.allOf(pending.toArray(CompletableFuture<?>[]::new))
+                    .get(remainingMillis(), TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            // Unfinished steps go on in the background
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            // Failures are recorded per step
+        }
+
+        System.out.println(ConsoleColor.BRIGHT_BLUE + "Startup:" + ConsoleColor.RESET);
+        REPORT.render(steps);
+        System.out.println(ConsoleColor.BRIGHT_CYAN + "Ready after " + (System.nanoTime() - startedAt) / 1_000_000
+                + " ms." + ConsoleColor.RESET);
+    }
+
+    // Time left until the startup deadline, never negative
+    private long remainingMillis()
+    {
+        return Math.max(0, TIMEOUT_MILLIS - (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    /**
+     * Runs the warm-up without an animation and reports it, e.g. before serving clients.
+     */
+    static void warmUp()
+    {
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.start();
+        bootstrap.awaitAndReport();
+    }
+
+    // Runs the task once the steps it depends on succeeded; otherwise the step is skipped
+    private CompletableFuture<Void> step(String name, Task task, List<CompletableFuture<Void>> dependencies)
+    {
+        Step step = new Step(name);
+        steps.add(step);
+        CompletableFuture<Void> ready = CompletableFuture.allOf(dependencies.toArray(CompletableFuture<?>[]::new));
+        CompletableFuture<Void> future = ready.thenRunAsync(() -> step.run(task), executor)
+                .whenComplete((v, e) ->
+                {
+                    if (e != null && step.started == 0)
+                    {
+                        step.outcome = "skipped";
+                    }
+                    done.incrementAndGet();
+                });
+        pending.add(future);
+        return future;
+    }
+
+    // Opens the first connections side by side and prepares the common statements on each
+    private void prefillPool() throws SQLException
+    {
+        ConnectionPool pool = ServiceRegistry.get().database().getPool();
+        List<CompletableFuture<Connection>> opening = new ArrayList<>();
+        for (int i = 0; i < Math.min(PREFILL, pool.getMaxSize()); i++)
+        {
+            opening.add(CompletableFuture.supplyAsync(() ->
+            {
+                try
+                {
+                    return pool.borrow();
+                }
+                catch (SQLException e)
+                {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+
+        List<Connection> opened = new ArrayList<>();
+        SQLException failure = null;
+        for (CompletableFuture<Connection> future : opening)
+        {
+            try
+            {
+                opened.add(future.join());
+            }
+            catch (CompletionException e)
+            {
+                failure = e.getCause() instanceof SQLException sql ? sql : new SQLException(e.getCause());
+            }
+        }
+        try
+        {
+            if (failure != null)
+            {
+                throw failure;
+            }
+            // With cachePrepStmts the driver keeps the parsed statements per connection
+            for (Connection conn : opened)
+            {
+                for (String sql : PRIMED_STATEMENTS)
+                {
+                    conn.prepareStatement(sql).close();
+                }
+            }
+        }
+        finally
+        {
+            opened.forEach(pool::release);
+        }
+    }
+
+    // Maps real rows through Contact(ResultSet), then runs the column mappers on them repeatedly
+    private void warmUpMappers() throws Exception
+    {
+        List<Contact> sample = ServiceRegistry.get().contacts().listPage(0, WARM_UP_ROWS);
+        for (int round = 0; round < WARM_UP_ROUNDS; round++)
+        {
+            for (Contact contact : sample)
+            {
+                Map<String, String> columns = ContactField.snapshot(contact);
+                ColumnCodec.decode(ColumnCodec.encode(columns));
+                Json.write(columns);
+            }
+        }
+    }
+}
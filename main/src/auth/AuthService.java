@@ -11,7 +11,17 @@ import java.sql.SQLException;
 public class AuthService
 {
 
-    private final DatabaseConnection db = new DatabaseConnection();
+    private final DatabaseConnection db;
+
+    public AuthService()
+    {
+        this(new DatabaseConnection());
+    }
+
+    public AuthService(DatabaseConnection db)
+    {
+        this.db = db;
+    }
 
     // Login method: fetch user and verify password
     public User login(String username, String password) throws Exception
@@ -21,7 +31,7 @@ public class AuthService
 
         try
         {
-            conn = db.getConnection();
+            conn = db.getReadConnection();
             String query = "SELECT * FROM users WHERE username = ?";
             PreparedStatement ps = conn.prepareStatement(query);
             ps.setString(1, username);
@@ -0,0 +1,54 @@
+package auth;
+
+import models.Role;
+import models.User;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Operations a role may perform, shared by the console menus and the HTTP API so
+ * both apply the same rules.
+ */
+public enum Permission
+{
+    LIST_CONTACTS(Role.TESTER, Role.JUNIOR_DEVELOPER, Role.SENIOR_DEVELOPER),
+    SEARCH_CONTACTS(Role.TESTER, Role.JUNIOR_DEVELOPER, Role.SENIOR_DEVELOPER),
+    UPDATE_CONTACTS(Role.JUNIOR_DEVELOPER, Role.SENIOR_DEVELOPER),
+    ADD_CONTACTS(Role.SENIOR_DEVELOPER),
+    DELETE_CONTACTS(Role.SENIOR_DEVELOPER),
+    VIEW_STATISTICS(Role.MANAGER),
+    MANAGE_USERS(Role.MANAGER);
+
+    private final Set<Role> roles;
+
+    Permission(Role first, Role... rest)
+    {
+        this.roles = EnumSet.of(first, rest);
+    }
+
+    /**
+     * @return true if users with the role may perform this operation
+     */
+    public boolean isGrantedTo(Role role)
+    {
+        return role != null && roles.contains(role);
+    }
+
+    /**
+     * Maps the stored role text (e.g. {@code "Senior Developer"} or {@code "SENIOR_DEVELOPER"}) to a role.
+     *
+     * @return the role, or null if the text names no known role
+     */
+    public static Role roleOf(User user)
+    {
+        try
+        {
+            return Role.valueOf(user.getUserRole().trim().toUpperCase().replace(" ", "_"));
+        }
+        catch (IllegalArgumentException | NullPointerException e)
+        {
+            return null;
+        }
+    }
+}
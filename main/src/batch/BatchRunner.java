@@ -0,0 +1,469 @@
+package batch;
+
+import auth.AuthService;
+import auth.Permission;
+import config.Config;
+import db.DatabaseConnection;
+import exceptions.DatabaseException;
+import exceptions.DuplicateValueException;
+import models.Contact;
+import models.ContactField;
+import models.Role;
+import models.User;
+import services.ContactInput;
+import services.ContactService;
+import services.ServiceRegistry;
+import services.StatisticalInfoService;
+import services.StatisticsCache;
+import services.UndoService;
+import utils.Json;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs contact commands from a script or a pipe, without the menus.
+ * <p>
+ * One command per line; blank lines and lines starting with {@code #} are
+ * skipped. Arguments are separated by spaces, and values containing spaces go
+ * in double quotes:
+ * <pre>
+ * login &lt;username&gt; &lt;password&gt;
+ * list [after=&lt;id&gt;] [limit=&lt;n&gt;]
+ * get &lt;id&gt;
+ * search &lt;column&gt;=&lt;value&gt;... [archive=true] [sort=&lt;column&gt;] [order=asc|desc]
+ * sort &lt;column&gt; [asc|desc]
+ * add &lt;column&gt;=&lt;value&gt;...
+ * update &lt;id&gt; &lt;column&gt;=&lt;value&gt;...
+ * delete &lt;id&gt;
+ * stats
+ * </pre>
+ * Instead of a {@code login} line, the credentials can come from the
+ * {@code BATCH_USERNAME} and {@code BATCH_PASSWORD} environment variables.
+ * Each command may only do what the user's role may do in the menus, and
+ * changes are recorded for undo as usual.
+ * <p>
+ * Every command prints exactly one JSON object on its own line:
+ * {@code {"line":3,"command":"get","ok":true,"result":{...}}}, or
+ * {@code "ok":false} with an {@code "error"} message. Output is flushed whenever
+ * no further input is waiting, so a driving process can read each answer before
+ * it sends the next command.
+ */
+public class BatchRunner
+{
+    private final ContactService contactService = ServiceRegistry.get().contacts();
+    private final StatisticalInfoService statsService = ServiceRegistry.get().statistics();
+    private final AuthService authService = ServiceRegistry.get().auth();
+    private final PrintStream out;
+
+    private User user;
+    private Role role;
+    private UndoService undoService;
+
+    /**
+     * @param out where the results are written, one JSON line per command
+     */
+    public BatchRunner(PrintStream out)
+    {
+        this.out = out;
+    }
+
+    /**
+     * Runs every command of the input.
+     *
+     * @param in the script
+     * @return 0 if every command succeeded, 1 otherwise
+     * @throws IOException if the script cannot be read
+     */
+    public int run(BufferedReader in) throws IOException
+    {
+        int failures = 0;
+        try
+        {
+            // Usually given as BATCH_USERNAME and BATCH_PASSWORD in the environment
+            String username = Config.get("batch.username", null);
+            if (username != null)
+            {
+                login(username, Config.get("batch.password", null));
+            }
+            // Stop at the first failing command instead of going on with the next one
+            boolean stopOnError = Config.getBoolean("batch.stopOnError", false);
+
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null)
+            {
+                lineNumber++;
+                String command = line.strip();
+                if (command.isEmpty() || command.startsWith("#"))
+                {
+                    continue;
+                }
+
+                Map<String, Object> response = new LinkedHashMap<>();
+                response.put("line", lineNumber);
+                boolean ok = execute(command, response);
+                out.println(Json.write(response));
+                if (!in.ready())
+                {
+                    out.flush();
+                }
+                if (!ok)
+                {
+                    failures++;
+                    if (stopOnError)
+                    {
+                        break;
+                    }
+                }
+            }
+        }
+        catch (IllegalStateException e)
+        {
+            // Only the environment login fails outside of a command
+            out.println(Json.write(Map.of("line", 0, "command", "login", "ok", false, "error", e.getMessage())));
+            failures++;
+        }
+        finally
+        {
+            DatabaseConnection.clearSession();
+            out.flush();
+        }
+        return failures == 0 ? 0 : 1;
+    }
+
+    // Runs one command and fills in the response; returns false if it failed
+    private boolean execute(String line, Map<String, Object> response)
+    {
+        try
+        {
+            List<String> tokens = tokenize(line);
+            String command = tokens.get(0).toLowerCase();
+            response.put("command", command);
+            Object result = switch (command)
+            {
+                case "login" ->
+                {
+                    expectArguments(tokens, 3, "login <username> <password>");
+                    login(tokens.get(1), tokens.get(2));
+                    Map<String, Object> session = new LinkedHashMap<>();
+                    session.put("user", user.getUsername());
+                    session.put("role", role.name());
+                    yield session;
+                }
+                case "list" -> list(options(tokens, 1));
+                case "get" -> toJson(load(id(tokens, "get <id>")));
+                case "search" -> search(options(tokens, 1));
+                case "sort" -> sort(tokens);
+                case "add" -> add(options(tokens, 1));
+                case "update" -> update(id(tokens, "update <id> <column>=<value>..."), options(tokens, 2));
+                case "delete" -> delete(id(tokens, "delete <id>"));
+                case "stats" -> stats();
+                default -> throw new IllegalArgumentException("Unknown command: " + command);
+            };
+            response.put("ok", true);
+            if (result != null)
+            {
+                response.put("result", result);
+            }
+            return true;
+        }
+        catch (IllegalArgumentException | IllegalStateException | DatabaseException e)
+        {
+            response.put("ok", false);
+            response.put("error", e.getMessage());
+            if (e instanceof DuplicateValueException duplicate)
+            {
+                response.put("columns", duplicate.getColumns());
+            }
+            return false;
+        }
+    }
+
+    private void login(String username, String password)
+    {
+        User authenticated;
+        try
+        {
+            authenticated = authService.login(username, password);
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException("Login failed: " + e.getMessage());
+        }
+        if (authenticated == null || Permission.roleOf(authenticated) == null)
+        {
+            throw new IllegalStateException("Invalid username or password");
+        }
+        user = authenticated;
+        role = Permission.roleOf(authenticated);
+        undoService = ServiceRegistry.get().undoFor(authenticated.getUserId());
+        DatabaseConnection.setSession(authenticated.getUserId());
+    }
+
+    private List<Map<String, Object>> list(Map<String, String> options) throws DatabaseException
+    {
+        require(Permission.LIST_CONTACTS);
+        List<Contact> contacts;
+        if (options.containsKey("after") || options.containsKey("limit"))
+        {
+            contacts = contactService.listPage(intOption(options, "after", 0), intOption(options, "limit", Integer.MAX_VALUE));
+        }
+        else
+        {
+            contacts = contactService.listAll();
+        }
+        return toJson(contacts);
+    }
+
+    private List<Map<String, Object>> search(Map<String, String> options) throws DatabaseException
+    {
+        require(Permission.SEARCH_CONTACTS);
+        boolean includeArchive = Boolean.parseBoolean(options.remove("archive"));
+        String sort = options.remove("sort");
+        String order = options.remove("order");
+        for (String column : options.keySet())
+        {
+            if (ContactField.fromColumn(column) == null)
+            {
+                throw new IllegalArgumentException("Unknown contact column: " + column);
+            }
+        }
+        if (options.isEmpty())
+        {
+            throw new IllegalArgumentException("Usage: search <column>=<value>... [archive=true] [sort=<column>] [order=asc|desc]");
+        }
+
+        List<Contact> results = contactService.searchMultipleFields(options, includeArchive);
+        if (sort != null)
+        {
+            contactService.sortContacts(results, sort, !"desc".equalsIgnoreCase(order));
+        }
+        return toJson(results);
+    }
+
+    private List<Map<String, Object>> sort(List<String> tokens) throws DatabaseException
+    {
+        require(Permission.LIST_CONTACTS);
+        if (tokens.size() < 2 || tokens.size() > 3)
+        {
+            throw new IllegalArgumentException("Usage: sort <column> [asc|desc]");
+        }
+        boolean ascending = tokens.size() == 2 || !tokens.get(2).equalsIgnoreCase("desc");
+        return toJson(contactService.sortContacts(contactService.listAll(), tokens.get(1), ascending));
+    }
+
+    private Map<String, Object> add(Map<String, String> fields) throws DatabaseException
+    {
+        require(Permission.ADD_CONTACTS);
+        for (String column : ContactInput.REQUIRED)
+        {
+            if (fields.get(column) == null || fields.get(column).isBlank())
+            {
+                throw new IllegalArgumentException(column + " is required");
+            }
+        }
+        Contact contact = new Contact();
+        ContactInput.apply(contact, fields);
+        List<String> conflicts = contactService.findUniqueConflicts(contact);
+        if (!conflicts.isEmpty())
+        {
+            throw new DuplicateValueException(conflicts);
+        }
+
+        contact.setCreatedAt(LocalDateTime.now());
+        contact.updateTimestamp();
+        contactService.addContact(contact);
+        if (contact.getContactId() <= 0)
+        {
+            throw new DatabaseException("Contact could not be saved");
+        }
+        undoService.recordContactAdded(contact);
+        return toJson(contact);
+    }
+
+    private Map<String, Object> update(int id, Map<String, String> fields) throws DatabaseException
+    {
+        require(Permission.UPDATE_CONTACTS);
+        if (fields.isEmpty())
+        {
+            throw new IllegalArgumentException("Usage: update <id> <column>=<value>...");
+        }
+        Contact contact = load(id);
+        Map<String, String> before = ContactField.snapshot(contact);
+        ContactInput.apply(contact, fields);
+        contactService.updateContact(contact);
+        undoService.recordContactUpdated(before, contact);
+        return toJson(contact);
+    }
+
+    private Object delete(int id) throws DatabaseException
+    {
+        require(Permission.DELETE_CONTACTS);
+        Contact contact = load(id);
+        contactService.deleteContact(id);
+        undoService.recordContactDeleted(contact);
+        return null;
+    }
+
+    private Map<String, Object> stats() throws DatabaseException
+    {
+        require(Permission.VIEW_STATISTICS);
+        StatisticsCache.Snapshot snapshot = statsService.getCachedStatistics();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statistics", snapshot.getStatistics());
+        result.put("ageSeconds", snapshot.getAge().toSeconds());
+        result.put("refreshError", snapshot.getRefreshError());
+        return result;
+    }
+
+    private void require(Permission permission)
+    {
+        if (user == null)
+        {
+            throw new IllegalStateException("Not logged in");
+        }
+        if (!permission.isGrantedTo(role))
+        {
+            throw new IllegalStateException("Your role may not do this");
+        }
+    }
+
+    private Contact load(int id) throws DatabaseException
+    {
+        require(Permission.LIST_CONTACTS);
+        Contact contact = contactService.findById(id);
+        if (contact == null)
+        {
+            throw new IllegalArgumentException("No contact with id " + id);
+        }
+        return contact;
+    }
+
+    private static int id(List<String> tokens, String usage)
+    {
+        if (tokens.size() < 2)
+        {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+        try
+        {
+            return Integer.parseInt(tokens.get(1));
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Not a contact id: " + tokens.get(1));
+        }
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue)
+    {
+        String value = options.get(name);
+        if (value == null)
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+    }
+
+    private static void expectArguments(List<String> tokens, int count, String usage)
+    {
+        if (tokens.size() != count)
+        {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+    }
+
+    // column=value arguments from the given token on, in order
+    private static Map<String, String> options(List<String> tokens, int from)
+    {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String token : tokens.subList(Math.min(from, tokens.size()), tokens.size()))
+        {
+            int equals = token.indexOf('=');
+            if (equals <= 0)
+            {
+                throw new IllegalArgumentException("Expected column=value: " + token);
+            }
+            options.put(token.substring(0, equals), token.substring(equals + 1));
+        }
+        return options;
+    }
+
+    // Splits on spaces outside double quotes; a backslash escapes the next character
+    private static List<String> tokenize(String line)
+    {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+        for (int i = 0; i < line.length(); i++)
+        {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < line.length())
+            {
+                token.append(line.charAt(++i));
+                inToken = true;
+            }
+            else if (c == '"')
+            {
+                quoted = !quoted;
+                inToken = true;
+            }
+            else if (Character.isWhitespace(c) && !quoted)
+            {
+                if (inToken)
+                {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    inToken = false;
+                }
+            }
+            else
+            {
+                token.append(c);
+                inToken = true;
+            }
+        }
+        if (quoted)
+        {
+            throw new IllegalArgumentException("Unterminated quote");
+        }
+        if (inToken)
+        {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    private static List<Map<String, Object>> toJson(List<Contact> contacts)
+    {
+        List<Map<String, Object>> rows = new ArrayList<>(contacts.size());
+        for (Contact contact : contacts)
+        {
+            rows.add(toJson(contact));
+        }
+        return rows;
+    }
+
+    private static Map<String, Object> toJson(Contact contact)
+    {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("contact_id", contact.getContactId());
+        json.putAll(ContactField.snapshot(contact));
+        return json;
+    }
+}
@@ -0,0 +1,231 @@
+package config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Settings of the application, looked up by key such as {@code db.pool.size}.
+ * <p>
+ * A value comes from the first of these that has it:
+ * <ol>
+ *     <li>the system property, e.g. {@code -Ddb.pool.size=16}</li>
+ *     <li>the environment variable named after the key in upper case with dots as
+ *     underscores, e.g. {@code DB_POOL_SIZE=16}</li>
+ *     <li>the properties file {@code config.properties} in the working directory,
+ *     or the one named by the {@code config.file} system property</li>
+ *     <li>the default given by the caller</li>
+ * </ol>
+ * {@link ConfigWatcher} reloads the file when it changes. Code that reads a setting
+ * on every use picks the new value up by itself; components that hold on to a value
+ * (pool sizes, cache TTLs, buffer sizes) register an {@link #onChange} listener.
+ * Settings read only once at startup, such as the JDBC URL, still need a restart.
+ */
+public final class Config
+{
+    private static final Path FILE = Paths.get(System.getProperty("config.file", "config.properties"));
+
+    private static final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    // Invalid values already reported, so a setting read on every use is not reported each time
+    private static final Set<String> reported = ConcurrentHashMap.newKeySet();
+
+    private static volatile Map<String, String> fileValues = readFile(Collections.emptyMap());
+
+    private record Subscription(String prefix, Runnable listener)
+    {
+    }
+
+    private Config()
+    {
+    }
+
+    /**
+     * @return the properties file, which need not exist
+     */
+    public static Path file()
+    {
+        return FILE;
+    }
+
+    /**
+     * @return the value of the setting, or {@code defaultValue} if it is not set anywhere
+     */
+    public static String get(String key, String defaultValue)
+    {
+        String value = System.getProperty(key);
+        if (value == null)
+        {
+            value = System.getenv(envName(key));
+        }
+        if (value == null)
+        {
+            value = fileValues.get(key);
+        }
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    /**
+     * @return the setting as an int, or {@code defaultValue} if it is not set or not a number
+     */
+    public static int getInt(String key, int defaultValue)
+    {
+        String value = get(key, null);
+        if (value == null)
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e)
+        {
+            reportInvalid(key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return the setting as a long, or {@code defaultValue} if it is not set or not a number
+     */
+    public static long getLong(String key, long defaultValue)
+    {
+        String value = get(key, null);
+        if (value == null)
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e)
+        {
+            reportInvalid(key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return true if the setting is "true" (ignoring case), {@code defaultValue} if it is not set
+     */
+    public static boolean getBoolean(String key, boolean defaultValue)
+    {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Calls the listener after a reload changed any setting whose key starts with the prefix.
+     * The listener reads the new values itself; if it throws, the problem is reported and the
+     * component keeps its previous settings.
+     *
+     * @param prefix   e.g. {@code "db.pool."}
+     * @param listener applies the new settings
+     */
+    public static void onChange(String prefix, Runnable listener)
+    {
+        subscriptions.add(new Subscription(prefix, listener));
+    }
+
+    /**
+     * Reads the properties file again and notifies the listeners of the settings that changed.
+     * If the file cannot be read, the previous values stay in effect.
+     *
+     * @return the keys whose file value changed
+     */
+    public static synchronized Set<String> reload()
+    {
+        Map<String, String> previous = fileValues;
+        Map<String, String> current = readFile(previous);
+
+        Set<String> changed = new TreeSet<>();
+        Set<String> keys = new HashSet<>(previous.keySet());
+        keys.addAll(current.keySet());
+        for (String key : keys)
+        {
+            if (!String.valueOf(previous.get(key)).equals(String.valueOf(current.get(key))))
+            {
+                changed.add(key);
+            }
+        }
+        if (changed.isEmpty())
+        {
+            return changed;
+        }
+
+        fileValues = current;
+        reported.clear();
+        System.out.println("Configuration reloaded from " + FILE + ": " + String.join(", ", changed));
+        for (Subscription subscription : subscriptions)
+        {
+            if (changed.stream().anyMatch(key -> key.startsWith(subscription.prefix())))
+            {
+                try
+                {
+                    subscription.listener().run();
+                }
+                catch (RuntimeException e)
+                {
+                    System.out.println("Warning: could not apply " + subscription.prefix() + "* settings ("
+                            + e.getMessage() + "), keeping the previous ones");
+                }
+            }
+        }
+        return changed;
+    }
+
+    // DB_POOL_SIZE for db.pool.size
+    private static String envName(String key)
+    {
+        return key.toUpperCase().replaceAll("[^A-Z0-9]", "_");
+    }
+
+    // A missing file means no file settings; an unreadable one keeps what was read before
+    private static Map<String, String> readFile(Map<String, String> previous)
+    {
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(FILE, StandardCharsets.UTF_8))
+        {
+            properties.load(in);
+        }
+        catch (NoSuchFileException e)
+        {
+            return Collections.emptyMap();
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            System.out.println("Warning: could not read " + FILE + " (" + e.getMessage() + ")");
+            return previous;
+        }
+
+        Map<String, String> values = new HashMap<>();
+        for (String key : properties.stringPropertyNames())
+        {
+            values.put(key, properties.getProperty(key));
+        }
+        return Collections.unmodifiableMap(values);
+    }
+
+    private static void reportInvalid(String key, String value, Object defaultValue)
+    {
+        if (reported.add(key + "=" + value))
+        {
+            System.out.println("Warning: " + key + " is not a number (" + value + "), using " + defaultValue);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads {@link Config} whenever its properties file is written, created or replaced.
+ * <p>
+ * The watch is on the file's directory, because editors often save by replacing
+ * the file. Events arriving within 200 ms of each other cause a
+ * single reload, so a save that writes the file in several steps is read once,
+ * after the last step.
+ */
+public final class ConfigWatcher
+{
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private static WatchService watchService;
+    private static Thread thread;
+
+    private ConfigWatcher()
+    {
+    }
+
+    /**
+     * Starts watching in the background. Does nothing if already started or if the
+     * file's directory does not exist.
+     */
+    public static synchronized void start() throws IOException
+    {
+        Path directory = Config.file().toAbsolutePath().getParent();
+        if (thread != null || directory == null || !Files.isDirectory(directory))
+        {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        WatchService service = watchService;
+        thread = new Thread(() -> watch(service), "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching.
+     *
+     * @return false if the watcher thread did not end in time
+     */
+    public static synchronized boolean stop(long timeoutMillis) throws IOException, InterruptedException
+    {
+        if (thread == null)
+        {
+            return true;
+        }
+        watchService.close();
+        thread.join(Math.max(1, timeoutMillis));
+        return !thread.isAlive();
+    }
+
+    private static void watch(WatchService service)
+    {
+        Path fileName = Config.file().getFileName();
+        try
+        {
+            while (true)
+            {
+                WatchKey key = service.take();
+                boolean touched = concernsFile(key, fileName);
+                // Collect the rest of this save before reading the file
+                while ((key = service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null)
+                {
+                    touched |= concernsFile(key, fileName);
+                }
+                if (touched)
+                {
+                    Config.reload();
+                }
+            }
+        }
+        catch (ClosedWatchServiceException e)
+        {
+            // Stopped
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean concernsFile(WatchKey key, Path fileName)
+    {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            if (fileName.equals(event.context()))
+            {
+                touched = true;
+            }
+        }
+        key.reset();
+        return touched;
+    }
+}
@@ -1,11 +1,26 @@
 package controllers;
 
 import auth.AuthService;
+import db.DatabaseConnection;
+import exceptions.ConcurrentUpdateException;
 import exceptions.DatabaseException;
+import exceptions.DuplicateValueException;
+import models.Contact;
+import models.ContactField;
+import models.UndoEntry;
+import models.UpcomingBirthday;
 import models.User;
+import services.BirthdayIndex;
+import services.ContactService;
+import services.ServiceRegistry;
 import services.UndoService;
 import utils.ConsoleColor;
+import utils.TableRenderer;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 import utils.AsciiAnimations;
@@ -15,15 +30,32 @@ import utils.AsciiAnimations;
  * <p>
  * Holds common state such as the currently authenticated {@link User},
  * a shared {@link Scanner} for console input, an {@link UndoService} for
- * undo operations, and an {@link AuthService} for password updates.
+ * undo/redo operations, and an {@link AuthService} for password updates.
  * Subclasses are responsible for rendering their own role-specific menus.
  */
 public abstract class BaseMenuController
 {
     protected final User currentUser;
     protected final Scanner scanner;
-    protected final UndoService undoService = new UndoService();
-    protected final AuthService authService = new AuthService();
+    protected final UndoService undoService;
+    protected final AuthService authService = ServiceRegistry.get().auth();
+
+    /**
+     * Column layout of every contact listing.
+     */
+    private static final TableRenderer<Contact> CONTACT_TABLE = new TableRenderer<Contact>()
+            .column("ID", 6, c -> String.valueOf(c.getContactId()))
+            .column("First Name", 12, Contact::getFirstName)
+            .column("Middle", 10, Contact::getMiddleName)
+            .column("Last Name", 12, Contact::getLastName)
+            .column("Nickname", 10, Contact::getNickname)
+            .column("Phone 1", 20, Contact::getPhonePrimary)
+            .column("Phone 2", 20, Contact::getPhoneSecondary)
+            .column("Email", 30, Contact::getEmail)
+            .column("LinkedIn", 15, Contact::getLinkedinUrl)
+            .column("Birth", 10, c -> c.getBirthDate() != null ? c.getBirthDate().toString() : null)
+            .column("Created", 10, c -> c.getCreatedAt() != null ? c.getCreatedAt().toLocalDate().toString() : null)
+            .column("Updated", 10, c -> c.getUpdatedAt() != null ? c.getUpdatedAt().toLocalDate().toString() : null);
 
     /**
      * Flag indicating whether the current menu loop should exit
@@ -41,6 +73,7 @@ public abstract class BaseMenuController
     {
         this.currentUser = user;
         this.scanner = scanner;
+        this.undoService = ServiceRegistry.get().undoFor(user.getUserId());
     }
 
     /**
@@ -67,32 +100,41 @@ public abstract class BaseMenuController
      */
     public void runMenuLoop() throws DatabaseException {
         exitRequested = false;
+        // Reads of this user go to the primary for a while after their own writes
+        DatabaseConnection.setSession(currentUser.getUserId());
 
-        while (!exitRequested)
+        try
         {
-            AsciiAnimations.clearScreen();
-            displayMenu();
-            System.out.print("Select option: ");
-
-            int opt;
-            try
-            {
-                opt = Integer.parseInt(scanner.nextLine());
-            }
-            catch (NumberFormatException e)
+            while (!exitRequested)
             {
-                System.out.println(ConsoleColor.MAGENTA + "Invalid input. Please enter a number." + ConsoleColor.RESET);
-                continue;
-            }
+                AsciiAnimations.clearScreen();
+                displayMenu();
+                System.out.print("Select option: ");
 
-            handleUserSelection(opt);
+                int opt;
+                try
+                {
+                    opt = Integer.parseInt(scanner.nextLine());
+                }
+                catch (NumberFormatException e)
+                {
+                    System.out.println(ConsoleColor.MAGENTA + "Invalid input. Please enter a number." + ConsoleColor.RESET);
+                    continue;
+                }
 
-            if (opt == 0)
-            {
-                // Conventional "0 = logout" option
-                exitRequested = true;
+                handleUserSelection(opt);
+
+                if (opt == 0)
+                {
+                    // Conventional "0 = logout" option
+                    exitRequested = true;
+                }
             }
         }
+        finally
+        {
+            DatabaseConnection.clearSession();
+        }
     }
 
     /**
@@ -133,6 +175,169 @@ public abstract class BaseMenuController
         }
     }
 
+    /**
+     * Lists the contacts whose birthday falls within the next N days (today included).
+     * <p>
+     * The query is answered from the shared birthday index in {@link ContactService},
+     * so it does not scan the contacts table.
+     *
+     * @param contactService service used by the concrete controller
+     * @throws DatabaseException if the index has to be loaded and loading fails
+     */
+    protected void showUpcomingBirthdays(ContactService contactService) throws DatabaseException
+    {
+        System.out.print("Days ahead (1-" + BirthdayIndex.MAX_DAYS + ", default 30): ");
+        String input = scanner.nextLine().trim();
+        int days = 30;
+        if (!input.isEmpty())
+        {
+            try
+            {
+                days = Integer.parseInt(input);
+            }
+            catch (NumberFormatException e)
+            {
+                System.out.println(ConsoleColor.MAGENTA + "Invalid number of days." + ConsoleColor.RESET);
+                return;
+            }
+            if (days < 1 || days > BirthdayIndex.MAX_DAYS)
+            {
+                System.out.println(ConsoleColor.MAGENTA + "Days must be between 1 and " + BirthdayIndex.MAX_DAYS + "." + ConsoleColor.RESET);
+                return;
+            }
+        }
+
+        List<UpcomingBirthday> birthdays = contactService.upcomingBirthdays(LocalDate.now(), days);
+        if (birthdays.isEmpty())
+        {
+            System.out.println(ConsoleColor.BRIGHT_YELLOW + "No birthdays in the next " + days + " days." + ConsoleColor.RESET);
+            return;
+        }
+
+        System.out.println(ConsoleColor.BRIGHT_BLUE + "Upcoming birthdays:" + ConsoleColor.RESET);
+        for (UpcomingBirthday b : birthdays)
+        {
+            System.out.printf("%-11s %-4d %-40s turns %d%n",
+                    b.getDate(), b.getContactId(), b.getFullName(), b.getTurningAge());
+        }
+    }
+
+    /**
+     * Pages through every contact in id order, loading one keyset page at a time.
+     *
+     * @param contactService service used by the concrete controller
+     * @throws DatabaseException if a page cannot be loaded
+     */
+    protected void browseAllContacts(ContactService contactService) throws DatabaseException
+    {
+        new PagedViewer<Contact>(scanner, "All contacts:",
+                (last, loaded, limit) -> contactService.listPage(last == null ? 0 : last.getContactId(), limit),
+                this::printContactTable).show();
+    }
+
+    /**
+     * Pages through contacts that are already loaded, e.g. search results.
+     *
+     * @param title    printed above every page
+     * @param contacts contacts to show, in display order
+     * @throws DatabaseException never in practice; pages come from memory
+     */
+    protected void browseContacts(String title, List<Contact> contacts) throws DatabaseException
+    {
+        PagedViewer.ofList(scanner, title, contacts, this::printContactTable).show();
+    }
+
+    /**
+     * Prints contacts as a table, followed by the row count and render time.
+     *
+     * @param contacts contacts to print, in display order
+     */
+    protected void printContactTable(List<Contact> contacts)
+    {
+        Duration elapsed = CONTACT_TABLE.render(contacts);
+        System.out.println(ConsoleColor.BRIGHT_CYAN + contacts.size() + " contact(s) rendered in "
+                + elapsed.toMillis() + " ms." + ConsoleColor.RESET);
+    }
+
+    /**
+     * Asks whether a search should also cover archived contacts.
+     *
+     * @return true if the user answered yes
+     */
+    protected boolean askIncludeArchive()
+    {
+        System.out.print("Include archived contacts? (y/n, default n): ");
+        return scanner.nextLine().trim().equalsIgnoreCase("y");
+    }
+
+    /**
+     * Saves an edited contact and records it for undo.
+     * <p>
+     * If another session changed the contact after it was loaded, the current stored
+     * version is shown and the user can re-apply their changes on top of it; the save
+     * is then retried with the refreshed version.
+     *
+     * @param contactService service used by the concrete controller
+     * @param contact        the edited contact, as loaded and then changed by the prompts
+     * @param before         snapshot of the contact taken before the prompts
+     * @return true if the contact was saved
+     * @throws DatabaseException if saving fails for another reason
+     */
+    protected boolean saveContactUpdate(ContactService contactService, Contact contact, Map<String, String> before)
+            throws DatabaseException
+    {
+        while (true)
+        {
+            try
+            {
+                contactService.updateContact(contact);
+                undoService.recordContactUpdated(before, contact);
+                return true;
+            }
+            catch (DuplicateValueException e)
+            {
+                printDuplicateValues(e);
+                return false;
+            }
+            catch (ConcurrentUpdateException e)
+            {
+                Contact latest = e.getCurrent();
+                System.out.println(ConsoleColor.BRIGHT_YELLOW + "This contact was changed by someone else after you opened it." + ConsoleColor.RESET);
+                System.out.println("Current version: " + latest);
+                System.out.print("Re-apply your changes to the current version? (y/n): ");
+                if (!scanner.nextLine().trim().equalsIgnoreCase("y"))
+                {
+                    System.out.println(ConsoleColor.BRIGHT_YELLOW + "Update cancelled." + ConsoleColor.RESET);
+                    return false;
+                }
+                before = ContactField.snapshot(latest);
+                contact.applyChangesTo(latest);
+                contact = latest;
+            }
+        }
+    }
+
+    /**
+     * Explains which values of a rejected contact write are already taken.
+     *
+     * @param e the exception raised by the service
+     */
+    protected void printDuplicateValues(DuplicateValueException e)
+    {
+        if (e.getColumns().isEmpty())
+        {
+            System.out.println(ConsoleColor.MAGENTA + "A value is already used by another contact." + ConsoleColor.RESET);
+        }
+        if (e.getColumns().contains("phone_primary"))
+        {
+            System.out.println(ConsoleColor.MAGENTA + "Primary phone is already used by another contact." + ConsoleColor.RESET);
+        }
+        if (e.getColumns().contains("email"))
+        {
+            System.out.println(ConsoleColor.MAGENTA + "Email address is already used by another contact." + ConsoleColor.RESET);
+        }
+    }
+
     /**
      * Requests logout from the current role menu.
      * <p>
@@ -149,23 +354,48 @@ public abstract class BaseMenuController
     }
 
     /**
-     * Invokes the {@link UndoService} to restore the last saved state.
+     * Undoes the current user's most recent add, update or delete.
      * <p>
-     * Concrete controllers are responsible for pushing meaningful state
-     * objects into the undo stack before performing destructive operations
-     * (add, update, delete). This method only pops and reports the last state.
+     * Concrete controllers record each change in the {@link UndoService} right after
+     * it has been persisted. The inverse operation is applied to the database in a
+     * single transaction and can be re-applied with {@link #redo()}.
      */
     public void undo()
     {
-        if (!undoService.canUndo())
+        try
         {
-            System.out.println(ConsoleColor.MAGENTA + "Nothing to undo." + ConsoleColor.RESET);
-            return;
+            UndoEntry entry = undoService.undo();
+            if (entry == null)
+            {
+                System.out.println(ConsoleColor.MAGENTA + "Nothing to undo." + ConsoleColor.RESET);
+                return;
+            }
+            System.out.println(ConsoleColor.BRIGHT_GREEN + "Undone: " + entry.describe() + ConsoleColor.RESET);
         }
+        catch (DatabaseException e)
+        {
+            System.out.println(ConsoleColor.MAGENTA + "Undo failed: " + e.getMessage() + ConsoleColor.RESET);
+        }
+    }
 
-        Object previousState = undoService.undoLastOperation();
-        System.out.println(ConsoleColor.BRIGHT_YELLOW +
-                "Undo requested. Previous state restored in memory: " + previousState +
-                ConsoleColor.RESET);
+    /**
+     * Re-applies the operation most recently reverted by {@link #undo()}.
+     */
+    public void redo()
+    {
+        try
+        {
+            UndoEntry entry = undoService.redo();
+            if (entry == null)
+            {
+                System.out.println(ConsoleColor.MAGENTA + "Nothing to redo." + ConsoleColor.RESET);
+                return;
+            }
+            System.out.println(ConsoleColor.BRIGHT_GREEN + "Redone: " + entry.describe() + ConsoleColor.RESET);
+        }
+        catch (DatabaseException e)
+        {
+            System.out.println(ConsoleColor.MAGENTA + "Redo failed: " + e.getMessage() + ConsoleColor.RESET);
+        }
     }
 }
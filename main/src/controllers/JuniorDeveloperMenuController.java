@@ -2,13 +2,14 @@ package controllers;
 
 import exceptions.DatabaseException;
 import models.Contact;
+import models.ContactField;
 import models.User;
 import services.ContactService;
+import services.ServiceRegistry;
 import utils.AsciiAnimations;
 import utils.ConsoleColor;
 import utils.InputValidator;
 
-import java.io.PrintStream;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
@@ -23,7 +24,7 @@ import java.util.Scanner;
  */
 public class JuniorDeveloperMenuController extends BaseMenuController
 {
-    private final ContactService contactService = new ContactService();
+    private final ContactService contactService = ServiceRegistry.get().contacts();
     private final InputValidator validator = new InputValidator();
 
     /**
@@ -50,8 +51,10 @@ public class JuniorDeveloperMenuController extends BaseMenuController
         System.out.println("[4] Search Contacts (Multiple Fields)");
         System.out.println("[5] Sort Contacts");
         System.out.println("[6] Update Contact");
-        System.out.println("[7] Undo Last Operation");
-        System.out.println("[8] Logout");
+        System.out.println("[7] Upcoming Birthdays");
+        System.out.println("[8] Undo Last Operation");
+        System.out.println("[9] Redo Last Undone Operation");
+        System.out.println("[10] Logout");
     }
 
     @Override
@@ -63,8 +66,10 @@ public class JuniorDeveloperMenuController extends BaseMenuController
             case 4 -> searchContactsMultiple();
             case 5 -> sortContacts();
             case 6 -> updateContact();
-            case 7 -> undo();
-            case 8 -> logout();
+            case 7 -> showUpcomingBirthdays(contactService);
+            case 8 -> undo();
+            case 9 -> redo();
+            case 10 -> logout();
             default -> System.out.println(ConsoleColor.MAGENTA + "Unknown option. Please try again." + ConsoleColor.RESET);
         }
     }
@@ -75,33 +80,7 @@ public class JuniorDeveloperMenuController extends BaseMenuController
      * @throws DatabaseException if loading contacts fails
      */
     private void listAllContacts() throws DatabaseException {
-        List<Contact> contacts = contactService.listAll();
-        if (contacts.isEmpty()) {
-            System.out.println(ConsoleColor.BRIGHT_YELLOW + "No contacts found." + ConsoleColor.RESET);
-            return;
-        }
-        System.out.println(ConsoleColor.BRIGHT_BLUE + "All contacts:" + ConsoleColor.RESET);
-        // Header
-        System.out.printf("%-4s %-12s %-10s %-12s %-10s %-20s %-20s %-30s %-15s %-11s %-11s %-11s%n",
-                "ID", "First Name", "Middle", "Last Name", "Nickname", "Phone 1", "Phone 2", "Email", "LinkedIn",
-                "Birth", "Created", "Updated");
-        System.out.println(
-                "----------------------------------------------------------------------------------------------------------------------------------------------------------------");
-        for (Contact c : contacts) {
-            PrintStream printf = System.out.printf("%-4d %-12s %-10s %-12s %-10s %-20s %-20s %-30s %-15s %-11s %-11s %-11s%n",
-                    c.getContactId(),
-                    truncate(c.getFirstName(), 12),
-                    truncate(c.getMiddleName(), 10),
-                    truncate(c.getLastName(), 12),
-                    truncate(c.getNickname(), 10),
-                    truncate(c.getPhonePrimary(), 20),
-                    truncate(c.getPhoneSecondary(), 20),
-                    truncate(c.getEmail(), 30),
-                    truncate(c.getLinkedinUrl(), 15),
-                    c.getBirthDate() != null ? c.getBirthDate().toString() : "",
-                    c.getCreatedAt() != null ? c.getCreatedAt().toLocalDate().toString() : "",
-                    c.getUpdatedAt() != null ? c.getUpdatedAt().toLocalDate().toString() : "");
-        }
+        browseAllContacts(contactService);
     }
 
     /**
@@ -116,16 +95,13 @@ public class JuniorDeveloperMenuController extends BaseMenuController
         System.out.print("Enter value to search for: ");
         String value = scanner.nextLine();
 
-        List<Contact> results = contactService.searchSingleField(field, value);
+        List<Contact> results = contactService.searchSingleField(field, value, askIncludeArchive());
         if (results.isEmpty()) {
             System.out.println(ConsoleColor.BRIGHT_YELLOW + "No contacts matched your criteria." + ConsoleColor.RESET);
             return;
         }
 
-        System.out.println(ConsoleColor.BRIGHT_BLUE + "Search results:" + ConsoleColor.RESET);
-        for (Contact c : results) {
-            System.out.println(c);
-        }
+        browseContacts("Search results:", results);
     }
 
     /**
@@ -155,16 +131,13 @@ public class JuniorDeveloperMenuController extends BaseMenuController
             return;
         }
 
-        List<Contact> results = contactService.searchMultipleFields(fields);
+        List<Contact> results = contactService.searchMultipleFields(fields, askIncludeArchive());
         if (results.isEmpty()) {
             System.out.println(ConsoleColor.BRIGHT_YELLOW + "No contacts matched your criteria." + ConsoleColor.RESET);
             return;
         }
 
-        System.out.println(ConsoleColor.BRIGHT_BLUE + "Search results:" + ConsoleColor.RESET);
-        for (Contact c : results) {
-            System.out.println(c);
-        }
+        browseContacts("Search results:", results);
     }
 
     /**
@@ -189,10 +162,7 @@ public class JuniorDeveloperMenuController extends BaseMenuController
             return;
         }
 
-        System.out.println(ConsoleColor.BRIGHT_BLUE + "Sorted contacts:" + ConsoleColor.RESET);
-        for (Contact c : contacts) {
-            System.out.println(c);
-        }
+        browseContacts("Sorted contacts:", contacts);
     }
 
     /**
@@ -219,16 +189,15 @@ public class JuniorDeveloperMenuController extends BaseMenuController
             return;
         }
 
-        // Simple retrieval by ID using single‑field search (assuming unique IDs)
-        List<Contact> matches = contactService.searchSingleField("contact_id", String.valueOf(contactId));
-        if (matches.isEmpty())
+        Contact contact = contactService.findById(contactId);
+        if (contact == null)
         {
             System.out.println(ConsoleColor.BRIGHT_YELLOW + "No contact found with ID " + contactId + "." + ConsoleColor.RESET);
             return;
         }
 
-        Contact contact = matches.get(0);
-        undoService.saveState(contact); // save previous state for potential undo
+        // Capture the previous values before the prompts modify the contact
+        Map<String, String> before = ContactField.snapshot(contact);
 
         System.out.println("Leave a field empty to keep the current value.");
 
@@ -319,14 +288,7 @@ public class JuniorDeveloperMenuController extends BaseMenuController
                 System.out.println(ConsoleColor.MAGENTA + "Invalid phone number format." + ConsoleColor.RESET);
                 return;
             }
-            // Uniqueness: primary phone must not belong to another contact
-            List<Contact> existingByPrimary = contactService.searchSingleField("phone_primary", phonePrimary);
-            boolean usedByOther = existingByPrimary.stream()
-                    .anyMatch(c -> c.getContactId() != contact.getContactId());
-            if (usedByOther) {
-                System.out.println(ConsoleColor.MAGENTA + "Primary phone is already used by another contact." + ConsoleColor.RESET);
-                return;
-            }
+            // Uniqueness is checked when the update is saved
             contact.setPhonePrimary(phonePrimary);
         }
 
@@ -355,14 +317,6 @@ public class JuniorDeveloperMenuController extends BaseMenuController
                 System.out.println(ConsoleColor.MAGENTA + "Invalid email format." + ConsoleColor.RESET);
                 return;
             }
-            // Uniqueness: email must not belong to another contact
-            List<Contact> existingByEmail = contactService.searchSingleField("email", email);
-            boolean usedByOtherEmail = existingByEmail.stream()
-                    .anyMatch(c -> c.getContactId() != contact.getContactId());
-            if (usedByOtherEmail) {
-                System.out.println(ConsoleColor.MAGENTA + "Email address is already used by another contact." + ConsoleColor.RESET);
-                return;
-            }
             contact.setEmail(email);
         }
 
@@ -382,19 +336,9 @@ public class JuniorDeveloperMenuController extends BaseMenuController
             contact.setBirthDate(LocalDate.parse(birthDateStr));
         }
 
-        contact.updateTimestamp();
-        contactService.updateContact(contact);
-        System.out.println(ConsoleColor.BRIGHT_GREEN + "Contact updated successfully." + ConsoleColor.RESET);
-    }
-
-    /**
-     * Helper to truncate strings that exceed a certain length.
-     */
-    private String truncate(String input, int maxLength) {
-        if (input == null)
-            return "";
-        if (input.length() <= maxLength)
-            return input;
-        return input.substring(0, maxLength - 3) + "...";
+        if (saveContactUpdate(contactService, contact, before))
+        {
+            System.out.println(ConsoleColor.BRIGHT_GREEN + "Contact updated successfully." + ConsoleColor.RESET);
+        }
     }
 }
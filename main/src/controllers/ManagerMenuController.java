@@ -2,28 +2,49 @@ package controllers;
 
 import exceptions.DatabaseException;
 import models.User;
+import models.UserField;
+import services.AsyncUserService;
+import services.BulkResult;
+import services.ContactArchiver;
+import services.DatabaseExecutor;
+import services.ServiceRegistry;
 import services.StatisticalInfoService;
+import services.StatisticsCache;
 import services.UserService;
+import statistics.Granularity;
 import utils.ConsoleColor;
 import utils.InputValidator;
+import utils.TableRenderer;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Menu controller for users with the {@code MANAGER} role.
  * <p>
- * Managers can change their password, inspect contact statistics, and
+ * Managers can change their password, inspect contact statistics and growth, and
  * perform full CRUD operations on users (list, update, add, delete).
  */
 public class ManagerMenuController extends BaseMenuController
 {
-    private final UserService userService = new UserService();
-    private final StatisticalInfoService statsService = new StatisticalInfoService();
+    private final UserService userService = ServiceRegistry.get().users();
+    private final AsyncUserService asyncUserService = ServiceRegistry.get().asyncUsers();
+    private final StatisticalInfoService statsService = ServiceRegistry.get().statistics();
+    private final ContactArchiver archiver = ServiceRegistry.get().archiver();
     private final InputValidator validator = new InputValidator();
 
+    private static final TableRenderer<User> USER_TABLE = new TableRenderer<User>()
+            .column("ID", 6, u -> String.valueOf(u.getUserId()))
+            .column("Username", 20, User::getUsername)
+            .column("First Name", 15, User::getFirstName)
+            .column("Last Name", 15, User::getLastName)
+            .column("Role", 18, User::getUserRole)
+            .column("Created", 10, u -> u.getCreatedAt() != null ? u.getCreatedAt().toLocalDate().toString() : null);
+
     /**
      * Creates a new controller for a manager.
      *
@@ -43,12 +64,15 @@ public class ManagerMenuController extends BaseMenuController
                 " =====" + ConsoleColor.RESET);
         System.out.println("[1] Change Password");
         System.out.println("[2] View Contact Statistics");
-        System.out.println("[3] List All Users");
-        System.out.println("[4] Update User");
-        System.out.println("[5] Add New User");
-        System.out.println("[6] Delete User");
-        System.out.println("[7] Undo Last Operation");
-        System.out.println("[8] Logout");
+        System.out.println("[3] View Contact Growth");
+        System.out.println("[4] Archive Stale Contacts");
+        System.out.println("[5] List All Users");
+        System.out.println("[6] Update User");
+        System.out.println("[7] Add New User");
+        System.out.println("[8] Delete User");
+        System.out.println("[9] Undo Last Operation");
+        System.out.println("[10] Redo Last Undone Operation");
+        System.out.println("[11] Logout");
     }
 
     @Override
@@ -58,52 +82,166 @@ public class ManagerMenuController extends BaseMenuController
         {
             case 1 -> changePassword();
             case 2 -> viewStatistics();
-            case 3 -> listAllUsers();
-            case 4 -> updateUser();
-            case 5 -> addUser();
-            case 6 -> deleteUser();
-            case 7 -> undo();
-            case 8 -> logout();
+            case 3 -> viewGrowth();
+            case 4 -> archiveStaleContacts();
+            case 5 -> listAllUsers();
+            case 6 -> updateUser();
+            case 7 -> addUser();
+            case 8 -> deleteUser();
+            case 9 -> undo();
+            case 10 -> redo();
+            case 11 -> logout();
             default -> System.out.println(ConsoleColor.MAGENTA + "Unknown option. Please try again." + ConsoleColor.RESET);
         }
     }
 
     /**
      * Displays aggregated statistics from both user and contact data.
+     * By default the exact statistics come from a cache and their age is shown.
+     * The manager can instead choose a parallel exact scan for large tables, or the
+     * approximate mode, which keeps memory fixed at the cost of small, bounded errors.
      *
      * @throws DatabaseException if the statistics cannot be calculated
      */
     private void viewStatistics() throws DatabaseException
     {
-        Map<String, Object> stats = statsService.getStatistics();
+        System.out.print("Statistics mode [1] Exact, cached [2] Exact, parallel scan [3] Approximate (default 1): ");
+        String mode = scanner.nextLine().trim();
+
+        // The user list loads in the background while the contact statistics are computed here
+        CompletableFuture<List<User>> users = asyncUserService.listUsers();
+        Map<String, Object> stats;
+        String freshness = null;
+        switch (mode)
+        {
+            case "2" -> stats = statsService.getStatisticsParallel();
+            case "3" -> stats = statsService.getApproximateStatistics();
+            default ->
+            {
+                StatisticsCache.Snapshot snapshot = statsService.getCachedStatistics();
+                stats = snapshot.getStatistics();
+                freshness = "Data age: " + snapshot.getAge().toSeconds() + " s" +
+                        (snapshot.isRefreshing() ? " (refreshing in background)" : "") +
+                        (snapshot.getRefreshError() != null ? " (last refresh failed: " + snapshot.getRefreshError() + ")" : "");
+            }
+        }
+        Map<String, Long> usersPerRole = new TreeMap<>();
+        for (User user : DatabaseExecutor.await(users))
+        {
+            usersPerRole.merge(user.getUserRole(), 1L, Long::sum);
+        }
+
         System.out.println(ConsoleColor.BRIGHT_CYAN + "=== CONTACT & USER STATISTICS ===" + ConsoleColor.RESET);
+        if (freshness != null)
+        {
+            System.out.println(ConsoleColor.BLUE + freshness + ConsoleColor.RESET);
+        }
         for (Map.Entry<String, Object> entry : stats.entrySet())
         {
             System.out.printf("%-25s : %s%n", entry.getKey(), entry.getValue());
         }
+        System.out.printf("%-25s : %s%n", "Users per role", usersPerRole);
     }
 
     /**
-     * Lists all users in the system.
+     * Displays how many contacts were created and updated per day, week or month.
      *
-     * @throws DatabaseException if users cannot be loaded
+     * @throws DatabaseException if the time series cannot be loaded
      */
-    private void listAllUsers() throws DatabaseException
+    private void viewGrowth() throws DatabaseException
     {
-        List<User> users = userService.listUsers();
-        if (users.isEmpty())
+        System.out.print("Bucket size [1] Day [2] Week [3] Month (default 2): ");
+        Granularity granularity = switch (scanner.nextLine().trim())
         {
-            System.out.println(ConsoleColor.BRIGHT_YELLOW + "No users found." + ConsoleColor.RESET);
-            return;
+            case "1" -> Granularity.DAY;
+            case "3" -> Granularity.MONTH;
+            default -> Granularity.WEEK;
+        };
+
+        System.out.print("Number of periods (1-" + StatisticalInfoService.MAX_GROWTH_BUCKETS + ", default 12): ");
+        String input = scanner.nextLine().trim();
+        int buckets = 12;
+        if (!input.isEmpty())
+        {
+            try
+            {
+                buckets = Integer.parseInt(input);
+            }
+            catch (NumberFormatException e)
+            {
+                System.out.println(ConsoleColor.MAGENTA + "Invalid number of periods." + ConsoleColor.RESET);
+                return;
+            }
+            if (buckets < 1 || buckets > StatisticalInfoService.MAX_GROWTH_BUCKETS)
+            {
+                System.out.println(ConsoleColor.MAGENTA + "Number of periods must be between 1 and " +
+                        StatisticalInfoService.MAX_GROWTH_BUCKETS + "." + ConsoleColor.RESET);
+                return;
+            }
+        }
+
+        Map<String, Object> growth = statsService.getGrowthStatistics(granularity, buckets);
+        @SuppressWarnings("unchecked")
+        Map<String, Long> created = (Map<String, Long>) growth.get("created");
+        @SuppressWarnings("unchecked")
+        Map<String, Long> updated = (Map<String, Long>) growth.get("updated");
+
+        System.out.println(ConsoleColor.BRIGHT_CYAN + "=== CONTACT GROWTH PER " + granularity + " ===" + ConsoleColor.RESET);
+        System.out.printf("%-12s %10s %10s%n", "Period", "Created", "Updated");
+        for (Map.Entry<String, Long> entry : created.entrySet())
+        {
+            System.out.printf("%-12s %10d %10d%n", entry.getKey(), entry.getValue(), updated.get(entry.getKey()));
+        }
+        System.out.printf("%-12s %10d %10d%n", "Total", growth.get("createdInWindow"), growth.get("updatedInWindow"));
+    }
+
+    /**
+     * Moves contacts not updated for a chosen number of months to the archive table.
+     */
+    private void archiveStaleContacts()
+    {
+        System.out.print("Archive contacts not updated for how many months? (default 24): ");
+        String input = scanner.nextLine().trim();
+        int months = 24;
+        if (!input.isEmpty())
+        {
+            try
+            {
+                months = Integer.parseInt(input);
+            }
+            catch (NumberFormatException e)
+            {
+                System.out.println(ConsoleColor.MAGENTA + "Invalid number of months." + ConsoleColor.RESET);
+                return;
+            }
+            if (months < 1)
+            {
+                System.out.println(ConsoleColor.MAGENTA + "Months must be at least 1." + ConsoleColor.RESET);
+                return;
+            }
         }
 
-        System.out.println(ConsoleColor.BRIGHT_BLUE + "All users:" + ConsoleColor.RESET);
-        for (User u : users)
+        BulkResult result = archiver.archiveOlderThan(months);
+        System.out.println(ConsoleColor.BRIGHT_GREEN + result.getRows().size() + " contact(s) archived in " +
+                result.getChunks() + " batch(es)." + ConsoleColor.RESET);
+        if (result.getError() != null)
         {
-            System.out.println(u);
+            System.out.println(ConsoleColor.MAGENTA + result.getError().getMessage() + ConsoleColor.RESET);
         }
     }
 
+    /**
+     * Lets the manager page through all users, one keyset page at a time.
+     *
+     * @throws DatabaseException if users cannot be loaded
+     */
+    private void listAllUsers() throws DatabaseException
+    {
+        new PagedViewer<User>(scanner, "All users:",
+                (last, loaded, limit) -> userService.listPage(last == null ? 0 : last.getUserId(), limit),
+                USER_TABLE::render).show();
+    }
+
     /**
      * Updates properties of an existing user.
      *
@@ -136,7 +274,8 @@ public class ManagerMenuController extends BaseMenuController
             return;
         }
 
-        undoService.saveState(target);
+        // Capture the previous values before the prompts modify the user
+        Map<String, String> before = UserField.snapshot(target);
 
         System.out.println("Leave a field empty to keep the current value.");
         System.out.print("Username (" + target.getUsername() + "): ");
@@ -168,6 +307,7 @@ public class ManagerMenuController extends BaseMenuController
         }
 
         userService.updateUser(target);
+        undoService.recordUserUpdated(before, target);
         System.out.println(ConsoleColor.BRIGHT_GREEN + "User updated successfully." + ConsoleColor.RESET);
     }
 
@@ -219,6 +359,7 @@ public class ManagerMenuController extends BaseMenuController
         user.setCreatedAt(LocalDateTime.now());
 
         userService.addUser(user);
+        undoService.recordUserAdded(user);
         System.out.println(ConsoleColor.BRIGHT_GREEN + "User added successfully." + ConsoleColor.RESET);
     }
 
@@ -254,8 +395,8 @@ public class ManagerMenuController extends BaseMenuController
             return;
         }
 
-        undoService.saveState(target);
         userService.deleteUser(userId);
+        undoService.recordUserDeleted(target);
         System.out.println(ConsoleColor.BRIGHT_GREEN + "User deleted successfully." + ConsoleColor.RESET);
     }
 }
@@ -0,0 +1,227 @@
+package controllers;
+
+import config.Config;
+import exceptions.DatabaseException;
+import services.DatabaseExecutor;
+import utils.AsciiAnimations;
+import utils.ConsoleColor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Interactive pager that shows a list one page at a time.
+ * <p>
+ * Pages are loaded on demand through a {@link PageLoader}, typically a keyset
+ * query continuing after the last row of the previous page. While the user reads
+ * a page, the next one is already loaded on a background thread. Visited pages
+ * are kept, so going back or jumping to an earlier page does not query again;
+ * jumping forward loads the pages in between.
+ *
+ * @param <T> row type
+ */
+class PagedViewer<T>
+{
+    /**
+     * Loads the page that follows the rows loaded so far.
+     */
+    @FunctionalInterface
+    interface PageLoader<T>
+    {
+        /**
+         * @param last   last row of the previous page, or null for the first page
+         * @param loaded number of rows loaded before this page
+         * @param limit  page size
+         * @return at most {@code limit} rows; fewer means this is the last page
+         */
+        List<T> load(T last, int loaded, int limit) throws DatabaseException;
+    }
+
+    private final Scanner scanner;
+    private final String title;
+    private final PageLoader<T> loader;
+    private final Consumer<List<T>> renderer;
+    private final int pageSize;
+    private final boolean prefetch;
+
+    private final List<List<T>> pages = new ArrayList<>();
+    private int loadedRows;
+    private boolean complete;
+    // Known up front only for in-memory lists
+    private int totalPages = -1;
+    private CompletableFuture<List<T>> nextPage;
+
+    /**
+     * @param scanner  console input
+     * @param title    printed above every page
+     * @param loader   loads the pages, in order
+     * @param renderer prints one page
+     */
+    PagedViewer(Scanner scanner, String title, PageLoader<T> loader, Consumer<List<T>> renderer)
+    {
+        this(scanner, title, loader, renderer, true);
+    }
+
+    private PagedViewer(Scanner scanner, String title, PageLoader<T> loader, Consumer<List<T>> renderer, boolean prefetch)
+    {
+        this.scanner = scanner;
+        this.title = title;
+        this.loader = loader;
+        this.renderer = renderer;
+        // Rows per page (pager.pageSize, default 20), read per listing so a changed setting applies to the next one
+        this.pageSize = Math.max(1, Config.getInt("pager.pageSize", 20));
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Pages through rows that are already in memory, e.g. search results.
+     */
+    static <T> PagedViewer<T> ofList(Scanner scanner, String title, List<T> rows, Consumer<List<T>> renderer)
+    {
+        PageLoader<T> loader = (last, loaded, limit) ->
+                rows.subList(Math.min(loaded, rows.size()), Math.min(loaded + limit, rows.size()));
+        PagedViewer<T> viewer = new PagedViewer<>(scanner, title, loader, renderer, false);
+        viewer.totalPages = (rows.size() + viewer.pageSize - 1) / viewer.pageSize;
+        return viewer;
+    }
+
+    /**
+     * Shows the first page and handles navigation until the user quits.
+     *
+     * @throws DatabaseException if a page cannot be loaded
+     */
+    void show() throws DatabaseException
+    {
+        try
+        {
+            if (!ensureLoaded(0) || pages.get(0).isEmpty())
+            {
+                System.out.println(ConsoleColor.BRIGHT_YELLOW + "Nothing to show." + ConsoleColor.RESET);
+                return;
+            }
+
+            int current = 0;
+            while (true)
+            {
+                display(current);
+                startPrefetch(current);
+                boolean last = complete && current == pages.size() - 1;
+                System.out.print((last ? "" : "[n]ext  ") + (current > 0 ? "[p]revious  " : "")
+                        + "[page number]  [q]uit: ");
+                String input = scanner.nextLine().trim().toLowerCase();
+
+                if (input.equals("q") || (input.isEmpty() && last))
+                {
+                    return;
+                }
+                if (input.isEmpty() || input.equals("n"))
+                {
+                    if (ensureLoaded(current + 1))
+                    {
+                        current++;
+                    }
+                }
+                else if (input.equals("p"))
+                {
+                    current = Math.max(0, current - 1);
+                }
+                else
+                {
+                    current = jump(input, current);
+                }
+            }
+        }
+        finally
+        {
+            if (nextPage != null)
+            {
+                nextPage.cancel(false);
+            }
+        }
+    }
+
+    private void display(int index)
+    {
+        AsciiAnimations.clearScreen();
+        System.out.println(ConsoleColor.BRIGHT_BLUE + title + ConsoleColor.RESET);
+        renderer.accept(pages.get(index));
+        String total = complete ? String.valueOf(pages.size())
+                : totalPages >= 0 ? String.valueOf(totalPages) : pages.size() + "+";
+        System.out.println(ConsoleColor.BRIGHT_CYAN + "Page " + (index + 1) + " of " + total + ConsoleColor.RESET);
+    }
+
+    private int jump(String input, int current) throws DatabaseException
+    {
+        int target;
+        try
+        {
+            target = Integer.parseInt(input) - 1;
+        }
+        catch (NumberFormatException e)
+        {
+            return current;
+        }
+        if (target < 0)
+        {
+            return current;
+        }
+        // Keyset pages can only be reached one after another
+        ensureLoaded(target);
+        return Math.min(target, pages.size() - 1);
+    }
+
+    // Starts loading the page after the given one if it is the next unloaded page
+    private void startPrefetch(int index)
+    {
+        if (prefetch && !complete && nextPage == null && index == pages.size() - 1)
+        {
+            List<T> previous = pages.get(index);
+            T last = previous.get(previous.size() - 1);
+            int loaded = loadedRows;
+            nextPage = DatabaseExecutor.submit(() -> loader.load(last, loaded, pageSize));
+        }
+    }
+
+    /**
+     * Makes sure the page is loaded.
+     *
+     * @return false if the list ends before that page
+     */
+    private boolean ensureLoaded(int index) throws DatabaseException
+    {
+        while (pages.size() <= index)
+        {
+            if (complete)
+            {
+                return false;
+            }
+            List<T> page;
+            if (nextPage != null)
+            {
+                CompletableFuture<List<T>> pending = nextPage;
+                nextPage = null;
+                page = DatabaseExecutor.await(pending);
+            }
+            else
+            {
+                T last = pages.isEmpty() ? null : pages.get(pages.size() - 1).get(pageSize - 1);
+                page = loader.load(last, loadedRows, pageSize);
+            }
+
+            if (page.size() < pageSize)
+            {
+                complete = true;
+            }
+            if (page.isEmpty() && !pages.isEmpty())
+            {
+                return false;
+            }
+            pages.add(page);
+            loadedRows += page.size();
+        }
+        return true;
+    }
+}
@@ -2,18 +2,25 @@ package controllers;
 
 import exceptions.DatabaseException;
 import models.Contact;
+import models.ContactField;
 import models.User;
+import services.AsyncContactService;
+import services.BulkResult;
+import services.ContactInput;
 import services.ContactService;
+import services.DatabaseExecutor;
+import services.ServiceRegistry;
 import utils.AsciiAnimations;
 import utils.ConsoleColor;
 import utils.InputValidator;
 
-import java.io.PrintStream;
 import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -24,7 +31,8 @@ import java.util.Scanner;
  */
 public class SeniorDeveloperMenuController extends BaseMenuController
 {
-    private final ContactService contactService = new ContactService();
+    private final ContactService contactService = ServiceRegistry.get().contacts();
+    private final AsyncContactService asyncContactService = ServiceRegistry.get().asyncContacts();
     private final InputValidator validator = new InputValidator();
 
     /**
@@ -53,8 +61,12 @@ public class SeniorDeveloperMenuController extends BaseMenuController
         System.out.println("[6] Update Contact");
         System.out.println("[7] Add Contact");
         System.out.println("[8] Delete Contact");
-        System.out.println("[9] Undo Last Operation");
-        System.out.println("[10] Logout");
+        System.out.println("[9] Bulk Update Contacts");
+        System.out.println("[10] Bulk Delete Contacts");
+        System.out.println("[11] Upcoming Birthdays");
+        System.out.println("[12] Undo Last Operation");
+        System.out.println("[13] Redo Last Undone Operation");
+        System.out.println("[14] Logout");
     }
 
     @Override
@@ -68,8 +80,12 @@ public class SeniorDeveloperMenuController extends BaseMenuController
             case 6 -> updateContact();
             case 7 -> addContact();
             case 8 -> deleteContact();
-            case 9 -> undo();
-            case 10 -> logout();
+            case 9 -> bulkUpdateContacts();
+            case 10 -> bulkDeleteContacts();
+            case 11 -> showUpcomingBirthdays(contactService);
+            case 12 -> undo();
+            case 13 -> redo();
+            case 14 -> logout();
             default -> System.out.println(ConsoleColor.MAGENTA + "Unknown option. Please try again." + ConsoleColor.RESET);
         }
     }
@@ -80,33 +96,7 @@ public class SeniorDeveloperMenuController extends BaseMenuController
      * @throws DatabaseException if loading contacts fails
      */
     private void listAllContacts() throws DatabaseException {
-        List<Contact> contacts = contactService.listAll();
-        if (contacts.isEmpty()) {
-            System.out.println(ConsoleColor.BRIGHT_YELLOW + "No contacts found." + ConsoleColor.RESET);
-            return;
-        }
-        System.out.println(ConsoleColor.BRIGHT_BLUE + "All contacts:" + ConsoleColor.RESET);
-        // Header
-        System.out.printf("%-4s %-12s %-10s %-12s %-10s %-20s %-20s %-30s %-15s %-11s %-11s %-11s%n",
-                "ID", "First Name", "Middle", "Last Name", "Nickname", "Phone 1", "Phone 2", "Email", "LinkedIn",
-                "Birth", "Created", "Updated");
-        System.out.println(
-                "----------------------------------------------------------------------------------------------------------------------------------------------------------------");
-        for (Contact c : contacts) {
-            PrintStream printf = System.out.printf("%-4d %-12s %-10s %-12s %-10s %-20s %-20s %-30s %-15s %-11s %-11s %-11s%n",
-                    c.getContactId(),
-                    truncate(c.getFirstName(), 12),
-                    truncate(c.getMiddleName(), 10),
-                    truncate(c.getLastName(), 12),
-                    truncate(c.getNickname(), 10),
-                    truncate(c.getPhonePrimary(), 20),
-                    truncate(c.getPhoneSecondary(), 20),
-                    truncate(c.getEmail(), 30),
-                    truncate(c.getLinkedinUrl(), 15),
-                    c.getBirthDate() != null ? c.getBirthDate().toString() : "",
-                    c.getCreatedAt() != null ? c.getCreatedAt().toLocalDate().toString() : "",
-                    c.getUpdatedAt() != null ? c.getUpdatedAt().toLocalDate().toString() : "");
-        }
+        browseAllContacts(contactService);
     }
 
     /**
@@ -130,16 +120,13 @@ public class SeniorDeveloperMenuController extends BaseMenuController
         System.out.print("Enter value to search for: ");
         String value = scanner.nextLine();
 
-        List<Contact> results = contactService.searchSingleField(field, value);
+        List<Contact> results = contactService.searchSingleField(field, value, askIncludeArchive());
         if (results.isEmpty()) {
             System.out.println(ConsoleColor.BRIGHT_YELLOW + "No contacts matched your criteria." + ConsoleColor.RESET);
             return;
         }
 
-        System.out.println(ConsoleColor.BRIGHT_BLUE + "Search results:" + ConsoleColor.RESET);
-        for (Contact c : results) {
-            System.out.println(c);
-        }
+        browseContacts("Search results:", results);
     }
 
     /**
@@ -180,16 +167,13 @@ public class SeniorDeveloperMenuController extends BaseMenuController
             return;
         }
 
-        List<Contact> results = contactService.searchMultipleFields(fields);
+        List<Contact> results = contactService.searchMultipleFields(fields, askIncludeArchive());
         if (results.isEmpty()) {
             System.out.println(ConsoleColor.BRIGHT_YELLOW + "No contacts matched your criteria." + ConsoleColor.RESET);
             return;
         }
 
-        System.out.println(ConsoleColor.BRIGHT_BLUE + "Search results:" + ConsoleColor.RESET);
-        for (Contact c : results) {
-            System.out.println(c);
-        }
+        browseContacts("Search results:", results);
     }
 
     /**
@@ -213,10 +197,7 @@ public class SeniorDeveloperMenuController extends BaseMenuController
             return;
         }
 
-        System.out.println(ConsoleColor.BRIGHT_BLUE + "Sorted contacts:" + ConsoleColor.RESET);
-        for (Contact c : contacts) {
-            System.out.println(c);
-        }
+        browseContacts("Sorted contacts:", contacts);
     }
 
     /**
@@ -237,14 +218,14 @@ public class SeniorDeveloperMenuController extends BaseMenuController
             return;
         }
 
-        List<Contact> matches = contactService.searchSingleField("contact_id", String.valueOf(contactId));
-        if (matches.isEmpty()) {
+        Contact contact = contactService.findById(contactId);
+        if (contact == null) {
             System.out.println(ConsoleColor.BRIGHT_YELLOW + "No contact found with ID " + contactId + "." + ConsoleColor.RESET);
             return;
         }
 
-        Contact contact = matches.get(0);
-        undoService.saveState(contact);
+        // Capture the previous values before the prompts modify the contact
+        Map<String, String> before = ContactField.snapshot(contact);
 
         System.out.println("Leave a field empty to keep the current value.");
 
@@ -335,14 +316,7 @@ public class SeniorDeveloperMenuController extends BaseMenuController
                 System.out.println(ConsoleColor.MAGENTA + "Invalid phone number format." + ConsoleColor.RESET);
                 return;
             }
-            // Uniqueness: primary phone must not be used by another contact
-            List<Contact> existingByPrimary = contactService.searchSingleField("phone_primary", phonePrimary);
-            boolean usedByOther = existingByPrimary.stream()
-                    .anyMatch(c -> c.getContactId() != contact.getContactId());
-            if (usedByOther) {
-                System.out.println(ConsoleColor.MAGENTA + "Primary phone is already used by another contact." + ConsoleColor.RESET);
-                return;
-            }
+            // Uniqueness is checked when the update is saved
             contact.setPhonePrimary(phonePrimary);
         }
 
@@ -353,20 +327,13 @@ public class SeniorDeveloperMenuController extends BaseMenuController
                 System.out.println(ConsoleColor.MAGENTA + "Invalid email format." + ConsoleColor.RESET);
                 return;
             }
-            // Uniqueness: email must not be used by another contact
-            List<Contact> existingByEmail = contactService.searchSingleField("email", email);
-            boolean usedByOtherEmail = existingByEmail.stream()
-                    .anyMatch(c -> c.getContactId() != contact.getContactId());
-            if (usedByOtherEmail) {
-                System.out.println(ConsoleColor.MAGENTA + "Email address is already used by another contact." + ConsoleColor.RESET);
-                return;
-            }
             contact.setEmail(email);
         }
 
-        contact.updateTimestamp();
-        contactService.updateContact(contact);
-        System.out.println(ConsoleColor.BRIGHT_GREEN + "Contact updated successfully." + ConsoleColor.RESET);
+        if (saveContactUpdate(contactService, contact, before))
+        {
+            System.out.println(ConsoleColor.BRIGHT_GREEN + "Contact updated successfully." + ConsoleColor.RESET);
+        }
     }
 
     /**
@@ -467,14 +434,6 @@ public class SeniorDeveloperMenuController extends BaseMenuController
                 System.out.println(ConsoleColor.MAGENTA + "Invalid phone number format." + ConsoleColor.RESET);
                 return;
             }
-            // Uniqueness: primary phone must not belong to another contact
-            List<Contact> existingByPrimary = contactService.searchSingleField("phone_primary", phonePrimary);
-            boolean usedByOther = existingByPrimary.stream()
-                    .anyMatch(c -> c.getContactId() != contact.getContactId());
-            if (usedByOther) {
-                System.out.println(ConsoleColor.MAGENTA + "Primary phone is already used by another contact." + ConsoleColor.RESET);
-                return;
-            }
             contact.setPhonePrimary(phonePrimary);
         }
 
@@ -485,14 +444,6 @@ public class SeniorDeveloperMenuController extends BaseMenuController
                 System.out.println(ConsoleColor.MAGENTA + "Invalid phone number format." + ConsoleColor.RESET);
                 return;
             }
-            // Uniqueness: primary phone must not belong to another contact
-            List<Contact> existingBySecondary = contactService.searchSingleField("phone_secondary", phoneSecondary);
-            boolean usedByOther = existingBySecondary.stream()
-                    .anyMatch(c -> c.getContactId() != contact.getContactId());
-            if (usedByOther) {
-                System.out.println(ConsoleColor.MAGENTA + "Primary phone is already used by another contact." + ConsoleColor.RESET);
-                return;
-            }
             contact.setPhoneSecondary(phoneSecondary);
         }
 
@@ -522,9 +473,25 @@ public class SeniorDeveloperMenuController extends BaseMenuController
             contact.setBirthDate(LocalDate.parse(birthDateStr));
         }
 
-        // Uniqueness checks for email
-        List<Contact> existingByEmail = contactService.searchSingleField("email", email);
-        if (!existingByEmail.isEmpty())
+        // Uniqueness checks, run side by side
+        CompletableFuture<List<Contact>> existingByPrimary = phonePrimary.isBlank()
+                ? CompletableFuture.completedFuture(List.of())
+                : asyncContactService.searchSingleField("phone_primary", phonePrimary);
+        CompletableFuture<List<Contact>> existingBySecondary = phoneSecondary.isBlank()
+                ? CompletableFuture.completedFuture(List.of())
+                : asyncContactService.searchSingleField("phone_secondary", phoneSecondary);
+        CompletableFuture<List<Contact>> existingByEmail = asyncContactService.searchSingleField("email", email);
+        if (!DatabaseExecutor.await(existingByPrimary).isEmpty())
+        {
+            System.out.println(ConsoleColor.MAGENTA + "Primary phone is already used by another contact." + ConsoleColor.RESET);
+            return;
+        }
+        if (!DatabaseExecutor.await(existingBySecondary).isEmpty())
+        {
+            System.out.println(ConsoleColor.MAGENTA + "Secondary phone is already used by another contact." + ConsoleColor.RESET);
+            return;
+        }
+        if (!DatabaseExecutor.await(existingByEmail).isEmpty())
         {
             System.out.println(ConsoleColor.MAGENTA + "Email address is already used by another contact." + ConsoleColor.RESET);
             return;
@@ -534,11 +501,12 @@ public class SeniorDeveloperMenuController extends BaseMenuController
         contact.updateTimestamp();
 
         contactService.addContact(contact);
+        undoService.recordContactAdded(contact);
         System.out.println(ConsoleColor.BRIGHT_GREEN + "Contact added successfully." + ConsoleColor.RESET);
     }
 
     /**
-     * Deletes a contact by ID after saving its previous state.
+     * Deletes a contact by ID and records it so the deletion can be undone.
      *
      * @throws DatabaseException if deletion fails
      */
@@ -554,27 +522,142 @@ public class SeniorDeveloperMenuController extends BaseMenuController
             return;
         }
 
-        List<Contact> matches = contactService.searchSingleField("contact_id", String.valueOf(contactId));
-        if (matches.isEmpty()) {
+        Contact toDelete = contactService.findById(contactId);
+        if (toDelete == null) {
             System.out.println(ConsoleColor.BRIGHT_YELLOW + "No contact found with ID " + contactId + "." + ConsoleColor.RESET);
             return;
         }
 
-        Contact toDelete = matches.get(0);
-        undoService.saveState(toDelete);
-
         contactService.deleteContact(contactId);
+        undoService.recordContactDeleted(toDelete);
         System.out.println(ConsoleColor.BRIGHT_GREEN + "Contact deleted successfully." + ConsoleColor.RESET);
     }
 
     /**
-     * Helper to truncate strings that exceed a certain length.
+     * Applies the same changes to every contact matching the given criteria.
+     * <p>
+     * The service works through the matches in small chunks, each in its own short
+     * transaction; the whole operation is recorded as one undo entry.
+     */
+    private void bulkUpdateContacts()
+    {
+        System.out.println("Select the contacts to update (substring match, leave field empty to finish).");
+        Map<String, String> criteria = readColumnValues(true);
+        if (criteria.isEmpty())
+        {
+            System.out.println(ConsoleColor.MAGENTA + "No criteria specified. Bulk update cancelled." + ConsoleColor.RESET);
+            return;
+        }
+        System.out.println("Enter the new values (leave field empty to finish).");
+        Map<String, String> changes = readColumnValues(false);
+        if (changes.isEmpty())
+        {
+            System.out.println(ConsoleColor.MAGENTA + "No changes specified. Bulk update cancelled." + ConsoleColor.RESET);
+            return;
+        }
+        if (changes.containsKey("phone_primary") || changes.containsKey("email"))
+        {
+            System.out.println(ConsoleColor.MAGENTA + "Primary phone and email are unique and cannot be set in bulk." + ConsoleColor.RESET);
+            return;
+        }
+        // Same rules as the single-contact form
+        Contact validated = new Contact();
+        try
+        {
+            ContactInput.apply(validated, changes);
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.out.println(ConsoleColor.MAGENTA + e.getMessage() + ". Bulk update cancelled." + ConsoleColor.RESET);
+            return;
+        }
+        // Write the trimmed values, with cleared optional columns as NULL
+        Map<String, String> normalized = ContactField.snapshot(validated);
+        changes.replaceAll((column, value) -> normalized.get(column));
+        if (!confirm("Update all contacts matching " + criteria + " with " + changes + "?"))
+        {
+            return;
+        }
+
+        BulkResult result = contactService.bulkUpdate(criteria, changes);
+        undoService.recordContactsBulkUpdated(result.getRows(), changes);
+        printBulkResult(result, "updated");
+    }
+
+    /**
+     * Deletes every contact matching the given criteria, chunk by chunk, as one undoable operation.
      */
-    private String truncate(String input, int maxLength) {
-        if (input == null)
-            return "";
-        if (input.length() <= maxLength)
-            return input;
-        return input.substring(0, maxLength - 3) + "...";
+    private void bulkDeleteContacts()
+    {
+        System.out.println("Select the contacts to delete (substring match, leave field empty to finish).");
+        Map<String, String> criteria = readColumnValues(true);
+        if (criteria.isEmpty())
+        {
+            System.out.println(ConsoleColor.MAGENTA + "No criteria specified. Bulk delete cancelled." + ConsoleColor.RESET);
+            return;
+        }
+        if (!confirm("Delete all contacts matching " + criteria + "?"))
+        {
+            return;
+        }
+
+        BulkResult result = contactService.bulkDelete(criteria);
+        undoService.recordContactsBulkDeleted(result.getRows());
+        printBulkResult(result, "deleted");
+    }
+
+    /**
+     * Reads column/value pairs until an empty column name is entered.
+     * Only data columns of the contacts table are accepted.
+     *
+     * @param criteria true for match criteria, which must not be empty since they would match every contact
+     */
+    private Map<String, String> readColumnValues(boolean criteria)
+    {
+        Map<String, String> values = new LinkedHashMap<>();
+        while (true)
+        {
+            System.out.print("Field name (e.g. first_name, nickname, email): ");
+            String field = scanner.nextLine().trim();
+            if (field.isEmpty())
+            {
+                return values;
+            }
+            ContactField column = ContactField.fromColumn(field);
+            if (column == null || column == ContactField.CREATED_AT || column == ContactField.UPDATED_AT)
+            {
+                System.out.println(ConsoleColor.MAGENTA + "Unknown field: " + field + ConsoleColor.RESET);
+                continue;
+            }
+            System.out.print("Value for '" + field + "': ");
+            String value = scanner.nextLine();
+            if (criteria && value.trim().isEmpty())
+            {
+                System.out.println(ConsoleColor.MAGENTA + "A criterion needs a value; an empty one would match every contact." + ConsoleColor.RESET);
+                continue;
+            }
+            values.put(field, value);
+        }
+    }
+
+    private boolean confirm(String question)
+    {
+        System.out.print(question + " (y/n): ");
+        if (scanner.nextLine().trim().equalsIgnoreCase("y"))
+        {
+            return true;
+        }
+        System.out.println(ConsoleColor.BRIGHT_YELLOW + "Cancelled." + ConsoleColor.RESET);
+        return false;
+    }
+
+    private void printBulkResult(BulkResult result, String verb)
+    {
+        System.out.println(ConsoleColor.BRIGHT_GREEN + result.getRows().size() + " contact(s) " + verb +
+                " in " + result.getChunks() + " chunk(s)." + ConsoleColor.RESET);
+        if (result.getError() != null)
+        {
+            System.out.println(ConsoleColor.MAGENTA + result.getError().getMessage() + ConsoleColor.RESET);
+        }
     }
 }
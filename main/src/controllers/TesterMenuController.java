@@ -4,10 +4,10 @@ import exceptions.DatabaseException;
 import models.Contact;
 import models.User;
 import services.ContactService;
+import services.ServiceRegistry;
 import utils.AsciiAnimations;
 import utils.ConsoleColor;
 
-import java.io.PrintStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,7 +21,7 @@ import java.util.Scanner;
  */
 public class TesterMenuController extends BaseMenuController
 {
-    private final ContactService contactService = new ContactService();
+    private final ContactService contactService = ServiceRegistry.get().contacts();
 
     /**
      * Creates a new controller for a tester.
@@ -46,8 +46,10 @@ public class TesterMenuController extends BaseMenuController
         System.out.println("[3] Search Contacts (Single Field)");
         System.out.println("[4] Search Contacts (Multiple Fields)");
         System.out.println("[5] Sort Contacts");
-        System.out.println("[6] Undo Last Operation");
-        System.out.println("[7] Logout");
+        System.out.println("[6] Upcoming Birthdays");
+        System.out.println("[7] Undo Last Operation");
+        System.out.println("[8] Redo Last Undone Operation");
+        System.out.println("[9] Logout");
     }
 
     @Override
@@ -59,45 +61,21 @@ public class TesterMenuController extends BaseMenuController
             case 3 -> searchContactsSingle();
             case 4 -> searchContactsMultiple();
             case 5 -> sortContacts();
-            case 6 -> undo();
-            case 7 -> logout();
+            case 6 -> showUpcomingBirthdays(contactService);
+            case 7 -> undo();
+            case 8 -> redo();
+            case 9 -> logout();
             default -> System.out.println(ConsoleColor.MAGENTA + "Unknown option. Please try again." + ConsoleColor.RESET);
         }
     }
 
     /**
-     * Lists all contacts and prints them to the console.
+     * Lets the user page through all contacts.
      *
      * @throws DatabaseException if the DAO layer fails
      */
     private void listAllContacts() throws DatabaseException {
-        List<Contact> contacts = contactService.listAll();
-        if (contacts.isEmpty()) {
-            System.out.println(ConsoleColor.BRIGHT_YELLOW + "No contacts found." + ConsoleColor.RESET);
-            return;
-        }
-        System.out.println(ConsoleColor.BRIGHT_BLUE + "All contacts:" + ConsoleColor.RESET);
-        // Header
-        System.out.printf("%-4s %-12s %-10s %-12s %-10s %-20s %-20s %-30s %-15s %-11s %-11s %-11s%n",
-                "ID", "First Name", "Middle", "Last Name", "Nickname", "Phone 1", "Phone 2", "Email", "LinkedIn",
-                "Birth", "Created", "Updated");
-        System.out.println(
-                "----------------------------------------------------------------------------------------------------------------------------------------------------------------");
-        for (Contact c : contacts) {
-            PrintStream printf = System.out.printf("%-4d %-12s %-10s %-12s %-10s %-20s %-20s %-30s %-15s %-11s %-11s %-11s%n",
-                    c.getContactId(),
-                    truncate(c.getFirstName(), 12),
-                    truncate(c.getMiddleName(), 10),
-                    truncate(c.getLastName(), 12),
-                    truncate(c.getNickname(), 10),
-                    truncate(c.getPhonePrimary(), 20),
-                    truncate(c.getPhoneSecondary(), 20),
-                    truncate(c.getEmail(), 30),
-                    truncate(c.getLinkedinUrl(), 15),
-                    c.getBirthDate() != null ? c.getBirthDate().toString() : "",
-                    c.getCreatedAt() != null ? c.getCreatedAt().toLocalDate().toString() : "",
-                    c.getUpdatedAt() != null ? c.getUpdatedAt().toLocalDate().toString() : "");
-        }
+        browseAllContacts(contactService);
     }
 
     /**
@@ -115,16 +93,13 @@ public class TesterMenuController extends BaseMenuController
         System.out.print("Enter value to search for: ");
         String value = scanner.nextLine();
 
-        List<Contact> results = contactService.searchSingleField(field, value);
+        List<Contact> results = contactService.searchSingleField(field, value, askIncludeArchive());
         if (results.isEmpty()) {
             System.out.println(ConsoleColor.BRIGHT_YELLOW + "No contacts matched your criteria." + ConsoleColor.RESET);
             return;
         }
 
-        System.out.println(ConsoleColor.BRIGHT_BLUE + "Search results:" + ConsoleColor.RESET);
-        for (Contact c : results) {
-            System.out.println(c);
-        }
+        browseContacts("Search results:", results);
     }
 
     /**
@@ -156,16 +131,13 @@ public class TesterMenuController extends BaseMenuController
             return;
         }
 
-        List<Contact> results = contactService.searchMultipleFields(fields);
+        List<Contact> results = contactService.searchMultipleFields(fields, askIncludeArchive());
         if (results.isEmpty()) {
             System.out.println(ConsoleColor.BRIGHT_YELLOW + "No contacts matched your criteria." + ConsoleColor.RESET);
             return;
         }
 
-        System.out.println(ConsoleColor.BRIGHT_BLUE + "Search results:" + ConsoleColor.RESET);
-        for (Contact c : results) {
-            System.out.println(c);
-        }
+        browseContacts("Search results:", results);
     }
 
     /**
@@ -189,20 +161,6 @@ public class TesterMenuController extends BaseMenuController
             return;
         }
 
-        System.out.println(ConsoleColor.BRIGHT_BLUE + "Sorted contacts:" + ConsoleColor.RESET);
-        for (Contact c : contacts) {
-            System.out.println(c);
-        }
-    }
-
-    /**
-     * Helper to truncate strings that exceed a certain length.
-     */
-    private String truncate(String input, int maxLength) {
-        if (input == null)
-            return "";
-        if (input.length() <= maxLength)
-            return input;
-        return input.substring(0, maxLength - 3) + "...";
+        browseContacts("Sorted contacts:", contacts);
     }
 }
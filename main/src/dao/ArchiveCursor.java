@@ -0,0 +1,41 @@
+package dao;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Position of an archiving run in {@code (updated_at, contact_id)} order, plus the
+ * ids archived so far. Each batch continues strictly after the last archived row.
+ */
+public class ArchiveCursor
+{
+    private LocalDateTime lastUpdatedAt;
+    private int lastId;
+    private final List<Integer> archivedIds = new ArrayList<>();
+
+    /**
+     * @return updated_at of the last archived row, or null before the first batch
+     */
+    public LocalDateTime getLastUpdatedAt()
+    {
+        return lastUpdatedAt;
+    }
+
+    public int getLastId()
+    {
+        return lastId;
+    }
+
+    public List<Integer> getArchivedIds()
+    {
+        return archivedIds;
+    }
+
+    void advance(LocalDateTime updatedAt, int contactId)
+    {
+        lastUpdatedAt = updatedAt;
+        lastId = contactId;
+        archivedIds.add(contactId);
+    }
+}
@@ -0,0 +1,257 @@
+package dao;
+
+import db.DatabaseConnection;
+import models.Contact;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Scans the {@code contacts} table in parallel, one {@code contact_id} range per task.
+ * <p>
+ * Before any row is read, every worker connection opens a
+ * {@code START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY}, one after another,
+ * without locking the table. The snapshots are not taken atomically: a transaction
+ * that commits while they are being opened is seen by the chunks of the later
+ * connections only, so the result is exact only for a table not written during
+ * those few milliseconds. The id range is split recursively on a {@link ForkJoinPool};
+ * each leaf scans its chunk into a fresh accumulator and partial results are
+ * combined on the way up.
+ * <p>
+ * A scan holds its connections until it ends, so it uses at most half of the pool,
+ * and only one scan runs at a time in the process; further scans wait for it. This
+ * keeps connections free for interactive work and stops two scans from each
+ * holding part of the pool while waiting for the rest.
+ */
+public class ChunkedContactScanner
+{
+    // Scans run one after another, so concurrent scans never split the pool between them
+    private static final Semaphore scans = new Semaphore(1, true);
+
+    private final DatabaseConnection db;
+    private final int chunkSize;
+    private final int parallelism;
+
+    /**
+     * @param chunkSize   number of ids covered by one leaf task
+     * @param parallelism number of snapshot connections and worker threads, capped at half the pool
+     */
+    public ChunkedContactScanner(int chunkSize, int parallelism)
+    {
+        this(chunkSize, parallelism, new DatabaseConnection());
+    }
+
+    /**
+     * @param chunkSize   number of ids covered by one leaf task
+     * @param parallelism number of snapshot connections and worker threads, capped at half the pool
+     * @param db          database to scan, e.g. one contact shard
+     */
+    public ChunkedContactScanner(int chunkSize, int parallelism, DatabaseConnection db)
+    {
+        this.db = db;
+        if (chunkSize <= 0 || parallelism <= 0)
+        {
+            throw new IllegalArgumentException("Chunk size and parallelism must be positive");
+        }
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Reduces every contact with mergeable accumulators.
+     *
+     * @param factory     creates an empty accumulator for each chunk
+     * @param accumulator folds one contact into an accumulator
+     * @param combiner    merges two partial accumulators
+     * @param <A>         accumulator type
+     * @return the combined accumulator (an empty one if the table is empty)
+     * @throws SQLException if any chunk cannot be read
+     */
+    public <A> A scan(Supplier<A> factory, BiConsumer<A, Contact> accumulator, BinaryOperator<A> combiner)
+            throws SQLException
+    {
+        try
+        {
+            scans.acquire();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for another contact scan", e);
+        }
+        try
+        {
+            // Read per scan, so a resized pool is taken into account
+            return scan(Math.min(parallelism, Math.max(1, db.getPool().getMaxSize() / 2)), factory, accumulator, combiner);
+        }
+        finally
+        {
+            scans.release();
+        }
+    }
+
+    private <A> A scan(int parallelism, Supplier<A> factory, BiConsumer<A, Contact> accumulator,
+                       BinaryOperator<A> combiner) throws SQLException
+    {
+        BlockingQueue<Connection> snapshots = new ArrayBlockingQueue<>(parallelism);
+        List<Connection> opened = new ArrayList<>();
+        ForkJoinPool forkJoinPool = null;
+
+        try
+        {
+            // Open all snapshots before scanning so the chunks start from nearly the same point in time
+            for (int i = 0; i < parallelism; i++)
+            {
+                Connection conn = db.getConnection();
+                if (conn == null)
+                {
+                    throw new SQLException("Could not open snapshot connection " + (i + 1) + " of " + parallelism);
+                }
+                opened.add(conn);
+                conn.setAutoCommit(false);
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                try (Statement stmt = conn.createStatement())
+                {
+                    stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+                }
+                snapshots.add(conn);
+            }
+
+            int minId;
+            int maxId;
+            try (Statement stmt = opened.get(0).createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT MIN(contact_id), MAX(contact_id) FROM contacts"))
+            {
+                rs.next();
+                minId = rs.getInt(1);
+                maxId = rs.getInt(2);
+                if (rs.wasNull())
+                {
+                    return factory.get();
+                }
+            }
+
+            forkJoinPool = new ForkJoinPool(parallelism);
+            return forkJoinPool.invoke(new ChunkTask<>(minId, maxId, snapshots, factory, accumulator, combiner));
+        }
+        catch (RuntimeException e)
+        {
+            // Fork-join may re-wrap worker exceptions, so look through the whole cause chain
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause())
+            {
+                if (cause instanceof SQLException sqlException)
+                {
+                    throw sqlException;
+                }
+            }
+            throw e;
+        }
+        finally
+        {
+            if (forkJoinPool != null)
+            {
+                forkJoinPool.shutdown();
+            }
+            for (Connection conn : opened)
+            {
+                try
+                {
+                    conn.commit();
+                }
+                catch (SQLException e)
+                {
+                    System.out.println("Error ending snapshot transaction: " + e.getMessage());
+                }
+                db.close(conn);
+            }
+        }
+    }
+
+    private class ChunkTask<A> extends RecursiveTask<A>
+    {
+        private final int fromId;
+        private final int toId;
+        private final BlockingQueue<Connection> snapshots;
+        private final Supplier<A> factory;
+        private final BiConsumer<A, Contact> accumulator;
+        private final BinaryOperator<A> combiner;
+
+        private ChunkTask(int fromId, int toId, BlockingQueue<Connection> snapshots, Supplier<A> factory,
+                          BiConsumer<A, Contact> accumulator, BinaryOperator<A> combiner)
+        {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.snapshots = snapshots;
+            this.factory = factory;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected A compute()
+        {
+            if ((long) toId - fromId < chunkSize)
+            {
+                return scanChunk();
+            }
+
+            int middle = (int) (((long) fromId + toId) / 2);
+            ChunkTask<A> left = new ChunkTask<>(fromId, middle, snapshots, factory, accumulator, combiner);
+            ChunkTask<A> right = new ChunkTask<>(middle + 1, toId, snapshots, factory, accumulator, combiner);
+            left.fork();
+            A rightResult = right.compute();
+            return combiner.apply(left.join(), rightResult);
+        }
+
+        private A scanChunk()
+        {
+            A partial = factory.get();
+            Connection conn;
+            try
+            {
+                conn = snapshots.take();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(new SQLException("Interrupted while waiting for a snapshot connection", e));
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT * FROM contacts WHERE contact_id BETWEEN ? AND ?"))
+            {
+                ps.setInt(1, fromId);
+                ps.setInt(2, toId);
+                try (ResultSet rs = ps.executeQuery())
+                {
+                    while (rs.next())
+                    {
+                        accumulator.accept(partial, new Contact(rs));
+                    }
+                }
+            }
+            catch (SQLException e)
+            {
+                throw new RuntimeException(e);
+            }
+            finally
+            {
+                snapshots.add(conn);
+            }
+            return partial;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package dao;
+
+import models.Contact;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface ContactArchiveDao
+{
+    int archiveBatch(LocalDateTime cutoff, int limit, ArchiveCursor cursor) throws SQLException;
+    List<Contact> searchBySingleField(String field, String value);
+    List<Contact> searchByMultipleFields(Map<String, String> fields);
+}
@@ -0,0 +1,198 @@
+package dao;
+
+import db.DatabaseConnection;
+import models.Contact;
+import models.ContactField;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC-based implementation of {@link ContactArchiveDao}.
+ * <p>
+ * Archived contacts live in {@code contacts_archive}, which has the columns of
+ * {@code contacts} plus {@code archived_at}, so rows from both tables map to
+ * {@link Contact} the same way.
+ */
+public class ContactArchiveDaoImplementation implements ContactArchiveDao
+{
+    private final DatabaseConnection db;
+
+    public ContactArchiveDaoImplementation()
+    {
+        this(new DatabaseConnection());
+    }
+
+    public ContactArchiveDaoImplementation(DatabaseConnection db)
+    {
+        this.db = db;
+    }
+
+    private static final String COLUMNS = columnList();
+
+    /**
+     * Moves the next batch of contacts last updated before {@code cutoff} to the archive
+     * in one transaction: a locking keyset read over {@code (updated_at, contact_id)},
+     * which the {@code updated_at} index serves directly, then {@code INSERT ... SELECT}
+     * into the archive and {@code DELETE} from {@code contacts}.
+     *
+     * @return number of contacts archived by this batch (0 when none are left)
+     */
+    @Override
+    public int archiveBatch(LocalDateTime cutoff, int limit, ArchiveCursor cursor) throws SQLException
+    {
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            conn.setAutoCommit(false);
+
+            boolean first = cursor.getLastUpdatedAt() == null;
+            PreparedStatement select = conn.prepareStatement("SELECT contact_id, updated_at FROM contacts WHERE updated_at < ?" +
+                    (first ? "" : " AND (updated_at > ? OR (updated_at = ? AND contact_id > ?))") +
+                    " ORDER BY updated_at, contact_id LIMIT ? FOR UPDATE");
+            int index = 1;
+            select.setTimestamp(index++, Timestamp.valueOf(cutoff));
+            if (!first)
+            {
+                select.setTimestamp(index++, Timestamp.valueOf(cursor.getLastUpdatedAt()));
+                select.setTimestamp(index++, Timestamp.valueOf(cursor.getLastUpdatedAt()));
+                select.setInt(index++, cursor.getLastId());
+            }
+            select.setInt(index, limit);
+
+            List<Integer> ids = new ArrayList<>();
+            List<LocalDateTime> updatedAts = new ArrayList<>();
+            ResultSet rs = select.executeQuery();
+            while (rs.next())
+            {
+                ids.add(rs.getInt("contact_id"));
+                updatedAts.add(rs.getTimestamp("updated_at").toLocalDateTime());
+            }
+            rs.close();
+            select.close();
+            if (ids.isEmpty())
+            {
+                conn.commit();
+                return 0;
+            }
+
+            String in = String.join(", ", Collections.nCopies(ids.size(), "?"));
+            PreparedStatement copy = conn.prepareStatement("INSERT INTO contacts_archive (" + COLUMNS + ", archived_at) " +
+                    "SELECT " + COLUMNS + ", CURRENT_TIMESTAMP FROM contacts WHERE contact_id IN (" + in + ")");
+            bindIds(copy, ids);
+            copy.executeUpdate();
+            copy.close();
+
+            PreparedStatement delete = conn.prepareStatement("DELETE FROM contacts WHERE contact_id IN (" + in + ")");
+            bindIds(delete, ids);
+            delete.executeUpdate();
+            delete.close();
+
+            conn.commit();
+            for (int i = 0; i < ids.size(); i++)
+            {
+                cursor.advance(updatedAts.get(i), ids.get(i));
+            }
+            return ids.size();
+        }
+        catch (SQLException e)
+        {
+            if (conn != null)
+            {
+                try
+                {
+                    conn.rollback();
+                }
+                catch (SQLException rollbackError)
+                {
+                    System.out.println("Error rolling back: " + rollbackError.getMessage());
+                }
+            }
+            throw e;
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    @Override
+    public List<Contact> searchBySingleField(String field, String value)
+    {
+        return searchByMultipleFields(Map.of(field, value));
+    }
+
+    @Override
+    public List<Contact> searchByMultipleFields(Map<String, String> fields)
+    {
+        List<Contact> contacts = new ArrayList<>();
+        if (fields.isEmpty()) return contacts;
+
+        StringBuilder query = new StringBuilder("SELECT * FROM contacts_archive WHERE ");
+        List<String> values = new ArrayList<>();
+        for (Map.Entry<String, String> entry : fields.entrySet())
+        {
+            if (ContactField.fromColumn(entry.getKey()) == null)
+            {
+                throw new IllegalArgumentException("Unknown contact column: " + entry.getKey());
+            }
+            if (!values.isEmpty())
+                query.append(" AND ");
+            query.append(entry.getKey()).append(" LIKE ?");
+            values.add("%" + entry.getValue() + "%");
+        }
+
+        Connection conn = null;
+        try
+        {
+            conn = db.getReadConnection();
+            PreparedStatement ps = conn.prepareStatement(query.toString());
+            for (int i = 0; i < values.size(); i++)
+            {
+                ps.setString(i + 1, values.get(i));
+            }
+
+            ResultSet rs = ps.executeQuery();
+            while (rs.next())
+            {
+                contacts.add(new Contact(rs));
+            }
+            rs.close();
+            ps.close();
+        }
+        catch (SQLException e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            db.close(conn);
+        }
+
+        return contacts;
+    }
+
+    private static void bindIds(PreparedStatement ps, List<Integer> ids) throws SQLException
+    {
+        for (int i = 0; i < ids.size(); i++)
+        {
+            ps.setInt(i + 1, ids.get(i));
+        }
+    }
+
+    private static String columnList()
+    {
+        StringBuilder columns = new StringBuilder("contact_id");
+        for (ContactField field : ContactField.values())
+        {
+            columns.append(", ").append(field.column());
+        }
+        return columns.toString();
+    }
+}
@@ -1,16 +1,30 @@
 package dao;
 
 import models.Contact;
+import statistics.Granularity;
 
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface ContactDao
 {
     List<Contact> getAllContacts();
+    List<Contact> getContactsPage(int afterId, int limit) throws SQLException;
+    Contact getContactById(int id);
+    void forEachContact(Consumer<Contact> consumer) throws SQLException;
     List<Contact> searchBySingleField(String field, String value);
     List<Contact> searchByMultipleFields(Map<String, String> fields);
-    void addContact(Contact contact);
-    void updateContact(Contact contact);
-    void deleteContact(int id);
+    void addContact(Contact contact) throws SQLException;
+    boolean updateContact(Contact contact) throws SQLException;
+    List<String> findUniqueConflicts(Contact contact) throws SQLException;
+    void deleteContact(int id) throws SQLException;
+    UpsertResult upsertContacts(List<Contact> contacts) throws SQLException;
+    int bulkUpdateChunk(Map<String, String> criteria, Map<String, String> changes, int afterId, int limit,
+                        List<Map<String, String>> beforeRows) throws SQLException;
+    int bulkDeleteChunk(Map<String, String> criteria, int afterId, int limit,
+                        List<Map<String, String>> deletedRows) throws SQLException;
+    Map<LocalDate, Long> countPerPeriod(String timestampColumn, Granularity granularity, LocalDate since);
 }
@@ -1,12 +1,25 @@
 package dao;
 
+import config.Config;
 import db.DatabaseConnection;
 import models.Contact;
+import models.ContactField;
+import statistics.Granularity;
 
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * JDBC-based implementation of {@link ContactDao} using {@link DatabaseConnection}.
@@ -14,7 +27,34 @@ import java.util.Map;
  */
 public class ContactDaoImplementation implements ContactDao
 {
-    private final DatabaseConnection db = new DatabaseConnection();
+    private final DatabaseConnection db;
+
+    // UPDATE statements writing only the dirty columns, one per dirty-field mask
+    private static final PartialUpdateStatements partialUpdates =
+            new PartialUpdateStatements("contacts", "contact_id=?", bit -> ContactField.values()[bit].column());
+    private static final PartialUpdateStatements versionedUpdates =
+            new PartialUpdateStatements("contacts", "contact_id=? AND updated_at=?", bit -> ContactField.values()[bit].column());
+
+    private static final String UPSERT_SQL = buildUpsertSql();
+
+    // Rows per multi-row upsert statement; read per call so it can change at runtime
+    static int upsertChunkSize()
+    {
+        return Math.max(1, Config.getInt("contacts.upsert.chunkSize", 500));
+    }
+
+    public ContactDaoImplementation()
+    {
+        this(new DatabaseConnection());
+    }
+
+    /**
+     * @param db connections to use, e.g. those of one contact shard
+     */
+    public ContactDaoImplementation(DatabaseConnection db)
+    {
+        this.db = db;
+    }
 
     @Override
     public List<Contact> getAllContacts()
@@ -25,7 +65,7 @@ public class ContactDaoImplementation implements ContactDao
 
         try
         {
-            conn = db.getConnection();
+            conn = db.getReadConnection();
             Statement stmt = conn.createStatement();
             ResultSet rs = stmt.executeQuery(query);
 
@@ -48,6 +88,104 @@ public class ContactDaoImplementation implements ContactDao
         return contacts;
     }
 
+    /**
+     * Reads the next {@code limit} contacts after {@code afterId} in {@code contact_id}
+     * order (keyset pagination: each page is a primary key range scan, however deep).
+     */
+    @Override
+    public List<Contact> getContactsPage(int afterId, int limit) throws SQLException
+    {
+        List<Contact> contacts = new ArrayList<>();
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getReadConnection();
+            PreparedStatement ps = conn.prepareStatement("SELECT * FROM contacts WHERE contact_id > ? ORDER BY contact_id LIMIT ?");
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next())
+            {
+                contacts.add(new Contact(rs));
+            }
+            rs.close();
+            ps.close();
+        }
+        finally
+        {
+            db.close(conn);
+        }
+
+        return contacts;
+    }
+
+    @Override
+    public Contact getContactById(int id)
+    {
+        Contact contact = null;
+        String query = "SELECT * FROM contacts WHERE contact_id = ?";
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement(query);
+            ps.setInt(1, id);
+            ResultSet rs = ps.executeQuery();
+
+            if (rs.next())
+            {
+                contact = new Contact(rs);
+            }
+            rs.close();
+            ps.close();
+        }
+        catch (SQLException e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            db.close(conn);
+        }
+
+        return contact;
+    }
+
+    /**
+     * Streams every contact row to the consumer without materializing the table.
+     * The default fetch size of {@link Integer#MIN_VALUE} makes MySQL Connector/J stream
+     * rows one at a time instead of buffering the whole result set. A positive
+     * {@code contacts.scan.fetchSize} fetches that many rows per round trip instead,
+     * which needs {@code useCursorFetch=true} in the JDBC URL.
+     */
+    @Override
+    public void forEachContact(Consumer<Contact> consumer) throws SQLException
+    {
+        String query = "SELECT * FROM contacts";
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getReadConnection();
+            Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(Config.getInt("contacts.scan.fetchSize", Integer.MIN_VALUE));
+            ResultSet rs = stmt.executeQuery(query);
+
+            while (rs.next())
+            {
+                consumer.accept(new Contact(rs));
+            }
+            rs.close();
+            stmt.close();
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
     @Override
     public List<Contact> searchBySingleField(String field, String value)
     {
@@ -57,7 +195,7 @@ public class ContactDaoImplementation implements ContactDao
 
         try
         {
-            conn = db.getConnection();
+            conn = db.getReadConnection();
             PreparedStatement ps = conn.prepareStatement(query);
             ps.setString(1, "%" + getValue(value) + "%");
             ResultSet rs = ps.executeQuery();
@@ -108,7 +246,7 @@ public class ContactDaoImplementation implements ContactDao
         Connection conn = null;
         try
         {
-            conn = db.getConnection();
+            conn = db.getReadConnection();
             PreparedStatement ps = conn.prepareStatement(query.toString());
             for (int j = 0; j < values.size(); j++)
             {
@@ -136,7 +274,7 @@ public class ContactDaoImplementation implements ContactDao
     }
 
     @Override
-    public void addContact(Contact contact)
+    public void addContact(Contact contact) throws SQLException
     {
         String query = "INSERT INTO contacts (first_name, middle_name, last_name, nickname, phone_primary, phone_secondary, email, linkedin_url, birth_date, created_at, updated_at) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
@@ -145,7 +283,7 @@ public class ContactDaoImplementation implements ContactDao
         try
         {
             conn = db.getConnection();
-            PreparedStatement ps = conn.prepareStatement(query);
+            PreparedStatement ps = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
             ps.setString(1, contact.getFirstName());
             ps.setString(2, contact.getMiddleName());
             ps.setString(3, contact.getLastName());
@@ -164,11 +302,62 @@ public class ContactDaoImplementation implements ContactDao
             ps.setTimestamp(11, Timestamp.valueOf(contact.getUpdatedAt()));
 
             ps.executeUpdate();
+            // Hand the generated id back so callers can keep indexes and history in sync
+            ResultSet keys = ps.getGeneratedKeys();
+            if (keys.next())
+            {
+                contact.setContactId(keys.getInt(1));
+            }
+            keys.close();
             ps.close();
+            contact.clearDirtyFields();
         }
-        catch (SQLException e)
+        finally
         {
-            e.printStackTrace();
+            db.close(conn);
+        }
+    }
+
+    /**
+     * Writes the dirty columns of a contact. A contact that was loaded from the database
+     * is only updated while the row still has the {@code updated_at} that was read
+     * (optimistic concurrency); no row lock is held between reading and writing.
+     *
+     * @return false if no row matched, i.e. the contact was changed or deleted meanwhile
+     */
+    @Override
+    public boolean updateContact(Contact contact) throws SQLException
+    {
+        int dirty = contact.getDirtyFields();
+        if (dirty == 0)
+        {
+            return true;
+        }
+        boolean versioned = contact.getVersion() != null;
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement(
+                    versioned ? versionedUpdates.sqlFor(dirty) : partialUpdates.sqlFor(dirty));
+            int index = 1;
+            for (ContactField field : ContactField.values())
+            {
+                if (contact.isDirty(field))
+                {
+                    PartialUpdateStatements.bind(ps, index++, field.get(contact), field.sqlType());
+                }
+            }
+            ps.setInt(index++, contact.getContactId());
+            if (versioned)
+            {
+                ps.setTimestamp(index, Timestamp.valueOf(contact.getVersion()));
+            }
+
+            int rows = ps.executeUpdate();
+            ps.close();
+            return rows > 0;
         }
         finally
         {
@@ -176,38 +365,272 @@ public class ContactDaoImplementation implements ContactDao
         }
     }
 
+    /**
+     * Checks the unique columns of a contact against all other contacts in one query.
+     * The read takes no locks; the unique keys still reject a value that another
+     * session takes between this check and the write.
+     *
+     * @return the columns ({@code phone_primary}, {@code email}) whose values another contact uses
+     */
     @Override
-    public void updateContact(Contact contact)
+    public List<String> findUniqueConflicts(Contact contact) throws SQLException
     {
-        String query = "UPDATE contacts SET first_name=?, middle_name=?, last_name=?, nickname=?, phone_primary=?, phone_secondary=?, email=?, linkedin_url=?, birth_date=?, updated_at=? WHERE contact_id=?";
+        List<String> conflicts = new ArrayList<>();
+        String query = "SELECT phone_primary, email FROM contacts WHERE (phone_primary = ? OR email = ?) AND contact_id <> ?";
         Connection conn = null;
 
         try
         {
             conn = db.getConnection();
             PreparedStatement ps = conn.prepareStatement(query);
-            ps.setString(1, contact.getFirstName());
-            ps.setString(2, contact.getMiddleName());
-            ps.setString(3, contact.getLastName());
-            ps.setString(4, contact.getNickname());
-            ps.setString(5, contact.getPhonePrimary());
-            ps.setString(6, contact.getPhoneSecondary());
-            ps.setString(7, contact.getEmail());
-            ps.setString(8, contact.getLinkedinUrl());
-            if (contact.getBirthDate() != null) {
-                ps.setDate(9, Date.valueOf(contact.getBirthDate()));
-            } else {
-                ps.setNull(9, Types.DATE);
+            ps.setString(1, contact.getPhonePrimary());
+            ps.setString(2, contact.getEmail());
+            ps.setInt(3, contact.getContactId());
+            ResultSet rs = ps.executeQuery();
+
+            while (rs.next())
+            {
+                if (!conflicts.contains("phone_primary") && rs.getString("phone_primary").equals(contact.getPhonePrimary()))
+                {
+                    conflicts.add("phone_primary");
+                }
+                if (!conflicts.contains("email") && rs.getString("email").equals(contact.getEmail()))
+                {
+                    conflicts.add("email");
+                }
+            }
+            rs.close();
+            ps.close();
+        }
+        finally
+        {
+            db.close(conn);
+        }
+
+        return conflicts;
+    }
+
+    @Override
+    public void deleteContact(int id) throws SQLException
+    {
+        String query = "DELETE FROM contacts WHERE contact_id=?";
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement(query);
+            ps.setInt(1, id);
+            ps.executeUpdate();
+            ps.close();
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    /**
+     * Inserts or updates contacts matched on their unique keys ({@code phone_primary},
+     * {@code email}).
+     * <p>
+     * The list is processed in chunks of {@code contacts.upsert.chunkSize} (default 500),
+     * one transaction per chunk. Each chunk costs three round trips: a locking read of the
+     * rows that own any of the chunk's keys, one batched
+     * {@code INSERT ... ON DUPLICATE KEY UPDATE} (rewritten by the driver into a multi-row
+     * statement) for the contacts that differ from their row, and a read of the ids
+     * generated for new rows. The locking read is what tells inserts, updates and
+     * no-ops apart; the statement's own affected-row counts are lost in a rewritten batch.
+     * Contacts identical to their stored row are not written at all.
+     * <p>
+     * Running the same input again changes nothing, so a sync that failed part-way
+     * (earlier chunks stay committed) can simply be repeated.
+     */
+    @Override
+    public UpsertResult upsertContacts(List<Contact> contacts) throws SQLException
+    {
+        UpsertResult result = new UpsertResult();
+        int chunkSize = upsertChunkSize();
+        List<Contact> pending = contacts;
+        while (!pending.isEmpty())
+        {
+            // A chunk never holds two contacts with the same key; later ones wait for the next chunk
+            List<Contact> chunk = new ArrayList<>();
+            List<Contact> deferred = new ArrayList<>();
+            Set<String> phones = new HashSet<>();
+            Set<String> emails = new HashSet<>();
+            for (int i = 0; i < pending.size(); i++)
+            {
+                Contact contact = pending.get(i);
+                if (chunk.size() == chunkSize)
+                {
+                    deferred.addAll(pending.subList(i, pending.size()));
+                    break;
+                }
+                if (phones.add(contact.getPhonePrimary()) & emails.add(contact.getEmail()))
+                {
+                    chunk.add(contact);
+                }
+                else
+                {
+                    deferred.add(contact);
+                }
+            }
+            upsertChunk(chunk, result);
+            pending = deferred;
+        }
+        return result;
+    }
+
+    private void upsertChunk(List<Contact> chunk, UpsertResult result) throws SQLException
+    {
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            conn.setAutoCommit(false);
+
+            Map<String, Contact> byPhone = new HashMap<>();
+            Map<String, Contact> byEmail = new HashMap<>();
+            lockExistingByKeys(conn, chunk, byPhone, byEmail);
+
+            List<Contact> toWrite = new ArrayList<>();
+            List<Contact> toInsert = new ArrayList<>();
+            List<Contact> toUpdate = new ArrayList<>();
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+            for (Contact incoming : chunk)
+            {
+                Contact byPhoneRow = byPhone.get(incoming.getPhonePrimary());
+                Contact byEmailRow = byEmail.get(incoming.getEmail());
+                if (byPhoneRow != null && byEmailRow != null && byPhoneRow.getContactId() != byEmailRow.getContactId())
+                {
+                    result.getConflicting().add(incoming);
+                    continue;
+                }
+                Contact existing = byPhoneRow != null ? byPhoneRow : byEmailRow;
+                if (existing == null)
+                {
+                    incoming.setCreatedAt(now);
+                    incoming.setUpdatedAt(now);
+                    toInsert.add(incoming);
+                }
+                else if (sameValues(existing, incoming))
+                {
+                    result.addUnchanged();
+                    continue;
+                }
+                else
+                {
+                    incoming.setContactId(existing.getContactId());
+                    incoming.setCreatedAt(existing.getCreatedAt());
+                    incoming.setUpdatedAt(existing.getUpdatedAt().isBefore(now) ? now : existing.getUpdatedAt().plusSeconds(1));
+                    toUpdate.add(incoming);
+                }
+                toWrite.add(incoming);
+            }
+
+            if (!toWrite.isEmpty())
+            {
+                PreparedStatement ps = conn.prepareStatement(UPSERT_SQL);
+                for (Contact contact : toWrite)
+                {
+                    int index = 1;
+                    for (ContactField field : ContactField.values())
+                    {
+                        PartialUpdateStatements.bind(ps, index++, field.get(contact), field.sqlType());
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                ps.close();
+            }
+            assignInsertedIds(conn, toInsert);
+
+            conn.commit();
+            for (Contact contact : toWrite)
+            {
+                contact.clearDirtyFields();
+            }
+            result.getInserted().addAll(toInsert);
+            result.getUpdated().addAll(toUpdate);
+        }
+        catch (SQLException e)
+        {
+            rollback(conn);
+            throw e;
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    /**
+     * Applies {@code changes} to the next chunk of contacts matching {@code criteria}
+     * (substring match per column, like {@link #searchByMultipleFields(Map)}), in one
+     * short transaction. Rows are taken in primary key order after {@code afterId}, so
+     * repeated calls walk the table once without re-reading finished rows.
+     * {@code updated_at} is moved forward on every changed row.
+     *
+     * @param beforeRows receives {@code contact_id} and the previous values of the changed columns per row
+     * @return the highest contact_id of the chunk, or 0 when no matching rows are left
+     */
+    @Override
+    public int bulkUpdateChunk(Map<String, String> criteria, Map<String, String> changes, int afterId, int limit,
+                               List<Map<String, String>> beforeRows) throws SQLException
+    {
+        if (changes.isEmpty())
+        {
+            throw new IllegalArgumentException("No changes given");
+        }
+        StringBuilder set = new StringBuilder();
+        for (String column : changes.keySet())
+        {
+            ContactField field = bulkColumn(column);
+            if (field == ContactField.CREATED_AT || field == ContactField.UPDATED_AT)
+            {
+                throw new IllegalArgumentException("Timestamps cannot be changed in bulk: " + column);
             }
-            ps.setTimestamp(10, Timestamp.valueOf(contact.getUpdatedAt()));
-            ps.setInt(11, contact.getContactId());
+            set.append(column).append("=?, ");
+        }
+        set.append("updated_at=GREATEST(CURRENT_TIMESTAMP, updated_at + INTERVAL 1 SECOND)");
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            conn.setAutoCommit(false);
 
+            List<Map<String, String>> rows = lockChunk(conn, criteria, afterId, limit, changes.keySet());
+            if (rows.isEmpty())
+            {
+                conn.commit();
+                return 0;
+            }
+
+            PreparedStatement ps = conn.prepareStatement("UPDATE contacts SET " + set + " WHERE contact_id IN (" +
+                    String.join(", ", Collections.nCopies(rows.size(), "?")) + ")");
+            int index = 1;
+            for (Map.Entry<String, String> change : changes.entrySet())
+            {
+                bindText(ps, index++, ContactField.fromColumn(change.getKey()), change.getValue());
+            }
+            for (Map<String, String> row : rows)
+            {
+                ps.setInt(index++, Integer.parseInt(row.get("contact_id")));
+            }
             ps.executeUpdate();
             ps.close();
+
+            conn.commit();
+            beforeRows.addAll(rows);
+            return Integer.parseInt(rows.get(rows.size() - 1).get("contact_id"));
         }
         catch (SQLException e)
         {
-            e.printStackTrace();
+            rollback(conn);
+            throw e;
         }
         finally
         {
@@ -215,19 +638,322 @@ public class ContactDaoImplementation implements ContactDao
         }
     }
 
+    /**
+     * Deletes the next chunk of contacts matching {@code criteria} in one short
+     * transaction; see {@link #bulkUpdateChunk} for how chunks are chosen.
+     *
+     * @param deletedRows receives the full column snapshot of every deleted row
+     * @return the highest contact_id of the chunk, or 0 when no matching rows are left
+     */
     @Override
-    public void deleteContact(int id)
+    public int bulkDeleteChunk(Map<String, String> criteria, int afterId, int limit,
+                               List<Map<String, String>> deletedRows) throws SQLException
     {
-        String query = "DELETE FROM contacts WHERE contact_id=?";
         Connection conn = null;
 
         try
         {
             conn = db.getConnection();
-            PreparedStatement ps = conn.prepareStatement(query);
-            ps.setInt(1, id);
+            conn.setAutoCommit(false);
+
+            List<String> allColumns = new ArrayList<>();
+            for (ContactField field : ContactField.values())
+            {
+                allColumns.add(field.column());
+            }
+            List<Map<String, String>> rows = lockChunk(conn, criteria, afterId, limit, allColumns);
+            if (rows.isEmpty())
+            {
+                conn.commit();
+                return 0;
+            }
+
+            PreparedStatement ps = conn.prepareStatement("DELETE FROM contacts WHERE contact_id IN (" +
+                    String.join(", ", Collections.nCopies(rows.size(), "?")) + ")");
+            for (int i = 0; i < rows.size(); i++)
+            {
+                ps.setInt(i + 1, Integer.parseInt(rows.get(i).get("contact_id")));
+            }
             ps.executeUpdate();
             ps.close();
+
+            conn.commit();
+            deletedRows.addAll(rows);
+            return Integer.parseInt(rows.get(rows.size() - 1).get("contact_id"));
+        }
+        catch (SQLException e)
+        {
+            rollback(conn);
+            throw e;
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    /**
+     * Reads, without locking, the ids of the next contacts matching {@code criteria}
+     * after {@code afterId} in primary key order. Used to agree on a chunk boundary
+     * before {@link #bulkUpdateChunk} or {@link #bulkDeleteChunk} run on several shards.
+     */
+    List<Integer> matchingIds(Map<String, String> criteria, int afterId, int limit) throws SQLException
+    {
+        if (criteria.isEmpty())
+        {
+            throw new IllegalArgumentException("Bulk operations need at least one criterion");
+        }
+        StringBuilder query = new StringBuilder("SELECT contact_id FROM contacts WHERE contact_id > ?");
+        for (String column : criteria.keySet())
+        {
+            bulkColumn(column);
+            query.append(" AND ").append(column).append(" LIKE ?");
+        }
+        query.append(" ORDER BY contact_id LIMIT ?");
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement(query.toString());
+            int index = 1;
+            ps.setInt(index++, afterId);
+            for (String value : criteria.values())
+            {
+                ps.setString(index++, "%" + value + "%");
+            }
+            ps.setInt(index, limit);
+
+            List<Integer> ids = new ArrayList<>();
+            ResultSet rs = ps.executeQuery();
+            while (rs.next())
+            {
+                ids.add(rs.getInt(1));
+            }
+            rs.close();
+            ps.close();
+            return ids;
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    // Reads and locks the next matching rows by primary key, returning contact_id plus the requested columns as text
+    private List<Map<String, String>> lockChunk(Connection conn, Map<String, String> criteria, int afterId, int limit,
+                                                Iterable<String> columns) throws SQLException
+    {
+        if (criteria.isEmpty())
+        {
+            throw new IllegalArgumentException("Bulk operations need at least one criterion");
+        }
+        StringBuilder query = new StringBuilder("SELECT contact_id");
+        for (String column : columns)
+        {
+            query.append(", ").append(column);
+        }
+        query.append(" FROM contacts WHERE contact_id > ?");
+        for (String column : criteria.keySet())
+        {
+            bulkColumn(column);
+            query.append(" AND ").append(column).append(" LIKE ?");
+        }
+        query.append(" ORDER BY contact_id LIMIT ? FOR UPDATE");
+
+        PreparedStatement ps = conn.prepareStatement(query.toString());
+        int index = 1;
+        ps.setInt(index++, afterId);
+        for (String value : criteria.values())
+        {
+            ps.setString(index++, "%" + value + "%");
+        }
+        ps.setInt(index, limit);
+
+        List<Map<String, String>> rows = new ArrayList<>();
+        ResultSet rs = ps.executeQuery();
+        while (rs.next())
+        {
+            Map<String, String> row = new LinkedHashMap<>();
+            row.put("contact_id", String.valueOf(rs.getInt("contact_id")));
+            for (String column : columns)
+            {
+                ContactField field = ContactField.fromColumn(column);
+                Object value = switch (field.sqlType())
+                {
+                    case Types.DATE -> rs.getDate(column) == null ? null : rs.getDate(column).toLocalDate();
+                    case Types.TIMESTAMP -> rs.getTimestamp(column) == null ? null : rs.getTimestamp(column).toLocalDateTime();
+                    default -> rs.getString(column);
+                };
+                row.put(column, value == null ? null : value.toString());
+            }
+            rows.add(row);
+        }
+        rs.close();
+        ps.close();
+        return rows;
+    }
+
+    // Column names end up in SQL text, so only known contact columns are accepted
+    private static ContactField bulkColumn(String column)
+    {
+        ContactField field = ContactField.fromColumn(column);
+        if (field == null)
+        {
+            throw new IllegalArgumentException("Unknown contact column: " + column);
+        }
+        return field;
+    }
+
+    private static void bindText(PreparedStatement ps, int index, ContactField field, String value) throws SQLException
+    {
+        Object typed = value;
+        if (value != null && field.sqlType() == Types.DATE)
+        {
+            typed = LocalDate.parse(value);
+        }
+        PartialUpdateStatements.bind(ps, index, typed, field.sqlType());
+    }
+
+    // One locking read for all rows that own any phone or email of the chunk
+    private void lockExistingByKeys(Connection conn, List<Contact> chunk, Map<String, Contact> byPhone,
+                                    Map<String, Contact> byEmail) throws SQLException
+    {
+        String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+        PreparedStatement ps = conn.prepareStatement("SELECT * FROM contacts WHERE phone_primary IN (" + placeholders +
+                ") OR email IN (" + placeholders + ") FOR UPDATE");
+        for (int i = 0; i < chunk.size(); i++)
+        {
+            ps.setString(i + 1, chunk.get(i).getPhonePrimary());
+            ps.setString(chunk.size() + i + 1, chunk.get(i).getEmail());
+        }
+        ResultSet rs = ps.executeQuery();
+        while (rs.next())
+        {
+            Contact existing = new Contact(rs);
+            byPhone.put(existing.getPhonePrimary(), existing);
+            byEmail.put(existing.getEmail(), existing);
+        }
+        rs.close();
+        ps.close();
+    }
+
+    // Generated keys are unreliable for a rewritten ON DUPLICATE KEY batch, so look them up by phone
+    private void assignInsertedIds(Connection conn, List<Contact> inserted) throws SQLException
+    {
+        if (inserted.isEmpty())
+        {
+            return;
+        }
+        Map<String, Contact> byPhone = new HashMap<>();
+        for (Contact contact : inserted)
+        {
+            byPhone.put(contact.getPhonePrimary(), contact);
+        }
+        PreparedStatement ps = conn.prepareStatement("SELECT contact_id, phone_primary FROM contacts WHERE phone_primary IN (" +
+                String.join(", ", Collections.nCopies(byPhone.size(), "?")) + ")");
+        int index = 1;
+        for (String phone : byPhone.keySet())
+        {
+            ps.setString(index++, phone);
+        }
+        ResultSet rs = ps.executeQuery();
+        while (rs.next())
+        {
+            byPhone.get(rs.getString("phone_primary")).setContactId(rs.getInt("contact_id"));
+        }
+        rs.close();
+        ps.close();
+    }
+
+    // Compares the synchronized columns; the timestamps are bookkeeping and not part of the data
+    private static boolean sameValues(Contact existing, Contact incoming)
+    {
+        for (ContactField field : ContactField.values())
+        {
+            if (field != ContactField.CREATED_AT && field != ContactField.UPDATED_AT
+                    && !Objects.equals(field.get(existing), field.get(incoming)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Uses the row alias (MySQL 8.0.19+) instead of VALUES(col), which 8.0.20 deprecated
+    // and warns about on every statement; Connector/J still rewrites it into one multi-row insert
+    private static String buildUpsertSql()
+    {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder updates = new StringBuilder();
+        for (ContactField field : ContactField.values())
+        {
+            if (columns.length() > 0)
+            {
+                columns.append(", ");
+            }
+            columns.append(field.column());
+            if (field != ContactField.CREATED_AT)
+            {
+                if (updates.length() > 0)
+                {
+                    updates.append(", ");
+                }
+                updates.append(field.column()).append("=new.").append(field.column());
+            }
+        }
+        return "INSERT INTO contacts (" + columns + ") VALUES (" +
+                String.join(", ", Collections.nCopies(ContactField.values().length, "?")) +
+                ") AS new ON DUPLICATE KEY UPDATE " + updates;
+    }
+
+    private static void rollback(Connection conn)
+    {
+        if (conn != null)
+        {
+            try
+            {
+                conn.rollback();
+            }
+            catch (SQLException e)
+            {
+                System.out.println("Error rolling back: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Counts contacts per time bucket of {@code created_at} or {@code updated_at}.
+     * The range predicate on the raw column lets MySQL use the timestamp index,
+     * and only buckets that contain rows are returned, oldest first.
+     */
+    @Override
+    public Map<LocalDate, Long> countPerPeriod(String timestampColumn, Granularity granularity, LocalDate since)
+    {
+        if (!timestampColumn.equals("created_at") && !timestampColumn.equals("updated_at"))
+        {
+            throw new IllegalArgumentException("Cannot bucket by column: " + timestampColumn);
+        }
+
+        Map<LocalDate, Long> counts = new LinkedHashMap<>();
+        String bucket = granularity.bucketExpression(timestampColumn);
+        String query = "SELECT " + bucket + " AS bucket, COUNT(*) AS total FROM contacts " +
+                "WHERE " + timestampColumn + " >= ? GROUP BY bucket ORDER BY bucket";
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getReadConnection();
+            PreparedStatement ps = conn.prepareStatement(query);
+            ps.setTimestamp(1, Timestamp.valueOf(since.atStartOfDay()));
+            ResultSet rs = ps.executeQuery();
+
+            while (rs.next())
+            {
+                counts.put(rs.getDate("bucket").toLocalDate(), rs.getLong("total"));
+            }
+            rs.close();
+            ps.close();
         }
         catch (SQLException e)
         {
@@ -237,5 +963,7 @@ public class ContactDaoImplementation implements ContactDao
         {
             db.close(conn);
         }
+
+        return counts;
     }
-}
\ No newline at end of file
+}
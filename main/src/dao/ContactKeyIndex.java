@@ -0,0 +1,336 @@
+package dao;
+
+import db.DatabaseConnection;
+import models.Contact;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Global index of the unique contact keys ({@code phone_primary}, {@code email}) in the
+ * {@code contact_keys} table of the primary database, the only place that sees the keys
+ * of every shard.
+ * <p>
+ * A write first reserves the keys it is about to store under a negative reservation
+ * token with {@code INSERT IGNORE}; a key that ends up owned by anybody else is a
+ * conflict. After the shard write the reservations are handed to the contact's id
+ * ({@link #assign}), and whatever is still held by the token is dropped ({@link #release}).
+ */
+class ContactKeyIndex
+{
+    static final String PHONE = "phone";
+    static final String EMAIL = "email";
+
+    private final DatabaseConnection db = new DatabaseConnection();
+
+    /**
+     * @return owner contact id per key ({@code "phone:<value>"}, {@code "email:<value>"}) of the given contacts;
+     *         negative owners are keys reserved by a write in progress
+     */
+    Map<String, Integer> owners(Collection<Contact> contacts) throws SQLException
+    {
+        Map<String, Integer> owners = new HashMap<>();
+        if (contacts.isEmpty())
+        {
+            return owners;
+        }
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement("SELECT key_type, key_value, contact_id FROM contact_keys " +
+                    "WHERE (key_type='" + PHONE + "' AND key_value IN (" + placeholders(contacts.size()) + ")) " +
+                    "OR (key_type='" + EMAIL + "' AND key_value IN (" + placeholders(contacts.size()) + "))");
+            int index = 1;
+            for (Contact contact : contacts)
+            {
+                ps.setString(index++, contact.getPhonePrimary());
+            }
+            for (Contact contact : contacts)
+            {
+                ps.setString(index++, contact.getEmail());
+            }
+            ResultSet rs = ps.executeQuery();
+            while (rs.next())
+            {
+                owners.put(rs.getString(1) + ":" + rs.getString(2), rs.getInt(3));
+            }
+            rs.close();
+            ps.close();
+            return owners;
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    /**
+     * Reserves the phone and email of every contact under {@code token}. A contact whose
+     * {@code contactId} is set may keep keys it already owns.
+     *
+     * @return the contacts whose keys are now held by the token or by the contact itself
+     */
+    List<Contact> reserve(List<Contact> contacts, int token) throws SQLException
+    {
+        if (contacts.isEmpty())
+        {
+            return contacts;
+        }
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement(
+                    "INSERT IGNORE INTO contact_keys (key_type, key_value, contact_id) VALUES (?, ?, ?)");
+            for (Contact contact : contacts)
+            {
+                addKey(ps, PHONE, contact.getPhonePrimary(), token);
+                addKey(ps, EMAIL, contact.getEmail(), token);
+            }
+            ps.executeBatch();
+            ps.close();
+        }
+        finally
+        {
+            db.close(conn);
+        }
+
+        Map<String, Integer> owners = owners(contacts);
+        List<Contact> reserved = new ArrayList<>();
+        for (Contact contact : contacts)
+        {
+            if (ownedBy(owners.get(PHONE + ":" + contact.getPhonePrimary()), contact, token)
+                    && ownedBy(owners.get(EMAIL + ":" + contact.getEmail()), contact, token))
+            {
+                reserved.add(contact);
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * Hands the keys reserved under {@code token} to the ids the contacts were stored with.
+     */
+    void assign(Collection<Contact> contacts, int token) throws SQLException
+    {
+        if (contacts.isEmpty())
+        {
+            return;
+        }
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE contact_keys SET contact_id=? WHERE key_type=? AND key_value=? AND contact_id=?");
+            for (Contact contact : contacts)
+            {
+                addAssignment(ps, contact.getContactId(), PHONE, contact.getPhonePrimary(), token);
+                addAssignment(ps, contact.getContactId(), EMAIL, contact.getEmail(), token);
+            }
+            ps.executeBatch();
+            ps.close();
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    /**
+     * Drops the keys the contacts owned before their phone or email changed.
+     */
+    void dropStale(Collection<Contact> contacts) throws SQLException
+    {
+        if (contacts.isEmpty())
+        {
+            return;
+        }
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement("DELETE FROM contact_keys WHERE contact_id=? AND " +
+                    "((key_type='" + PHONE + "' AND key_value<>?) OR (key_type='" + EMAIL + "' AND key_value<>?))");
+            for (Contact contact : contacts)
+            {
+                ps.setInt(1, contact.getContactId());
+                ps.setString(2, contact.getPhonePrimary());
+                ps.setString(3, contact.getEmail());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            ps.close();
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    /**
+     * Drops every key still reserved under {@code token}.
+     */
+    void release(int token) throws SQLException
+    {
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement("DELETE FROM contact_keys WHERE contact_id=?");
+            ps.setInt(1, token);
+            ps.executeUpdate();
+            ps.close();
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    /**
+     * Drops the keys of deleted contacts.
+     */
+    void remove(Collection<Integer> ids) throws SQLException
+    {
+        if (ids.isEmpty())
+        {
+            return;
+        }
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement("DELETE FROM contact_keys WHERE contact_id IN (" +
+                    placeholders(ids.size()) + ")");
+            int index = 1;
+            for (int id : ids)
+            {
+                ps.setInt(index++, id);
+            }
+            ps.executeUpdate();
+            ps.close();
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    /**
+     * @return the unique columns whose value already belongs to another contact
+     */
+    List<String> conflicts(Contact contact) throws SQLException
+    {
+        Map<String, Integer> owners = owners(List.of(contact));
+        List<String> conflicts = new ArrayList<>();
+        Integer phoneOwner = owners.get(PHONE + ":" + contact.getPhonePrimary());
+        if (phoneOwner != null && phoneOwner != contact.getContactId())
+        {
+            conflicts.add("phone_primary");
+        }
+        Integer emailOwner = owners.get(EMAIL + ":" + contact.getEmail());
+        if (emailOwner != null && emailOwner != contact.getContactId())
+        {
+            conflicts.add("email");
+        }
+        return conflicts;
+    }
+
+    /**
+     * @return true if the index holds no keys at all
+     */
+    boolean isEmpty() throws SQLException
+    {
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            Statement stmt = conn.createStatement();
+            ResultSet rs = stmt.executeQuery("SELECT 1 FROM contact_keys LIMIT 1");
+            boolean empty = !rs.next();
+            rs.close();
+            stmt.close();
+            return empty;
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    /**
+     * Adds the keys of contacts that are already stored, e.g. when the index is first built.
+     */
+    void addStored(Collection<Contact> contacts) throws SQLException
+    {
+        if (contacts.isEmpty())
+        {
+            return;
+        }
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement(
+                    "INSERT IGNORE INTO contact_keys (key_type, key_value, contact_id) VALUES (?, ?, ?)");
+            for (Contact contact : contacts)
+            {
+                addKey(ps, PHONE, contact.getPhonePrimary(), contact.getContactId());
+                addKey(ps, EMAIL, contact.getEmail(), contact.getContactId());
+            }
+            ps.executeBatch();
+            ps.close();
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    private static boolean ownedBy(Integer owner, Contact contact, int token)
+    {
+        return owner != null && (owner == token || (contact.getContactId() > 0 && owner == contact.getContactId()));
+    }
+
+    private static void addKey(PreparedStatement ps, String type, String value, int owner) throws SQLException
+    {
+        ps.setString(1, type);
+        ps.setString(2, value);
+        ps.setInt(3, owner);
+        ps.addBatch();
+    }
+
+    private static void addAssignment(PreparedStatement ps, int contactId, String type, String value, int token)
+            throws SQLException
+    {
+        ps.setInt(1, contactId);
+        ps.setString(2, type);
+        ps.setString(3, value);
+        ps.setInt(4, token);
+        ps.addBatch();
+    }
+
+    private static String placeholders(int count)
+    {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,93 @@
+package dao;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Builds {@code UPDATE} statements that set only the columns named by a dirty-field
+ * bit mask, and caches the SQL text per mask.
+ * <p>
+ * A table with N tracked fields has at most 2^N distinct statements, and in practice
+ * only a handful of masks occur (single-field edits), so the cache stays small. The
+ * stable SQL text per mask also lets the driver's prepared statement cache
+ * ({@code cachePrepStmts}) reuse the parsed statement.
+ */
+class PartialUpdateStatements
+{
+    private final String table;
+    private final String whereClause;
+    private final IntFunction<String> columnOfBit;
+    private final Map<Integer, String> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param table       table to update
+     * @param whereClause condition appended after {@code WHERE}, with its own placeholders
+     * @param columnOfBit column name for a bit index (field ordinal)
+     */
+    PartialUpdateStatements(String table, String whereClause, IntFunction<String> columnOfBit)
+    {
+        this.table = table;
+        this.whereClause = whereClause;
+        this.columnOfBit = columnOfBit;
+    }
+
+    /**
+     * @param dirtyMask non-zero bit mask of the fields to write
+     * @return {@code UPDATE table SET col=?, ... WHERE ...} with the columns in bit order
+     */
+    String sqlFor(int dirtyMask)
+    {
+        if (dirtyMask == 0)
+        {
+            throw new IllegalArgumentException("No dirty fields to update");
+        }
+        return cache.computeIfAbsent(dirtyMask, mask ->
+        {
+            StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+            int bits = mask;
+            boolean first = true;
+            while (bits != 0)
+            {
+                int bit = Integer.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (!first)
+                {
+                    sql.append(", ");
+                }
+                sql.append(columnOfBit.apply(bit)).append("=?");
+                first = false;
+            }
+            return sql.append(" WHERE ").append(whereClause).toString();
+        });
+    }
+
+    /**
+     * Binds one value by its Java type; null values are bound as SQL NULL of the given type.
+     */
+    static void bind(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException
+    {
+        if (value == null)
+        {
+            ps.setNull(index, sqlType);
+        }
+        else if (value instanceof LocalDate date)
+        {
+            ps.setDate(index, Date.valueOf(date));
+        }
+        else if (value instanceof LocalDateTime dateTime)
+        {
+            ps.setTimestamp(index, Timestamp.valueOf(dateTime));
+        }
+        else
+        {
+            ps.setString(index, value.toString());
+        }
+    }
+}
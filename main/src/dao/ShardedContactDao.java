@@ -0,0 +1,611 @@
+package dao;
+
+import config.Config;
+import db.DatabaseConnection;
+import models.Contact;
+import models.ContactField;
+import statistics.Granularity;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@link ContactDao} that spreads contacts over several databases ("shards"), each
+ * with its own {@code contacts} table, listed as comma-separated JDBC URLs in
+ * {@code db.shards}.
+ * <p>
+ * A new contact is placed on the shard picked by the hash of its primary phone.
+ * Ids stay globally unique without a central counter: shard {@code k} of {@code n}
+ * hands out {@code AUTO_INCREMENT} ids {@code k+1, k+1+n, k+1+2n, ...} (set per
+ * connection through {@code sessionVariables}), so every later lookup by id goes
+ * straight to shard {@code (id - 1) mod n}.
+ * <p>
+ * Listing, searches and statistics query all shards in parallel and merge the rows
+ * by {@code contact_id}. Bulk operations first agree on a common id boundary so
+ * that each chunk covers the same id range on every shard. The unique phone and
+ * email constraints only hold per shard, so they are enforced globally through
+ * {@link ContactKeyIndex}.
+ * <p>
+ * Shards are expected to start empty, or to hold only ids that map to them. The
+ * undo journal and the archiver write the primary's {@code contacts} table, which
+ * this DAO never reads, so {@link services.UndoService} refuses contact undo and
+ * redo and {@link services.ContactArchiver} refuses to archive while sharding is on.
+ */
+public class ShardedContactDao implements ContactDao
+{
+    private static final String SHARD_URLS = Config.get("db.shards", "");
+
+    private static ShardedContactDao shared;
+
+    private final List<ContactDaoImplementation> shards = new ArrayList<>();
+    private final List<DatabaseConnection> connections = new ArrayList<>();
+    private final ContactKeyIndex keys = new ContactKeyIndex();
+    private final ExecutorService executor;
+
+    /**
+     * @return true if {@code db.shards} lists any shard
+     */
+    public static boolean isEnabled()
+    {
+        return !SHARD_URLS.isEmpty();
+    }
+
+    /**
+     * @return the router over the shards in {@code db.shards}; on first use the global
+     *         key index is filled from the shards if it is still empty
+     */
+    public static synchronized ShardedContactDao shared()
+    {
+        if (shared == null)
+        {
+            List<String> urls = new ArrayList<>();
+            for (String url : SHARD_URLS.split(","))
+            {
+                if (!url.isBlank())
+                {
+                    urls.add(url.trim());
+                }
+            }
+            shared = new ShardedContactDao(urls);
+            try
+            {
+                if (shared.keys.isEmpty())
+                {
+                    shared.rebuildKeyIndex();
+                }
+            }
+            catch (SQLException e)
+            {
+                e.printStackTrace();
+            }
+        }
+        return shared;
+    }
+
+    private ShardedContactDao(List<String> urls)
+    {
+        if (urls.isEmpty())
+        {
+            throw new IllegalArgumentException("No contact shards configured");
+        }
+        for (int i = 0; i < urls.size(); i++)
+        {
+            DatabaseConnection connection = DatabaseConnection.forShard(withIdSpacing(urls.get(i), i, urls.size()));
+            connections.add(connection);
+            shards.add(new ContactDaoImplementation(connection));
+        }
+        executor = Executors.newFixedThreadPool(urls.size(), r ->
+        {
+            Thread t = new Thread(r, "contact-shard");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Stops the shard worker threads after the running scatter calls finish.
+     * The shard pools are closed with the other pools by {@link DatabaseConnection#shutdown(long)}.
+     *
+     * @return true if the workers finished in time
+     */
+    public boolean close(long timeoutMillis) throws InterruptedException
+    {
+        executor.shutdown();
+        return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return connections to every shard, in shard order
+     */
+    public List<DatabaseConnection> getShardConnections()
+    {
+        return Collections.unmodifiableList(connections);
+    }
+
+    @Override
+    public List<Contact> getAllContacts()
+    {
+        try
+        {
+            return mergeById(scatter(i -> shards.get(i).getAllContacts()));
+        }
+        catch (SQLException e)
+        {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Every shard returns its first {@code limit} contacts after {@code afterId}; the
+     * merged page is the first {@code limit} of those.
+     */
+    @Override
+    public List<Contact> getContactsPage(int afterId, int limit) throws SQLException
+    {
+        List<Contact> merged = mergeById(scatter(i -> shards.get(i).getContactsPage(afterId, limit)));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    @Override
+    public Contact getContactById(int id)
+    {
+        return id > 0 ? shards.get(shardOf(id)).getContactById(id) : null;
+    }
+
+    @Override
+    public void forEachContact(Consumer<Contact> consumer) throws SQLException
+    {
+        // One shard after the other; consumers are not expected to be thread-safe
+        for (ContactDaoImplementation shard : shards)
+        {
+            shard.forEachContact(consumer);
+        }
+    }
+
+    @Override
+    public List<Contact> searchBySingleField(String field, String value)
+    {
+        try
+        {
+            return mergeById(scatter(i -> shards.get(i).searchBySingleField(field, value)));
+        }
+        catch (SQLException e)
+        {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<Contact> searchByMultipleFields(Map<String, String> fields)
+    {
+        try
+        {
+            return mergeById(scatter(i -> shards.get(i).searchByMultipleFields(fields)));
+        }
+        catch (SQLException e)
+        {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Reserves the contact's phone and email in the global key index, then inserts it
+     * on the shard chosen by its phone.
+     *
+     * @throws IllegalStateException if the phone or email already belongs to another contact
+     */
+    @Override
+    public void addContact(Contact contact) throws SQLException
+    {
+        int token = newToken();
+        try
+        {
+            if (keys.reserve(List.of(contact), token).isEmpty())
+            {
+                throw new IllegalStateException("Phone or email already belongs to another contact");
+            }
+            shards.get(placementOf(contact)).addContact(contact);
+            assignKeys(contact, token);
+        }
+        finally
+        {
+            release(token);
+        }
+    }
+
+    @Override
+    public boolean updateContact(Contact contact) throws SQLException
+    {
+        ContactDaoImplementation shard = shards.get(shardOf(contact.getContactId()));
+        if (!contact.isDirty(ContactField.PHONE_PRIMARY) && !contact.isDirty(ContactField.EMAIL))
+        {
+            return shard.updateContact(contact);
+        }
+
+        int token = newToken();
+        try
+        {
+            if (keys.reserve(List.of(contact), token).isEmpty())
+            {
+                throw new SQLIntegrityConstraintViolationException("Phone or email already belongs to another contact");
+            }
+            boolean written = shard.updateContact(contact);
+            if (written)
+            {
+                keys.assign(List.of(contact), token);
+                keys.dropStale(List.of(contact));
+            }
+            return written;
+        }
+        finally
+        {
+            release(token);
+        }
+    }
+
+    @Override
+    public List<String> findUniqueConflicts(Contact contact) throws SQLException
+    {
+        return keys.conflicts(contact);
+    }
+
+    @Override
+    public void deleteContact(int id) throws SQLException
+    {
+        shards.get(shardOf(id)).deleteContact(id);
+        try
+        {
+            keys.remove(List.of(id));
+        }
+        catch (SQLException e)
+        {
+            // The row is gone either way; a stale key only keeps its phone and email taken
+            System.out.println("Error removing contact keys: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Upserts in rounds without repeated keys, like {@link ContactDaoImplementation#upsertContacts(List)}.
+     * Each round resolves existing contacts through the global key index, reserves the
+     * keys of the rest and upserts every shard's share in parallel.
+     */
+    @Override
+    public UpsertResult upsertContacts(List<Contact> contacts) throws SQLException
+    {
+        UpsertResult result = new UpsertResult();
+        int chunkSize = ContactDaoImplementation.upsertChunkSize();
+        List<Contact> pending = contacts;
+        while (!pending.isEmpty())
+        {
+            List<Contact> round = new ArrayList<>();
+            List<Contact> deferred = new ArrayList<>();
+            Set<String> phones = new HashSet<>();
+            Set<String> emails = new HashSet<>();
+            for (Contact contact : pending)
+            {
+                if (round.size() < chunkSize
+                        && phones.add(contact.getPhonePrimary()) & emails.add(contact.getEmail()))
+                {
+                    round.add(contact);
+                }
+                else
+                {
+                    deferred.add(contact);
+                }
+            }
+            upsertRound(round, result);
+            pending = deferred;
+        }
+        return result;
+    }
+
+    private void upsertRound(List<Contact> round, UpsertResult result) throws SQLException
+    {
+        Map<String, Integer> owners = keys.owners(round);
+        List<Contact> candidates = new ArrayList<>();
+        for (Contact contact : round)
+        {
+            Integer phoneOwner = owners.get(ContactKeyIndex.PHONE + ":" + contact.getPhonePrimary());
+            Integer emailOwner = owners.get(ContactKeyIndex.EMAIL + ":" + contact.getEmail());
+            if ((phoneOwner != null && phoneOwner < 0) || (emailOwner != null && emailOwner < 0)
+                    || (phoneOwner != null && emailOwner != null && !phoneOwner.equals(emailOwner)))
+            {
+                result.getConflicting().add(contact);
+                continue;
+            }
+            Integer existing = phoneOwner != null ? phoneOwner : emailOwner;
+            if (existing != null)
+            {
+                contact.setContactId(existing);
+            }
+            candidates.add(contact);
+        }
+
+        int token = newToken();
+        try
+        {
+            Set<Contact> reserved = Collections.newSetFromMap(new IdentityHashMap<>());
+            reserved.addAll(keys.reserve(candidates, token));
+            List<List<Contact>> byShard = new ArrayList<>();
+            for (int i = 0; i < shards.size(); i++)
+            {
+                byShard.add(new ArrayList<>());
+            }
+            for (Contact contact : candidates)
+            {
+                if (!reserved.contains(contact))
+                {
+                    result.getConflicting().add(contact);
+                    continue;
+                }
+                int shard = contact.getContactId() > 0 ? shardOf(contact.getContactId()) : placementOf(contact);
+                byShard.get(shard).add(contact);
+            }
+
+            List<UpsertResult> parts = scatter(i -> shards.get(i).upsertContacts(byShard.get(i)));
+            List<Contact> written = new ArrayList<>();
+            List<Contact> updated = new ArrayList<>();
+            for (UpsertResult part : parts)
+            {
+                result.addAll(part);
+                written.addAll(part.getInserted());
+                written.addAll(part.getUpdated());
+                updated.addAll(part.getUpdated());
+            }
+            keys.assign(written, token);
+            keys.dropStale(updated);
+        }
+        finally
+        {
+            release(token);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the changes touch the unique columns, which
+     *                                  cannot be kept consistent across shards in bulk
+     */
+    @Override
+    public int bulkUpdateChunk(Map<String, String> criteria, Map<String, String> changes, int afterId, int limit,
+                               List<Map<String, String>> beforeRows) throws SQLException
+    {
+        if (changes.containsKey(ContactField.PHONE_PRIMARY.column()) || changes.containsKey(ContactField.EMAIL.column()))
+        {
+            throw new IllegalArgumentException("Phone and email cannot be changed in bulk on sharded contacts");
+        }
+        List<Map<String, String>> rows = bulkChunk(criteria, afterId, limit,
+                (shard, count, out) -> shards.get(shard).bulkUpdateChunk(criteria, changes, afterId, count, out));
+        beforeRows.addAll(rows);
+        return rows.isEmpty() ? 0 : Integer.parseInt(rows.get(rows.size() - 1).get("contact_id"));
+    }
+
+    @Override
+    public int bulkDeleteChunk(Map<String, String> criteria, int afterId, int limit,
+                               List<Map<String, String>> deletedRows) throws SQLException
+    {
+        List<Map<String, String>> rows = bulkChunk(criteria, afterId, limit,
+                (shard, count, out) -> shards.get(shard).bulkDeleteChunk(criteria, afterId, count, out));
+        List<Integer> ids = new ArrayList<>();
+        for (Map<String, String> row : rows)
+        {
+            ids.add(Integer.parseInt(row.get("contact_id")));
+        }
+        keys.remove(ids);
+        deletedRows.addAll(rows);
+        return ids.isEmpty() ? 0 : ids.get(ids.size() - 1);
+    }
+
+    @Override
+    public Map<LocalDate, Long> countPerPeriod(String timestampColumn, Granularity granularity, LocalDate since)
+    {
+        Map<LocalDate, Long> counts = new TreeMap<>();
+        try
+        {
+            for (Map<LocalDate, Long> part : scatter(i -> shards.get(i).countPerPeriod(timestampColumn, granularity, since)))
+            {
+                part.forEach((bucket, count) -> counts.merge(bucket, count, Long::sum));
+            }
+        }
+        catch (SQLException e)
+        {
+            e.printStackTrace();
+        }
+        return counts;
+    }
+
+    /**
+     * Adds the phone and email of every stored contact to the global key index. Needed
+     * once when shards that already hold contacts are put behind this router.
+     */
+    public void rebuildKeyIndex() throws SQLException
+    {
+        for (ContactDaoImplementation shard : shards)
+        {
+            keys.addStored(shard.getAllContacts());
+        }
+    }
+
+    // Runs one step of a bulk operation on the same id range of every shard
+    private interface ChunkCall
+    {
+        int run(int shard, int count, List<Map<String, String>> rows) throws SQLException;
+    }
+
+    /**
+     * The chunk covers the first {@code limit} matching ids after {@code afterId} over all
+     * shards; every shard then processes exactly its own ids up to that boundary.
+     */
+    private List<Map<String, String>> bulkChunk(Map<String, String> criteria, int afterId, int limit, ChunkCall call)
+            throws SQLException
+    {
+        List<List<Integer>> candidates = scatter(i -> shards.get(i).matchingIds(criteria, afterId, limit));
+        List<Integer> all = new ArrayList<>();
+        candidates.forEach(all::addAll);
+        if (all.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+        Collections.sort(all);
+        int boundary = all.size() > limit ? all.get(limit - 1) : Integer.MAX_VALUE;
+
+        List<List<Map<String, String>>> parts = scatter(i ->
+        {
+            int count = 0;
+            for (int id : candidates.get(i))
+            {
+                if (id <= boundary)
+                {
+                    count++;
+                }
+            }
+            List<Map<String, String>> rows = new ArrayList<>();
+            if (count > 0)
+            {
+                call.run(i, count, rows);
+            }
+            return rows;
+        });
+        List<Map<String, String>> rows = new ArrayList<>();
+        parts.forEach(rows::addAll);
+        rows.sort(Comparator.comparingInt(row -> Integer.parseInt(row.get("contact_id"))));
+        return rows;
+    }
+
+    // Work for one shard, identified by its index
+    private interface ShardCall<T>
+    {
+        T run(int shard) throws SQLException;
+    }
+
+    /**
+     * Runs the call on every shard in parallel and waits for all of them.
+     *
+     * @return the results in shard order
+     * @throws SQLException the first shard failure, once every shard has finished
+     */
+    private <T> List<T> scatter(ShardCall<T> call) throws SQLException
+    {
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++)
+        {
+            int shard = i;
+            futures.add(executor.submit(() -> call.run(shard)));
+        }
+
+        List<T> results = new ArrayList<>();
+        SQLException failure = null;
+        RuntimeException unexpected = null;
+        for (Future<T> future : futures)
+        {
+            try
+            {
+                results.add(future.get());
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof SQLException sqlException)
+                {
+                    failure = failure == null ? sqlException : failure;
+                }
+                else if (e.getCause() instanceof RuntimeException runtimeException)
+                {
+                    unexpected = unexpected == null ? runtimeException : unexpected;
+                }
+                else
+                {
+                    failure = failure == null ? new SQLException(e.getCause()) : failure;
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for the contact shards", e);
+            }
+        }
+        if (unexpected != null)
+        {
+            throw unexpected;
+        }
+        if (failure != null)
+        {
+            throw failure;
+        }
+        return results;
+    }
+
+    private static List<Contact> mergeById(List<List<Contact>> parts)
+    {
+        List<Contact> merged = new ArrayList<>();
+        parts.forEach(merged::addAll);
+        merged.sort(Comparator.comparingInt(Contact::getContactId));
+        return merged;
+    }
+
+    private int shardOf(int contactId)
+    {
+        return Math.floorMod(contactId - 1, shards.size());
+    }
+
+    private int placementOf(Contact contact)
+    {
+        return Math.floorMod(contact.getPhonePrimary().hashCode(), shards.size());
+    }
+
+    // The row is written either way; without its keys the phone and email are free for reuse
+    private void assignKeys(Contact contact, int token)
+    {
+        try
+        {
+            keys.assign(List.of(contact), token);
+        }
+        catch (SQLException e)
+        {
+            System.out.println("Error assigning contact keys: " + e.getMessage());
+        }
+    }
+
+    private void release(int token)
+    {
+        try
+        {
+            keys.release(token);
+        }
+        catch (SQLException e)
+        {
+            System.out.println("Error releasing reserved contact keys: " + e.getMessage());
+        }
+    }
+
+    // Reservation tokens are negative so they can never be mistaken for a contact id
+    private static int newToken()
+    {
+        return -ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE);
+    }
+
+    // Interleaves AUTO_INCREMENT ids so shard k of n only hands out ids with (id - 1) mod n == k
+    private static String withIdSpacing(String url, int shard, int count)
+    {
+        return url + (url.contains("?") ? "&" : "?") + "sessionVariables=auto_increment_increment=" + count
+                + ",auto_increment_offset=" + (shard + 1);
+    }
+}
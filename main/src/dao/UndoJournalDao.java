@@ -0,0 +1,12 @@
+package dao;
+
+import exceptions.DatabaseException;
+import models.UndoEntry;
+
+public interface UndoJournalDao
+{
+    void record(UndoEntry entry, int retain) throws DatabaseException;
+    UndoEntry findLatestActive(int userId) throws DatabaseException;
+    UndoEntry findOldestUndone(int userId) throws DatabaseException;
+    void apply(UndoEntry entry, boolean undo) throws DatabaseException;
+}
@@ -0,0 +1,442 @@
+package dao;
+
+import db.DatabaseConnection;
+import exceptions.DatabaseException;
+import models.FieldDelta;
+import models.UndoEntry;
+import utils.ColumnCodec;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC-based implementation of {@link UndoJournalDao} backed by the {@code undo_journal} table.
+ * <p>
+ * Column values are stored by column name rather than field id, so journal rows stay
+ * readable even if the field enums are reordered later.
+ * Entries with {@code undone = 0} form the undo stack of a user (newest first) and
+ * entries with {@code undone = 1} form the redo stack (oldest first). Applying an entry
+ * changes the target table and flips the entry's flag in one transaction.
+ */
+public class UndoJournalDaoImplementation implements UndoJournalDao
+{
+    private final DatabaseConnection db;
+
+    public UndoJournalDaoImplementation()
+    {
+        this(new DatabaseConnection());
+    }
+
+    public UndoJournalDaoImplementation(DatabaseConnection db)
+    {
+        this.db = db;
+    }
+
+    @Override
+    public void record(UndoEntry entry, int retain) throws DatabaseException
+    {
+        Connection conn = null;
+        try
+        {
+            conn = db.getConnection();
+            conn.setAutoCommit(false);
+
+            // A new operation invalidates everything that could still be redone
+            PreparedStatement clearRedo = conn.prepareStatement(
+                    "DELETE FROM undo_journal WHERE user_id=? AND undone=1");
+            clearRedo.setInt(1, entry.getUserId());
+            clearRedo.executeUpdate();
+            clearRedo.close();
+
+            PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO undo_journal (user_id, entity_type, operation, entity_id, before_state, after_state, undone, created_at) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, 0, ?)", Statement.RETURN_GENERATED_KEYS);
+            insert.setInt(1, entry.getUserId());
+            insert.setString(2, entry.getEntityType().name());
+            insert.setString(3, entry.getOperation().name());
+            insert.setInt(4, entry.getEntityId());
+            if (entry.getOperation().isBulk())
+            {
+                insert.setString(5, ColumnCodec.encodeRows(entry.getBeforeRows()));
+                insert.setString(6, ColumnCodec.encodeRows(entry.getAfterRows()));
+            }
+            else
+            {
+                insert.setString(5, ColumnCodec.encode(entry.getBefore()));
+                insert.setString(6, ColumnCodec.encode(entry.getAfter()));
+            }
+            insert.setTimestamp(7, Timestamp.valueOf(LocalDateTime.now()));
+            insert.executeUpdate();
+            ResultSet keys = insert.getGeneratedKeys();
+            if (keys.next())
+            {
+                entry.setEntryId(keys.getLong(1));
+            }
+            keys.close();
+            insert.close();
+
+            // Keep only the newest entries so the journal stays bounded per user
+            PreparedStatement trim = conn.prepareStatement(
+                    "DELETE FROM undo_journal WHERE user_id=? AND entry_id <= (" +
+                            "SELECT entry_id FROM (SELECT entry_id FROM undo_journal WHERE user_id=? " +
+                            "ORDER BY entry_id DESC LIMIT 1 OFFSET ?) oldest)");
+            trim.setInt(1, entry.getUserId());
+            trim.setInt(2, entry.getUserId());
+            trim.setInt(3, retain);
+            trim.executeUpdate();
+            trim.close();
+
+            conn.commit();
+        }
+        catch (SQLException e)
+        {
+            rollback(conn);
+            throw new DatabaseException("Failed to record undo history", e);
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    @Override
+    public UndoEntry findLatestActive(int userId) throws DatabaseException
+    {
+        return findOne("SELECT * FROM undo_journal WHERE user_id=? AND undone=0 ORDER BY entry_id DESC LIMIT 1", userId);
+    }
+
+    @Override
+    public UndoEntry findOldestUndone(int userId) throws DatabaseException
+    {
+        return findOne("SELECT * FROM undo_journal WHERE user_id=? AND undone=1 ORDER BY entry_id ASC LIMIT 1", userId);
+    }
+
+    @Override
+    public void apply(UndoEntry entry, boolean undo) throws DatabaseException
+    {
+        UndoEntry.EntityType type = entry.getEntityType();
+        UndoEntry.Operation op = entry.getOperation();
+        Connection conn = null;
+
+        try
+        {
+            conn = db.getConnection();
+            conn.setAutoCommit(false);
+
+            // Undo runs the inverse of the recorded operation, redo runs it again
+            if (op == UndoEntry.Operation.BULK_DELETE)
+            {
+                if (undo)
+                {
+                    insertRows(conn, type, entry.getBeforeRows());
+                }
+                else
+                {
+                    deleteRows(conn, type, entry.getBeforeRows());
+                }
+            }
+            else if (op == UndoEntry.Operation.BULK_UPDATE)
+            {
+                updateRows(conn, type, undo ? entry.getBeforeRows() : entry.getAfterRows());
+            }
+            else if ((op == UndoEntry.Operation.ADD && undo) || (op == UndoEntry.Operation.DELETE && !undo))
+            {
+                delete(conn, type, entry.getEntityId());
+            }
+            else if (op == UndoEntry.Operation.DELETE || op == UndoEntry.Operation.ADD)
+            {
+                insert(conn, type, entry.getEntityId(), undo ? entry.getBefore() : entry.getAfter());
+            }
+            else
+            {
+                update(conn, type, entry.getEntityId(), undo ? entry.getBefore() : entry.getAfter());
+            }
+
+            PreparedStatement flag = conn.prepareStatement("UPDATE undo_journal SET undone=? WHERE entry_id=?");
+            flag.setBoolean(1, undo);
+            flag.setLong(2, entry.getEntryId());
+            int flagged = flag.executeUpdate();
+            flag.close();
+            if (flagged == 0)
+            {
+                // Trimmed from the journal meanwhile; the row change above is rolled back
+                throw new SQLException("the entry is no longer in the undo history");
+            }
+
+            conn.commit();
+            entry.setUndone(undo);
+        }
+        catch (SQLException e)
+        {
+            rollback(conn);
+            throw new DatabaseException("Failed to " + (undo ? "undo " : "redo ") + entry.describe() + ": " + e.getMessage(), e);
+        }
+        finally
+        {
+            db.close(conn);
+        }
+    }
+
+    // Bulk rows share one column set, so each bulk helper prepares a single statement and batches it
+    private void deleteRows(Connection conn, UndoEntry.EntityType type, List<Map<String, String>> rows) throws SQLException
+    {
+        PreparedStatement ps = conn.prepareStatement("DELETE FROM " + type.table() + " WHERE " + type.idColumn() + "=?");
+        for (Map<String, String> row : rows)
+        {
+            ps.setInt(1, Integer.parseInt(row.get(type.idColumn())));
+            ps.addBatch();
+        }
+        checkBatch(type, ps.executeBatch());
+        ps.close();
+    }
+
+    private void insertRows(Connection conn, UndoEntry.EntityType type, List<Map<String, String>> rows) throws SQLException
+    {
+        if (rows.isEmpty())
+        {
+            return;
+        }
+        Map<String, String> values = withoutId(type, rows.get(0));
+        StringBuilder columns = new StringBuilder(type.idColumn());
+        StringBuilder placeholders = new StringBuilder("?");
+        for (String column : values.keySet())
+        {
+            type.sqlTypeOf(column);
+            columns.append(", ").append(column);
+            placeholders.append(", ?");
+        }
+
+        PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO " + type.table() + " (" + columns + ") VALUES (" + placeholders + ")");
+        for (Map<String, String> row : rows)
+        {
+            ps.setInt(1, Integer.parseInt(row.get(type.idColumn())));
+            bindAll(ps, 2, type, withoutId(type, row));
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        ps.close();
+    }
+
+    private void updateRows(Connection conn, UndoEntry.EntityType type, List<Map<String, String>> rows) throws SQLException
+    {
+        if (rows.isEmpty())
+        {
+            return;
+        }
+        Map<String, String> values = withoutId(type, rows.get(0));
+        StringBuilder query = new StringBuilder("UPDATE " + type.table() + " SET ");
+        for (String column : values.keySet())
+        {
+            type.sqlTypeOf(column);
+            query.append(column).append("=?, ");
+        }
+        if (type == UndoEntry.EntityType.CONTACT)
+        {
+            query.append("updated_at=GREATEST(CURRENT_TIMESTAMP, updated_at + INTERVAL 1 SECOND)");
+        }
+        else
+        {
+            query.setLength(query.length() - 2);
+        }
+        query.append(" WHERE ").append(type.idColumn()).append("=?");
+
+        PreparedStatement ps = conn.prepareStatement(query.toString());
+        for (Map<String, String> row : rows)
+        {
+            int next = bindAll(ps, 1, type, withoutId(type, row));
+            ps.setInt(next, Integer.parseInt(row.get(type.idColumn())));
+            ps.addBatch();
+        }
+        checkBatch(type, ps.executeBatch());
+        ps.close();
+    }
+
+    private static Map<String, String> withoutId(UndoEntry.EntityType type, Map<String, String> row)
+    {
+        Map<String, String> values = new LinkedHashMap<>(row);
+        values.remove(type.idColumn());
+        return values;
+    }
+
+    private static void checkBatch(UndoEntry.EntityType type, int[] counts) throws SQLException
+    {
+        for (int count : counts)
+        {
+            if (count == 0)
+            {
+                throw new SQLException("A " + type + " row of the bulk operation no longer exists");
+            }
+        }
+    }
+
+    private void delete(Connection conn, UndoEntry.EntityType type, int id) throws SQLException
+    {
+        PreparedStatement ps = conn.prepareStatement("DELETE FROM " + type.table() + " WHERE " + type.idColumn() + "=?");
+        ps.setInt(1, id);
+        int rows = ps.executeUpdate();
+        ps.close();
+        if (rows == 0)
+        {
+            throw new SQLException(type + " #" + id + " no longer exists");
+        }
+    }
+
+    private void insert(Connection conn, UndoEntry.EntityType type, int id, Map<String, String> values) throws SQLException
+    {
+        StringBuilder columns = new StringBuilder(type.idColumn());
+        StringBuilder placeholders = new StringBuilder("?");
+        for (String column : values.keySet())
+        {
+            type.sqlTypeOf(column); // rejects unknown columns before they reach the SQL text
+            columns.append(", ").append(column);
+            placeholders.append(", ?");
+        }
+
+        PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO " + type.table() + " (" + columns + ") VALUES (" + placeholders + ")");
+        ps.setInt(1, id);
+        bindAll(ps, 2, type, values);
+        ps.executeUpdate();
+        ps.close();
+    }
+
+    private void update(Connection conn, UndoEntry.EntityType type, int id, Map<String, String> values) throws SQLException
+    {
+        if (type == UndoEntry.EntityType.CONTACT && values.containsKey("updated_at"))
+        {
+            // updated_at is the optimistic-locking version; restoring an old value would let
+            // a stale edit of that version succeed, so undo and redo move it forward instead
+            values = new LinkedHashMap<>(values);
+            values.remove("updated_at");
+        }
+        StringBuilder query = new StringBuilder("UPDATE " + type.table() + " SET ");
+        int i = 0;
+        for (String column : values.keySet())
+        {
+            type.sqlTypeOf(column);
+            query.append(column).append("=?");
+            if (i++ < values.size() - 1)
+                query.append(", ");
+        }
+        if (type == UndoEntry.EntityType.CONTACT)
+        {
+            query.append(values.isEmpty() ? "" : ", ")
+                    .append("updated_at=GREATEST(CURRENT_TIMESTAMP, updated_at + INTERVAL 1 SECOND)");
+        }
+        query.append(" WHERE ").append(type.idColumn()).append("=?");
+
+        PreparedStatement ps = conn.prepareStatement(query.toString());
+        int next = bindAll(ps, 1, type, values);
+        ps.setInt(next, id);
+        int rows = ps.executeUpdate();
+        ps.close();
+        if (rows == 0)
+        {
+            throw new SQLException(type + " #" + id + " no longer exists");
+        }
+    }
+
+    // Binds snapshot values in map order; returns the next free parameter index
+    private int bindAll(PreparedStatement ps, int index, UndoEntry.EntityType type, Map<String, String> values)
+            throws SQLException
+    {
+        for (Map.Entry<String, String> entry : values.entrySet())
+        {
+            bind(ps, index++, type.sqlTypeOf(entry.getKey()), entry.getValue());
+        }
+        return index;
+    }
+
+    private void bind(PreparedStatement ps, int index, int sqlType, String value) throws SQLException
+    {
+        if (value == null)
+        {
+            ps.setNull(index, sqlType);
+            return;
+        }
+        switch (sqlType)
+        {
+            case Types.DATE -> ps.setDate(index, Date.valueOf(LocalDate.parse(value)));
+            case Types.TIMESTAMP -> ps.setTimestamp(index, Timestamp.valueOf(LocalDateTime.parse(value)));
+            default -> ps.setString(index, value);
+        }
+    }
+
+    private UndoEntry findOne(String query, int userId) throws DatabaseException
+    {
+        List<UndoEntry> entries = new ArrayList<>();
+        Connection conn = null;
+        try
+        {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement(query);
+            ps.setInt(1, userId);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next())
+            {
+                entries.add(map(rs));
+            }
+            rs.close();
+            ps.close();
+        }
+        catch (SQLException e)
+        {
+            throw new DatabaseException("Failed to read undo history", e);
+        }
+        finally
+        {
+            db.close(conn);
+        }
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    private UndoEntry map(ResultSet rs) throws SQLException
+    {
+        int userId = rs.getInt("user_id");
+        UndoEntry.EntityType type = UndoEntry.EntityType.valueOf(rs.getString("entity_type"));
+        UndoEntry.Operation op = UndoEntry.Operation.valueOf(rs.getString("operation"));
+        int entityId = rs.getInt("entity_id");
+        UndoEntry entry;
+        if (op.isBulk())
+        {
+            entry = new UndoEntry(userId, type, op, ColumnCodec.decodeRows(rs.getString("before_state")),
+                    ColumnCodec.decodeRows(rs.getString("after_state")));
+        }
+        else
+        {
+            Map<String, String> before = ColumnCodec.decode(rs.getString("before_state"));
+            Map<String, String> after = ColumnCodec.decode(rs.getString("after_state"));
+            entry = switch (op)
+            {
+                case ADD -> new UndoEntry(userId, type, op, entityId, after);
+                case DELETE -> new UndoEntry(userId, type, op, entityId, before);
+                default -> new UndoEntry(userId, type, entityId, FieldDelta.between(type, before, after));
+            };
+        }
+        entry.setEntryId(rs.getLong("entry_id"));
+        entry.setUndone(rs.getBoolean("undone"));
+        entry.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        return entry;
+    }
+
+    private void rollback(Connection conn)
+    {
+        if (conn != null)
+        {
+            try
+            {
+                conn.rollback();
+            }
+            catch (SQLException e)
+            {
+                System.out.println("Error rolling back: " + e.getMessage());
+            }
+        }
+    }
+}
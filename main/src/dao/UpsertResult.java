@@ -0,0 +1,75 @@
+package dao;
+
+import models.Contact;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of {@link ContactDao#upsertContacts(List)}: which incoming contacts were
+ * inserted, which updated an existing row, and how many needed no write at all.
+ */
+public class UpsertResult
+{
+    private final List<Contact> inserted = new ArrayList<>();
+    private final List<Contact> updated = new ArrayList<>();
+    private final List<Contact> conflicting = new ArrayList<>();
+    private int unchanged;
+
+    /**
+     * @return contacts written as new rows, with their generated ids set
+     */
+    public List<Contact> getInserted()
+    {
+        return inserted;
+    }
+
+    /**
+     * @return contacts whose values replaced an existing row (ids of that row set)
+     */
+    public List<Contact> getUpdated()
+    {
+        return updated;
+    }
+
+    /**
+     * @return contacts skipped because their phone and email belong to two different rows
+     */
+    public List<Contact> getConflicting()
+    {
+        return conflicting;
+    }
+
+    /**
+     * @return number of contacts identical to the stored row
+     */
+    public int getUnchanged()
+    {
+        return unchanged;
+    }
+
+    void addUnchanged()
+    {
+        unchanged++;
+    }
+
+    // Folds in the result of another shard
+    void addAll(UpsertResult other)
+    {
+        inserted.addAll(other.inserted);
+        updated.addAll(other.updated);
+        conflicting.addAll(other.conflicting);
+        unchanged += other.unchanged;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "UpsertResult {" +
+                " inserted = " + inserted.size() +
+                ", updated = " + updated.size() +
+                ", unchanged = " + unchanged +
+                ", conflicting = " + conflicting.size() +
+                '}';
+    }
+}
@@ -1,13 +1,16 @@
 package dao;
 
 import models.User;
+
+import java.sql.SQLException;
 import java.util.List;
 
 public interface UserDao
 {
     User findByUsername(String username);
     List<User> findAllUsers();
-    void updateUser(User user);
-    void addUser(User user);
-    void deleteUser(int userId);
+    List<User> findUsersPage(int afterId, int limit);
+    void updateUser(User user) throws SQLException;
+    void addUser(User user) throws SQLException;
+    void deleteUser(int userId) throws SQLException;
 }
@@ -2,6 +2,7 @@ package dao;
 
 import db.DatabaseConnection;
 import models.User;
+import models.UserField;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -13,7 +14,21 @@ import java.util.List;
  */
 public class UserDaoImplementation implements UserDao
 {
-    private final DatabaseConnection db = new DatabaseConnection();
+    private final DatabaseConnection db;
+
+    public UserDaoImplementation()
+    {
+        this(new DatabaseConnection());
+    }
+
+    public UserDaoImplementation(DatabaseConnection db)
+    {
+        this.db = db;
+    }
+
+    // UPDATE statements writing only the dirty columns, one per dirty-field mask
+    private static final PartialUpdateStatements partialUpdates =
+            new PartialUpdateStatements("users", "user_id=?", bit -> UserField.values()[bit].column());
 
     @Override
     public User findByUsername(String username)
@@ -56,7 +71,7 @@ public class UserDaoImplementation implements UserDao
         Connection conn = null;
         try
         {
-            conn = db.getConnection();
+            conn = db.getReadConnection();
             Statement stmt = conn.createStatement();
             ResultSet rs = stmt.executeQuery(query);
 
@@ -79,23 +94,27 @@ public class UserDaoImplementation implements UserDao
         return users;
     }
 
+    /**
+     * Reads the next {@code limit} users after {@code afterId} in {@code user_id} order.
+     */
     @Override
-    public void updateUser(User user)
+    public List<User> findUsersPage(int afterId, int limit)
     {
-        String query = "UPDATE users SET username=?, password_hash=?, first_name=?, last_name=?, user_role=? WHERE user_id=?";
+        List<User> users = new ArrayList<>();
         Connection conn = null;
 
-        try {
-            conn = db.getConnection();
-            PreparedStatement ps = conn.prepareStatement(query);
-            ps.setString(1, user.getUsername());
-            ps.setString(2, user.getPasswordHash());
-            ps.setString(3, user.getFirstName());
-            ps.setString(4, user.getLastName());
-            ps.setString(5, user.getUserRole());
-            ps.setInt(6, user.getUserId());
-
-            ps.executeUpdate();
+        try
+        {
+            conn = db.getReadConnection();
+            PreparedStatement ps = conn.prepareStatement("SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?");
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next())
+            {
+                users.add(new User(rs));
+            }
+            rs.close();
             ps.close();
         }
         catch (SQLException e)
@@ -106,10 +125,45 @@ public class UserDaoImplementation implements UserDao
         {
             db.close(conn);
         }
+
+        return users;
+    }
+
+    @Override
+    public void updateUser(User user) throws SQLException
+    {
+        int dirty = user.getDirtyFields();
+        if (dirty == 0)
+        {
+            return;
+        }
+        Connection conn = null;
+
+        try {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement(partialUpdates.sqlFor(dirty));
+            int index = 1;
+            for (UserField field : UserField.values())
+            {
+                if ((dirty & (1 << field.ordinal())) != 0)
+                {
+                    PartialUpdateStatements.bind(ps, index++, field.get(user), field.sqlType());
+                }
+            }
+            ps.setInt(index, user.getUserId());
+
+            ps.executeUpdate();
+            ps.close();
+            user.clearDirtyFields();
+        }
+        finally
+        {
+            db.close(conn);
+        }
     }
 
     @Override
-    public void addUser(User user)
+    public void addUser(User user) throws SQLException
     {
         String query = "INSERT INTO users (username, password_hash, first_name, last_name, user_role, created_at) VALUES (?, ?, ?, ?, ?, ?)";
         Connection conn = null;
@@ -117,7 +171,7 @@ public class UserDaoImplementation implements UserDao
         try
         {
             conn = db.getConnection();
-            PreparedStatement ps = conn.prepareStatement(query);
+            PreparedStatement ps = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
             ps.setString(1, user.getUsername());
             ps.setString(2, user.getPasswordHash());
             ps.setString(3, user.getFirstName());
@@ -126,11 +180,15 @@ public class UserDaoImplementation implements UserDao
             ps.setTimestamp(6, Timestamp.valueOf(user.getCreatedAt()));
 
             ps.executeUpdate();
+            // Hand the generated id back so the undo journal can reference the new row
+            ResultSet keys = ps.getGeneratedKeys();
+            if (keys.next())
+            {
+                user.setUserId(keys.getInt(1));
+            }
+            keys.close();
             ps.close();
-        }
-        catch (SQLException e)
-        {
-            e.printStackTrace();
+            user.clearDirtyFields();
         }
         finally
         {
@@ -139,7 +197,7 @@ public class UserDaoImplementation implements UserDao
     }
 
     @Override
-    public void deleteUser(int userId)
+    public void deleteUser(int userId) throws SQLException
     {
         String query = "DELETE FROM users WHERE user_id=?";
         Connection conn = null;
@@ -152,10 +210,6 @@ public class UserDaoImplementation implements UserDao
             ps.executeUpdate();
             ps.close();
         }
-        catch (SQLException e)
-        {
-            e.printStackTrace();
-        }
         finally
         {
             db.close(conn);
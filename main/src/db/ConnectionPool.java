@@ -0,0 +1,324 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small fixed-size JDBC connection pool.
+ * <p>
+ * Physical connections are created lazily up to {@code maxSize} and handed back
+ * through {@link #release(Connection)}, which restores the default session state
+ * (auto-commit on, read-write, default isolation) before the connection is reused.
+ * The size and the borrow timeout can be changed while the pool is in use; a smaller
+ * pool closes the connections above the new size as they become idle.
+ */
+public class ConnectionPool
+{
+    private final String url;
+    private final String username;
+    private final String password;
+    private volatile int maxSize;
+    private volatile long borrowTimeoutMillis;
+    // Connections held longer than this are reported; 0 turns the report off
+    private volatile long slowUseMillis;
+
+    // Connections idle for longer than this are pinged before being handed out
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 30_000;
+    // Waiting borrowers look this often whether the pool has grown
+    private static final long WAIT_SLICE_MILLIS = 100;
+
+    // When each borrowed connection was handed out, in System.nanoTime()
+    private final Map<Connection, Long> borrowedAt = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<IdleConnection> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    /**
+     * @param url                 JDBC URL of the database
+     * @param username            database user
+     * @param password            database password
+     * @param maxSize             maximum number of physical connections
+     * @param borrowTimeoutMillis how long {@link #borrow()} waits for a free connection
+     */
+    public ConnectionPool(String url, String username, String password, int maxSize, long borrowTimeoutMillis)
+    {
+        if (maxSize <= 0)
+        {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    /**
+     * Takes a connection from the pool, opening a new one if the pool is not full yet.
+     *
+     * @return a ready-to-use connection
+     * @throws SQLException if no connection could be opened or none became free in time
+     */
+    public Connection borrow() throws SQLException
+    {
+        long deadline = System.nanoTime() + borrowTimeoutMillis * 1_000_000L;
+        while (true)
+        {
+            if (closed)
+            {
+                throw new SQLException("Connection pool is closed");
+            }
+            IdleConnection entry;
+            while ((entry = idle.poll()) != null)
+            {
+                if (isUsable(entry))
+                {
+                    return lend(entry.connection);
+                }
+                discard(entry.connection);
+            }
+
+            if (totalConnections.incrementAndGet() <= maxSize)
+            {
+                try
+                {
+                    return lend(DriverManager.getConnection(url, username, password));
+                }
+                catch (SQLException e)
+                {
+                    totalConnections.decrementAndGet();
+                    throw e;
+                }
+            }
+            totalConnections.decrementAndGet();
+
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0)
+            {
+                throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection");
+            }
+            try
+            {
+                entry = idle.poll(Math.min(remainingNanos, WAIT_SLICE_MILLIS * 1_000_000L), TimeUnit.NANOSECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            if (entry != null)
+            {
+                if (isUsable(entry))
+                {
+                    return lend(entry.connection);
+                }
+                discard(entry.connection);
+            }
+        }
+    }
+
+    /**
+     * Returns a connection to the pool. Any open transaction is rolled back.
+     *
+     * @param conn the connection to return; {@code null} is ignored
+     */
+    public void release(Connection conn)
+    {
+        if (conn == null)
+        {
+            return;
+        }
+        reportSlowUse(conn);
+        try
+        {
+            if (conn.isClosed())
+            {
+                totalConnections.decrementAndGet();
+                return;
+            }
+            if (closed || totalConnections.get() > maxSize)
+            {
+                // Closed, or shrunk below the connections it has
+                discard(conn);
+                return;
+            }
+            if (!conn.getAutoCommit())
+            {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            if (conn.isReadOnly())
+            {
+                conn.setReadOnly(false);
+            }
+            if (conn.getTransactionIsolation() != Connection.TRANSACTION_REPEATABLE_READ)
+            {
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            }
+            idle.offer(new IdleConnection(conn));
+        }
+        catch (SQLException e)
+        {
+            System.out.println("Error returning connection to the pool: " + e.getMessage());
+            discard(conn);
+        }
+    }
+
+    /**
+     * Closes every idle connection. Connections currently borrowed are closed when released.
+     */
+    public void closeAll()
+    {
+        closed = true;
+        IdleConnection entry;
+        while ((entry = idle.poll()) != null)
+        {
+            discard(entry.connection);
+        }
+    }
+
+    /**
+     * Closes the pool and waits for borrowed connections to come back, closing each on return.
+     *
+     * @param timeoutMillis how long to wait for borrowed connections
+     * @return true if every connection was closed in time
+     */
+    public boolean drain(long timeoutMillis)
+    {
+        closeAll();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (totalConnections.get() > 0 && System.currentTimeMillis() < deadline)
+        {
+            try
+            {
+                Thread.sleep(20);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return totalConnections.get() <= 0;
+    }
+
+    /**
+     * Changes the size and the borrow timeout. Idle connections above the new size are
+     * closed right away, borrowed ones when they are released.
+     *
+     * @param maxSize             maximum number of physical connections
+     * @param borrowTimeoutMillis how long {@link #borrow()} waits for a free connection
+     */
+    public void resize(int maxSize, long borrowTimeoutMillis)
+    {
+        if (maxSize <= 0)
+        {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        IdleConnection entry;
+        while (totalConnections.get() > maxSize && (entry = idle.poll()) != null)
+        {
+            discard(entry.connection);
+        }
+    }
+
+    /**
+     * @param slowUseMillis connections held longer than this are reported when released; 0 for never
+     */
+    public void setSlowUseMillis(long slowUseMillis)
+    {
+        this.slowUseMillis = slowUseMillis;
+    }
+
+    /**
+     * @return the maximum number of physical connections
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of connections currently borrowed
+     */
+    public int getActiveCount()
+    {
+        return Math.max(0, totalConnections.get() - idle.size());
+    }
+
+    private Connection lend(Connection conn)
+    {
+        borrowedAt.put(conn, System.nanoTime());
+        return conn;
+    }
+
+    // Queries and units of work run while the connection is borrowed, so a long loan means slow database work
+    private void reportSlowUse(Connection conn)
+    {
+        Long since = borrowedAt.remove(conn);
+        long threshold = slowUseMillis;
+        if (since == null || threshold <= 0)
+        {
+            return;
+        }
+        long heldMillis = (System.nanoTime() - since) / 1_000_000;
+        if (heldMillis > threshold)
+        {
+            System.err.println("Slow database work: connection held " + heldMillis + " ms by "
+                    + Thread.currentThread().getName() + " (threshold " + threshold + " ms)");
+        }
+    }
+
+    private boolean isUsable(IdleConnection entry)
+    {
+        try
+        {
+            if (entry.connection.isClosed())
+            {
+                return false;
+            }
+            // Skip the validation round trip for connections that were just returned
+            long idleMillis = System.currentTimeMillis() - entry.returnedAt;
+            return idleMillis < VALIDATE_AFTER_IDLE_MILLIS || entry.connection.isValid(1);
+        }
+        catch (SQLException e)
+        {
+            return false;
+        }
+    }
+
+    private void discard(Connection conn)
+    {
+        totalConnections.decrementAndGet();
+        try
+        {
+            conn.close();
+        }
+        catch (SQLException e)
+        {
+            System.out.println("Error closing the connection: " + e.getMessage());
+        }
+    }
+
+    private static final class IdleConnection
+    {
+        private final Connection connection;
+        private final long returnedAt;
+
+        private IdleConnection(Connection connection)
+        {
+            this.connection = connection;
+            this.returnedAt = System.currentTimeMillis();
+        }
+    }
+}
@@ -1,28 +1,148 @@
 package db;
 
+import config.Config;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DatabaseConnection
 {
-    final String database_url = "jdbc:mysql://localhost:3306/Project2Database?useTimezone=true&serverTimezone=UTC";
-    final String username = "emirfurqan";
-    final String password = "Emir0";
+    // Read once; db.url, db.username and db.password (or DB_URL, DB_USERNAME, DB_PASSWORD) override them
+    static final String database_url = Config.get("db.url", "jdbc:mysql://localhost:3306/Project2Database?useTimezone=true&serverTimezone=UTC&cachePrepStmts=true&rewriteBatchedStatements=true");
+    static final String username = Config.get("db.username", "emirfurqan");
+    static final String password = Config.get("db.password", "Emir0");
 
-    // Open a connection
-    public Connection getConnection() {
-        Connection conn = null;
+    // One pool shared by every DAO so connections are reused instead of reopened per query
+    private static final ConnectionPool pool = createPool();
+
+    // Read replicas (db.replicas); empty unless configured
+    private static final ReplicaRouter replicas = new ReplicaRouter(username, password, poolSize(), poolTimeoutMillis());
+
+    // Connection of the unit of work running on this thread; DAOs reuse it instead of borrowing
+    private static final ThreadLocal<Connection> bound = new ThreadLocal<>();
+
+    // Session (user id) served by this thread, for read-your-writes stickiness; -1 when nobody is logged in
+    private static final ThreadLocal<Integer> session = ThreadLocal.withInitial(() -> -1);
+
+    // Pools of the contact shards (db.shards), one per JDBC URL
+    private static final Map<String, ConnectionPool> shardPools = new ConcurrentHashMap<>();
+
+    // Pool of the shard this instance talks to, or null for the primary database
+    private final ConnectionPool shardPool;
+
+    static
+    {
+        applySlowQueryThreshold();
+        // Pool sizes and the slow-work threshold follow the configuration file without a restart
+        Config.onChange("db.pool.", DatabaseConnection::resizePools);
+        Config.onChange("db.slowQueryMillis", DatabaseConnection::applySlowQueryThreshold);
+    }
+
+    public DatabaseConnection()
+    {
+        this.shardPool = null;
+    }
+
+    private DatabaseConnection(ConnectionPool shardPool)
+    {
+        this.shardPool = shardPool;
+    }
+
+    // Connections to one contact shard; units of work and read replicas only apply to the primary
+    public static DatabaseConnection forShard(String url)
+    {
+        return new DatabaseConnection(shardPools.computeIfAbsent(url, u ->
+        {
+            ConnectionPool shard = new ConnectionPool(u, username, password, poolSize(), poolTimeoutMillis());
+            shard.setSlowUseMillis(slowQueryMillis());
+            return shard;
+        }));
+    }
+
+    private static ConnectionPool createPool()
+    {
         try
         {
             // Ensure MySQL JDBC driver is registered (helps avoid "No suitable driver" errors)
             Class.forName("com.mysql.cj.jdbc.Driver");
-            conn = DriverManager.getConnection(database_url, username, password);
         }
         catch (ClassNotFoundException e)
         {
             System.out.println("MySQL JDBC Driver not found on classpath: " + e.getMessage());
         }
+        return new ConnectionPool(database_url, username, password, poolSize(), poolTimeoutMillis());
+    }
+
+    // Connections per pool (primary, each replica, each shard)
+    private static int poolSize()
+    {
+        return Config.getInt("db.pool.size", 8);
+    }
+
+    private static long poolTimeoutMillis()
+    {
+        return Config.getLong("db.pool.timeoutMillis", 30_000L);
+    }
+
+    // Connections held longer than this are reported as slow database work; 0 turns that off
+    private static long slowQueryMillis()
+    {
+        return Config.getLong("db.slowQueryMillis", 2_000L);
+    }
+
+    private static List<ConnectionPool> allPools()
+    {
+        List<ConnectionPool> pools = new ArrayList<>();
+        pools.add(pool);
+        pools.addAll(replicas.pools());
+        pools.addAll(shardPools.values());
+        return pools;
+    }
+
+    // Applies a changed db.pool.size or db.pool.timeoutMillis to every pool
+    private static void resizePools()
+    {
+        int size = poolSize();
+        long timeoutMillis = poolTimeoutMillis();
+        for (ConnectionPool p : allPools())
+        {
+            p.resize(size, timeoutMillis);
+        }
+    }
+
+    private static void applySlowQueryThreshold()
+    {
+        long threshold = slowQueryMillis();
+        for (ConnectionPool p : allPools())
+        {
+            p.setSlowUseMillis(threshold);
+        }
+    }
+
+    // Borrow a primary connection from the shared pool, or reuse the one bound to this thread
+    public Connection getConnection() {
+        if (shardPool != null)
+        {
+            return borrowShard();
+        }
+        Connection conn = bound.get();
+        if (conn != null)
+        {
+            return conn;
+        }
+        // Anything done on the primary may be a write; keep this session's reads there for a while
+        if (replicas.hasReplicas())
+        {
+            replicas.wrote(session.get());
+        }
+        try
+        {
+            conn = pool.borrow();
+        }
         catch (SQLException e)
         {
             System.out.println("Error connecting to database: " + e.getMessage());
@@ -30,18 +150,128 @@ public class DatabaseConnection
         return conn;
     }
 
-    // Close a connection
-    public void close(Connection conn) {
+    // Borrow a connection for read-only work: a replica, unless this session wrote recently or none is reachable
+    public Connection getReadConnection() {
+        if (shardPool != null)
+        {
+            return borrowShard();
+        }
+        Connection conn = bound.get();
         if (conn != null)
         {
-            try
-            {
-                conn.close();
-            }
-            catch (SQLException e)
+            return conn;
+        }
+        if (replicas.hasReplicas() && !replicas.isSticky(session.get()))
+        {
+            conn = replicas.borrow();
+            if (conn != null)
             {
-                System.out.println("Error closing the connection: " + e.getMessage());
+                return conn;
             }
         }
+        try
+        {
+            conn = pool.borrow();
+        }
+        catch (SQLException e)
+        {
+            System.out.println("Error connecting to database: " + e.getMessage());
+        }
+        return conn;
+    }
+
+    // Return a connection to its pool; a bound connection stays open until it is unbound
+    public void close(Connection conn) {
+        if (shardPool != null)
+        {
+            shardPool.release(conn);
+            return;
+        }
+        if (conn != null && conn == bound.get())
+        {
+            return;
+        }
+        if (!replicas.release(conn))
+        {
+            pool.release(conn);
+        }
+    }
+
+    // Attribute this thread's database work to a logged-in user until clearSession()
+    public static void setSession(int userId)
+    {
+        session.set(userId);
+    }
+
+    // Stop attributing this thread's database work to a user
+    public static void clearSession()
+    {
+        session.remove();
+    }
+
+    // User this thread's database work is attributed to, -1 if none; lets worker threads carry it over
+    public static int getSession()
+    {
+        return session.get();
+    }
+
+    // Make every getConnection() on this thread return the given connection
+    public static void bind(Connection conn)
+    {
+        if (bound.get() != null)
+        {
+            throw new IllegalStateException("A connection is already bound to this thread");
+        }
+        bound.set(conn);
+    }
+
+    // Stop reusing the bound connection; the caller still has to close it
+    public static void unbind()
+    {
+        bound.remove();
+    }
+
+    // True while a unit of work is running on this thread
+    public static boolean isBound()
+    {
+        return bound.get() != null;
+    }
+
+    /**
+     * Closes the primary, replica and shard pools, waiting for borrowed connections to be
+     * returned. Used once on application shutdown.
+     *
+     * @param timeoutMillis how long to wait for all of them together
+     * @return true if every connection was closed in time
+     */
+    public static boolean shutdown(long timeoutMillis)
+    {
+        List<ConnectionPool> pools = allPools();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        boolean drained = true;
+        for (ConnectionPool p : pools)
+        {
+            drained &= p.drain(Math.max(0, deadline - System.currentTimeMillis()));
+        }
+        return drained;
+    }
+
+    // Pool behind this instance, for components that size their parallelism to it
+    public ConnectionPool getPool()
+    {
+        return shardPool != null ? shardPool : pool;
+    }
+
+    private Connection borrowShard()
+    {
+        try
+        {
+            return shardPool.borrow();
+        }
+        catch (SQLException e)
+        {
+            System.out.println("Error connecting to contact shard: " + e.getMessage());
+        }
+        return null;
     }
 }
@@ -0,0 +1,164 @@
+package db;
+
+import config.Config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes read-only work to read replicas of the primary database.
+ * <p>
+ * Replicas are listed in {@code db.replicas} as comma-separated JDBC URLs and use
+ * the primary's credentials unless {@code db.replica.username} and
+ * {@code db.replica.password} are set. {@code db.replica.balance} picks the
+ * replica: {@code round-robin} (default) or {@code least-loaded}, the one with
+ * the fewest borrowed connections.
+ * <p>
+ * A session that wrote to the primary keeps reading from the primary for
+ * {@code db.replica.stickyMillis} (default 5000) so that it sees its own writes
+ * despite replication lag. A replica that cannot be reached is skipped; with no
+ * reachable replica reads go to the primary.
+ * <p>
+ * To try it locally, run a second MySQL instance replicating from the first
+ * (e.g. on port 3307) and start the application with
+ * {@code -Ddb.replicas=jdbc:mysql://localhost:3307/Project2Database?serverTimezone=UTC}.
+ */
+class ReplicaRouter
+{
+    private final List<ConnectionPool> replicas = new ArrayList<>();
+    private final boolean leastLoaded;
+    private final long stickyNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    // Pool each borrowed replica connection has to go back to
+    private final Map<Connection, ConnectionPool> leases = new ConcurrentHashMap<>();
+
+    // Last primary use per session, in System.nanoTime()
+    private final Map<Integer, Long> lastWrites = new ConcurrentHashMap<>();
+
+    ReplicaRouter(String username, String password, int poolSize, long timeoutMillis)
+    {
+        String urls = Config.get("db.replicas", "");
+        String replicaUser = Config.get("db.replica.username", username);
+        String replicaPassword = Config.get("db.replica.password", password);
+        for (String url : urls.split(","))
+        {
+            if (!url.isBlank())
+            {
+                replicas.add(new ConnectionPool(url.trim(), replicaUser, replicaPassword, poolSize, timeoutMillis));
+            }
+        }
+        String balance = Config.get("db.replica.balance", "round-robin");
+        if (!balance.equals("round-robin") && !balance.equals("least-loaded"))
+        {
+            throw new IllegalArgumentException("db.replica.balance must be round-robin or least-loaded: " + balance);
+        }
+        leastLoaded = balance.equals("least-loaded");
+        stickyNanos = Config.getLong("db.replica.stickyMillis", 5_000L) * 1_000_000L;
+    }
+
+    /**
+     * @return true if at least one replica is configured
+     */
+    boolean hasReplicas()
+    {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * @return the replica pools
+     */
+    List<ConnectionPool> pools()
+    {
+        return replicas;
+    }
+
+    /**
+     * Notes that a session used the primary, which starts its stickiness window.
+     */
+    void wrote(int session)
+    {
+        lastWrites.put(session, System.nanoTime());
+    }
+
+    /**
+     * @return true if the session used the primary within the stickiness window
+     */
+    boolean isSticky(int session)
+    {
+        Long last = lastWrites.get(session);
+        if (last == null)
+        {
+            return false;
+        }
+        if (System.nanoTime() - last < stickyNanos)
+        {
+            return true;
+        }
+        lastWrites.remove(session, last);
+        return false;
+    }
+
+    /**
+     * Borrows a read-only connection from a replica, trying each replica once.
+     *
+     * @return the connection, or null if no replica could be reached
+     */
+    Connection borrow()
+    {
+        int start = leastLoaded ? leastLoadedIndex() : Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++)
+        {
+            ConnectionPool pool = replicas.get((start + i) % replicas.size());
+            Connection conn = null;
+            try
+            {
+                conn = pool.borrow();
+                conn.setReadOnly(true);
+                leases.put(conn, pool);
+                return conn;
+            }
+            catch (SQLException e)
+            {
+                // The pool discards the connection if it is broken
+                pool.release(conn);
+                System.out.println("Read replica unavailable, trying the next one: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a replica connection to its pool.
+     *
+     * @return false if the connection did not come from a replica
+     */
+    boolean release(Connection conn)
+    {
+        ConnectionPool pool = conn == null ? null : leases.remove(conn);
+        if (pool == null)
+        {
+            return false;
+        }
+        pool.release(conn);
+        return true;
+    }
+
+    private int leastLoadedIndex()
+    {
+        int best = 0;
+        for (int i = 1; i < replicas.size(); i++)
+        {
+            if (replicas.get(i).getActiveCount() < replicas.get(best).getActiveCount())
+            {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,26 @@
+package exceptions;
+
+import models.Contact;
+
+/**
+ * Thrown when a contact was changed by someone else between loading it and saving it,
+ * i.e. its {@code updated_at} no longer matches the value that was read.
+ */
+public class ConcurrentUpdateException extends DatabaseException
+{
+    private final Contact current;
+
+    public ConcurrentUpdateException(Contact current)
+    {
+        super("Contact #" + current.getContactId() + " was changed by another session");
+        this.current = current;
+    }
+
+    /**
+     * @return the contact as it is stored now, for a refresh-and-retry
+     */
+    public Contact getCurrent()
+    {
+        return current;
+    }
+}
@@ -0,0 +1,32 @@
+package exceptions;
+
+import java.util.List;
+
+/**
+ * Thrown when a write would give a contact a phone number or email that another
+ * contact already uses.
+ */
+public class DuplicateValueException extends DatabaseException
+{
+    private final List<String> columns;
+
+    public DuplicateValueException(List<String> columns)
+    {
+        super("Value already used by another contact: " + String.join(", ", columns));
+        this.columns = columns;
+    }
+
+    public DuplicateValueException(String message, Throwable cause)
+    {
+        super(message, cause);
+        this.columns = List.of();
+    }
+
+    /**
+     * @return the columns whose values are taken (empty if only the database constraint reported it)
+     */
+    public List<String> getColumns()
+    {
+        return columns;
+    }
+}
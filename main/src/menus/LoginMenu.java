@@ -3,6 +3,7 @@ package menus;
 import app.Application;
 import auth.AuthService;
 import models.User;
+import services.ServiceRegistry;
 import utils.ConsoleColor;
 
 import java.util.Scanner;
@@ -15,16 +16,16 @@ import java.util.Scanner;
  */
 public class LoginMenu
 {
-    private static final AuthService authService = new AuthService();
-    private static final Scanner scanner = new Scanner(System.in);
+    private static final AuthService authService = ServiceRegistry.get().auth();
 
     /**
      * Displays the login screen and attempts to authenticate the user.
      * The method keeps prompting until a successful login or an explicit exit.
      *
+     * @param scanner input of the current session
      * @return the authenticated {@link User}, or {@code null} if the user chose to exit
      */
-    public static User showLoginScreen()
+    public static User showLoginScreen(Scanner scanner)
     {
         while (true)
         {
@@ -4,9 +4,18 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
 
 /**
  * Domain model representing a contact record from the {@code contacts} table.
+ * <p>
+ * Setters that change a value mark the matching {@link ContactField} as dirty, so an
+ * update only has to write the changed columns. A contact read from the database
+ * starts clean.
+ * <p>
+ * The {@code updated_at} value last read from or written to the database is kept as
+ * the contact's version; updates only succeed while the stored row still has it.
  */
 public class Contact
 {
@@ -23,6 +32,12 @@ public class Contact
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Bit (1 << ContactField.ordinal()) is set for every field changed since load or last save
+    private int dirtyFields;
+
+    // updated_at as last seen in the database; null for a contact that was never saved
+    private LocalDateTime version;
+
     /**
      * Default no-arg constructor.
      */
@@ -54,6 +69,7 @@ public class Contact
 
         this.createdAt = rs.getTimestamp("created_at").toLocalDateTime();
         this.updatedAt = rs.getTimestamp("updated_at").toLocalDateTime();
+        this.version = this.updatedAt;
     }
 
     // Getters
@@ -114,59 +130,163 @@ public class Contact
 
     public void setFirstName(String firstName)
     {
-        if (firstName != null && !firstName.isEmpty()) this.firstName = firstName;
+        if (firstName != null && !firstName.isEmpty())
+        {
+            track(ContactField.FIRST_NAME, this.firstName, firstName);
+            this.firstName = firstName;
+        }
     }
 
     public void setMiddleName(String middleName)
     {
+        track(ContactField.MIDDLE_NAME, this.middleName, middleName);
         this.middleName = middleName;
     }
 
     public void setLastName(String lastName)
     {
-        if (lastName != null && !lastName.isEmpty()) this.lastName = lastName;
+        if (lastName != null && !lastName.isEmpty())
+        {
+            track(ContactField.LAST_NAME, this.lastName, lastName);
+            this.lastName = lastName;
+        }
     }
 
     public void setNickname(String nickname)
     {
+        track(ContactField.NICKNAME, this.nickname, nickname);
         this.nickname = nickname;
     }
 
     public void setPhonePrimary(String phonePrimary)
     {
-        if (isValidPhone(phonePrimary)) this.phonePrimary = phonePrimary;
+        if (isValidPhone(phonePrimary))
+        {
+            track(ContactField.PHONE_PRIMARY, this.phonePrimary, phonePrimary);
+            this.phonePrimary = phonePrimary;
+        }
     }
 
     public void setPhoneSecondary(String phoneSecondary)
     {
-        if (phoneSecondary == null || isValidPhone(phoneSecondary)) this.phoneSecondary = phoneSecondary;
+        if (phoneSecondary == null || isValidPhone(phoneSecondary))
+        {
+            track(ContactField.PHONE_SECONDARY, this.phoneSecondary, phoneSecondary);
+            this.phoneSecondary = phoneSecondary;
+        }
     }
 
     public void setEmail(String email)
     {
-        if (isValidEmail(email)) this.email = email;
+        if (isValidEmail(email))
+        {
+            track(ContactField.EMAIL, this.email, email);
+            this.email = email;
+        }
     }
 
     public void setLinkedinUrl(String linkedinUrl)
     {
-        if (linkedinUrl == null || isValidLinkedinUrl(linkedinUrl)) this.linkedinUrl = linkedinUrl;
+        if (linkedinUrl == null || isValidLinkedinUrl(linkedinUrl))
+        {
+            track(ContactField.LINKEDIN_URL, this.linkedinUrl, linkedinUrl);
+            this.linkedinUrl = linkedinUrl;
+        }
     }
 
     public void setBirthDate(LocalDate birthDate)
     {
+        track(ContactField.BIRTH_DATE, this.birthDate, birthDate);
         this.birthDate = birthDate;
     }
 
     public void setCreatedAt(LocalDateTime createdAt)
     {
+        track(ContactField.CREATED_AT, this.createdAt, createdAt);
         this.createdAt = createdAt;
     }
 
     public void setUpdatedAt(LocalDateTime updatedAt)
     {
+        track(ContactField.UPDATED_AT, this.updatedAt, updatedAt);
         this.updatedAt = updatedAt;
     }
 
+    // Dirty-field tracking
+    /**
+     * @return bit mask of the fields changed since the contact was loaded or last saved
+     *         (bit {@code 1 << field.ordinal()} per {@link ContactField})
+     */
+    public int getDirtyFields()
+    {
+        return dirtyFields;
+    }
+
+    public boolean isDirty(ContactField field)
+    {
+        return (dirtyFields & (1 << field.ordinal())) != 0;
+    }
+
+    /**
+     * Marks the contact as in sync with the database; called after it has been saved.
+     * The saved {@code updated_at} becomes the new version.
+     */
+    public void clearDirtyFields()
+    {
+        dirtyFields = 0;
+        version = updatedAt;
+    }
+
+    /**
+     * @return {@code updated_at} as last read from or written to the database, or null
+     */
+    public LocalDateTime getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Copies the fields changed on this contact onto another copy of the same row,
+     * e.g. to re-apply an edit to a freshly loaded version after a conflict.
+     *
+     * @param target the contact to change; its own dirty bits are set accordingly
+     */
+    public void applyChangesTo(Contact target)
+    {
+        for (ContactField field : ContactField.values())
+        {
+            if (!isDirty(field))
+            {
+                continue;
+            }
+            switch (field)
+            {
+                case FIRST_NAME -> target.setFirstName(firstName);
+                case MIDDLE_NAME -> target.setMiddleName(middleName);
+                case LAST_NAME -> target.setLastName(lastName);
+                case NICKNAME -> target.setNickname(nickname);
+                case PHONE_PRIMARY -> target.setPhonePrimary(phonePrimary);
+                case PHONE_SECONDARY -> target.setPhoneSecondary(phoneSecondary);
+                case EMAIL -> target.setEmail(email);
+                case LINKEDIN_URL -> target.setLinkedinUrl(linkedinUrl);
+                case BIRTH_DATE -> target.setBirthDate(birthDate);
+                case CREATED_AT -> target.setCreatedAt(createdAt);
+                case UPDATED_AT ->
+                {
+                    // The target gets its own new version when it is saved
+                }
+            }
+        }
+    }
+
+    private void track(ContactField field, Object oldValue, Object newValue)
+    {
+        if (!Objects.equals(oldValue, newValue))
+        {
+            dirtyFields |= 1 << field.ordinal();
+        }
+    }
+
     // Validation methods
     public boolean isValidEmail(String email)
     {
@@ -197,9 +317,18 @@ public class Contact
         return birthDate != null && birthDate.plusYears(18).isBefore(LocalDate.now());
     }
 
+    /**
+     * Sets {@code updated_at} to now, truncated to the column's whole seconds and always
+     * later than the current version, so every save produces a new version.
+     */
     public void updateTimestamp()
     {
-        this.updatedAt = LocalDateTime.now();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        if (version != null && !now.isAfter(version))
+        {
+            now = version.plusSeconds(1);
+        }
+        setUpdatedAt(now);
     }
 
     @Override
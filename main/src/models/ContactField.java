@@ -0,0 +1,99 @@
+package models;
+
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Persistent columns of the {@code contacts} table, excluding the {@code contact_id} key.
+ */
+public enum ContactField
+{
+    FIRST_NAME("first_name", Types.VARCHAR, Contact::getFirstName),
+    MIDDLE_NAME("middle_name", Types.VARCHAR, Contact::getMiddleName),
+    LAST_NAME("last_name", Types.VARCHAR, Contact::getLastName),
+    NICKNAME("nickname", Types.VARCHAR, Contact::getNickname),
+    PHONE_PRIMARY("phone_primary", Types.VARCHAR, Contact::getPhonePrimary),
+    PHONE_SECONDARY("phone_secondary", Types.VARCHAR, Contact::getPhoneSecondary),
+    EMAIL("email", Types.VARCHAR, Contact::getEmail),
+    LINKEDIN_URL("linkedin_url", Types.VARCHAR, Contact::getLinkedinUrl),
+    BIRTH_DATE("birth_date", Types.DATE, Contact::getBirthDate),
+    CREATED_AT("created_at", Types.TIMESTAMP, Contact::getCreatedAt),
+    UPDATED_AT("updated_at", Types.TIMESTAMP, Contact::getUpdatedAt);
+
+    private final String column;
+    private final int sqlType;
+    private final Function<Contact, Object> getter;
+
+    ContactField(String column, int sqlType, Function<Contact, Object> getter)
+    {
+        this.column = column;
+        this.sqlType = sqlType;
+        this.getter = getter;
+    }
+
+    public String column()
+    {
+        return column;
+    }
+
+    /**
+     * @return the {@link Types} constant of the column
+     */
+    public int sqlType()
+    {
+        return sqlType;
+    }
+
+    /**
+     * @param contact the contact to read
+     * @return the field value in its Java type ({@code String}, {@code LocalDate} or {@code LocalDateTime}), or null
+     */
+    public Object get(Contact contact)
+    {
+        return getter.apply(contact);
+    }
+
+    /**
+     * @param contact the contact to read
+     * @return the field value as text (ISO format for dates), or null
+     */
+    public String read(Contact contact)
+    {
+        Object value = getter.apply(contact);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * @param column a column name of the {@code contacts} table
+     * @return the matching field, or null if the column is unknown
+     */
+    public static ContactField fromColumn(String column)
+    {
+        for (ContactField field : values())
+        {
+            if (field.column.equals(column))
+            {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Captures every field of a contact as column name to text value.
+     *
+     * @param contact the contact to capture
+     * @return an ordered snapshot of the contact's columns
+     */
+    public static Map<String, String> snapshot(Contact contact)
+    {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (ContactField field : values())
+        {
+            values.put(field.column, field.read(contact));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,113 @@
+package models;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compact field-level diff of one updated row.
+ * <p>
+ * Only the fields whose value changed are kept, each as a one-byte field id
+ * (the ordinal of {@link ContactField} or {@link UserField}) plus its old and
+ * new value, so an update that touched one column costs a few dozen bytes
+ * instead of a full copy of the row.
+ */
+public class FieldDelta
+{
+    private final UndoEntry.EntityType entityType;
+    private final byte[] fieldIds;
+    private final String[] oldValues;
+    private final String[] newValues;
+
+    private FieldDelta(UndoEntry.EntityType entityType, byte[] fieldIds, String[] oldValues, String[] newValues)
+    {
+        this.entityType = entityType;
+        this.fieldIds = fieldIds;
+        this.oldValues = oldValues;
+        this.newValues = newValues;
+    }
+
+    /**
+     * Builds the diff between two column snapshots of the same row.
+     *
+     * @param entityType table the snapshots belong to
+     * @param before     column values before the change
+     * @param after      column values after the change
+     * @return the diff containing only the changed columns
+     */
+    public static FieldDelta between(UndoEntry.EntityType entityType, Map<String, String> before, Map<String, String> after)
+    {
+        int changed = 0;
+        byte[] ids = new byte[after.size()];
+        String[] olds = new String[after.size()];
+        String[] news = new String[after.size()];
+        for (Map.Entry<String, String> entry : after.entrySet())
+        {
+            String oldValue = before.get(entry.getKey());
+            if (!Objects.equals(oldValue, entry.getValue()))
+            {
+                ids[changed] = (byte) entityType.fieldId(entry.getKey());
+                olds[changed] = oldValue;
+                news[changed] = entry.getValue();
+                changed++;
+            }
+        }
+        return new FieldDelta(entityType,
+                Arrays.copyOf(ids, changed),
+                Arrays.copyOf(olds, changed),
+                Arrays.copyOf(news, changed));
+    }
+
+    /**
+     * @return true if no field changed
+     */
+    public boolean isEmpty()
+    {
+        return fieldIds.length == 0;
+    }
+
+    /**
+     * @return the changed columns with their old values, in field order
+     */
+    public Map<String, String> oldValues()
+    {
+        return toMap(oldValues);
+    }
+
+    /**
+     * @return the changed columns with their new values, in field order
+     */
+    public Map<String, String> newValues()
+    {
+        return toMap(newValues);
+    }
+
+    /**
+     * @return an estimate of the heap bytes held by this diff
+     */
+    public long estimatedBytes()
+    {
+        long bytes = 64 + fieldIds.length;
+        for (int i = 0; i < fieldIds.length; i++)
+        {
+            bytes += 16 + stringBytes(oldValues[i]) + stringBytes(newValues[i]);
+        }
+        return bytes;
+    }
+
+    private Map<String, String> toMap(String[] values)
+    {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < fieldIds.length; i++)
+        {
+            map.put(entityType.columnOf(fieldIds[i]), values[i]);
+        }
+        return map;
+    }
+
+    static long stringBytes(String value)
+    {
+        return value == null ? 0 : 40 + value.length();
+    }
+}
@@ -0,0 +1,358 @@
+package models;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One reversible operation in a user's undo journal.
+ * <p>
+ * ADD and DELETE entries store the full row, UPDATE entries only a
+ * {@link FieldDelta} of the changed fields. That is enough to apply the inverse
+ * (undo) or the original operation again (redo).
+ * <p>
+ * BULK_UPDATE and BULK_DELETE entries cover every row touched by one bulk
+ * operation. They store one column snapshot per row, each including the id column:
+ * the changed columns before and after for a bulk update, the full rows for a
+ * bulk delete.
+ */
+public class UndoEntry
+{
+    /**
+     * Tables whose changes can be undone.
+     */
+    public enum EntityType
+    {
+        CONTACT("contacts", "contact_id"),
+        USER("users", "user_id");
+
+        private final String table;
+        private final String idColumn;
+
+        EntityType(String table, String idColumn)
+        {
+            this.table = table;
+            this.idColumn = idColumn;
+        }
+
+        public String table()
+        {
+            return table;
+        }
+
+        public String idColumn()
+        {
+            return idColumn;
+        }
+
+        /**
+         * @param column a column of this entity's table
+         * @return its {@link java.sql.Types} constant
+         * @throws IllegalArgumentException if the column does not belong to the table
+         */
+        public int sqlTypeOf(String column)
+        {
+            if (this == CONTACT)
+            {
+                ContactField field = ContactField.fromColumn(column);
+                if (field != null)
+                {
+                    return field.sqlType();
+                }
+            }
+            else
+            {
+                UserField field = UserField.fromColumn(column);
+                if (field != null)
+                {
+                    return field.sqlType();
+                }
+            }
+            throw new IllegalArgumentException("Unknown column for " + table + ": " + column);
+        }
+
+        /**
+         * @param column a column of this entity's table
+         * @return the compact field id of the column (its field enum ordinal)
+         */
+        public int fieldId(String column)
+        {
+            Enum<?> field = this == CONTACT ? ContactField.fromColumn(column) : UserField.fromColumn(column);
+            if (field == null)
+            {
+                throw new IllegalArgumentException("Unknown column for " + table + ": " + column);
+            }
+            return field.ordinal();
+        }
+
+        /**
+         * @param fieldId a field id returned by {@link #fieldId(String)}
+         * @return the column name
+         */
+        public String columnOf(int fieldId)
+        {
+            return this == CONTACT ? ContactField.values()[fieldId].column() : UserField.values()[fieldId].column();
+        }
+    }
+
+    /**
+     * Kind of change that was recorded.
+     */
+    public enum Operation
+    {
+        ADD,
+        UPDATE,
+        DELETE,
+        BULK_UPDATE,
+        BULK_DELETE;
+
+        /**
+         * @return true for operations that cover many rows
+         */
+        public boolean isBulk()
+        {
+            return this == BULK_UPDATE || this == BULK_DELETE;
+        }
+    }
+
+    private long entryId;
+    private final int userId;
+    private final EntityType entityType;
+    private final Operation operation;
+    private final int entityId;
+    // Full row snapshot for ADD/DELETE, field-level diff for UPDATE
+    private final Map<String, String> snapshot;
+    private final FieldDelta delta;
+    // Per-row snapshots of bulk operations
+    private final List<Map<String, String>> beforeRows;
+    private final List<Map<String, String>> afterRows;
+    private boolean undone;
+    private LocalDateTime createdAt;
+
+    /**
+     * Creates an ADD or DELETE entry holding the full row.
+     *
+     * @param userId     user who performed the operation
+     * @param entityType table that was changed
+     * @param operation  {@link Operation#ADD} or {@link Operation#DELETE}
+     * @param entityId   primary key of the changed row
+     * @param snapshot   column values of the added row, or of the deleted row before deletion
+     */
+    public UndoEntry(int userId, EntityType entityType, Operation operation, int entityId, Map<String, String> snapshot)
+    {
+        if (operation != Operation.ADD && operation != Operation.DELETE)
+        {
+            throw new IllegalArgumentException("Only add and delete entries hold a single row: " + operation);
+        }
+        this.userId = userId;
+        this.entityType = entityType;
+        this.operation = operation;
+        this.entityId = entityId;
+        this.snapshot = snapshot;
+        this.delta = null;
+        this.beforeRows = null;
+        this.afterRows = null;
+    }
+
+    /**
+     * Creates an UPDATE entry holding only the changed fields.
+     *
+     * @param userId     user who performed the operation
+     * @param entityType table that was changed
+     * @param entityId   primary key of the changed row
+     * @param delta      changed fields with their old and new values
+     */
+    public UndoEntry(int userId, EntityType entityType, int entityId, FieldDelta delta)
+    {
+        this.userId = userId;
+        this.entityType = entityType;
+        this.operation = Operation.UPDATE;
+        this.entityId = entityId;
+        this.snapshot = null;
+        this.delta = delta;
+        this.beforeRows = null;
+        this.afterRows = null;
+    }
+
+    /**
+     * Creates a BULK_UPDATE or BULK_DELETE entry covering many rows.
+     *
+     * @param userId     user who performed the operation
+     * @param entityType table that was changed
+     * @param operation  {@link Operation#BULK_UPDATE} or {@link Operation#BULK_DELETE}
+     * @param beforeRows per-row values before the operation, each with the id column
+     * @param afterRows  per-row values after a bulk update (same order), null for a bulk delete
+     */
+    public UndoEntry(int userId, EntityType entityType, Operation operation,
+                     List<Map<String, String>> beforeRows, List<Map<String, String>> afterRows)
+    {
+        if (!operation.isBulk())
+        {
+            throw new IllegalArgumentException("Not a bulk operation: " + operation);
+        }
+        this.userId = userId;
+        this.entityType = entityType;
+        this.operation = operation;
+        this.entityId = 0;
+        this.snapshot = null;
+        this.delta = null;
+        this.beforeRows = beforeRows;
+        this.afterRows = afterRows;
+    }
+
+    public long getEntryId()
+    {
+        return entryId;
+    }
+
+    public void setEntryId(long entryId)
+    {
+        this.entryId = entryId;
+    }
+
+    public int getUserId()
+    {
+        return userId;
+    }
+
+    public EntityType getEntityType()
+    {
+        return entityType;
+    }
+
+    public Operation getOperation()
+    {
+        return operation;
+    }
+
+    public int getEntityId()
+    {
+        return entityId;
+    }
+
+    /**
+     * @return column values before the operation (only changed columns for UPDATE, null for ADD)
+     */
+    public Map<String, String> getBefore()
+    {
+        return switch (operation)
+        {
+            case ADD, BULK_UPDATE, BULK_DELETE -> null;
+            case UPDATE -> delta.oldValues();
+            case DELETE -> snapshot;
+        };
+    }
+
+    /**
+     * @return column values after the operation (only changed columns for UPDATE, null for DELETE)
+     */
+    public Map<String, String> getAfter()
+    {
+        return switch (operation)
+        {
+            case ADD -> snapshot;
+            case UPDATE -> delta.newValues();
+            case DELETE, BULK_UPDATE, BULK_DELETE -> null;
+        };
+    }
+
+    /**
+     * @return per-row values before a bulk operation, or null for single-row entries
+     */
+    public List<Map<String, String>> getBeforeRows()
+    {
+        return beforeRows;
+    }
+
+    /**
+     * @return per-row values after a bulk update, or null
+     */
+    public List<Map<String, String>> getAfterRows()
+    {
+        return afterRows;
+    }
+
+    /**
+     * @return an estimate of the heap bytes held by this entry
+     */
+    public long estimatedBytes()
+    {
+        long bytes = 64;
+        if (delta != null)
+        {
+            bytes += delta.estimatedBytes();
+        }
+        else if (snapshot != null)
+        {
+            bytes += estimatedBytes(snapshot);
+        }
+        else
+        {
+            for (Map<String, String> row : beforeRows)
+            {
+                bytes += 16 + estimatedBytes(row);
+            }
+            if (afterRows != null)
+            {
+                for (Map<String, String> row : afterRows)
+                {
+                    bytes += 16 + estimatedBytes(row);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static long estimatedBytes(Map<String, String> row)
+    {
+        long bytes = 0;
+        for (Map.Entry<String, String> entry : row.entrySet())
+        {
+            bytes += 32 + FieldDelta.stringBytes(entry.getKey()) + FieldDelta.stringBytes(entry.getValue());
+        }
+        return bytes;
+    }
+
+    public boolean isUndone()
+    {
+        return undone;
+    }
+
+    public void setUndone(boolean undone)
+    {
+        this.undone = undone;
+    }
+
+    public LocalDateTime getCreatedAt()
+    {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt)
+    {
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * @return short human-readable description, e.g. {@code UPDATE CONTACT #12}
+     */
+    public String describe()
+    {
+        if (operation.isBulk())
+        {
+            return operation + " " + entityType + " (" + beforeRows.size() + " rows)";
+        }
+        return operation + " " + entityType + " #" + entityId;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "UndoEntry {" +
+                " entryId = " + entryId +
+                ", " + describe() +
+                ", undone = " + undone +
+                ", createdAt = " + createdAt +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package models;
+
+import java.time.LocalDate;
+
+/**
+ * A contact's next birthday inside a queried date range.
+ */
+public class UpcomingBirthday
+{
+    private final int contactId;
+    private final String fullName;
+    private final LocalDate birthDate;
+    private final LocalDate date;
+
+    /**
+     * @param contactId id of the contact
+     * @param fullName  display name of the contact
+     * @param birthDate the contact's date of birth
+     * @param date      the date the birthday falls on (Feb 28 for Feb 29 births in non-leap years)
+     */
+    public UpcomingBirthday(int contactId, String fullName, LocalDate birthDate, LocalDate date)
+    {
+        this.contactId = contactId;
+        this.fullName = fullName;
+        this.birthDate = birthDate;
+        this.date = date;
+    }
+
+    public int getContactId()
+    {
+        return contactId;
+    }
+
+    public String getFullName()
+    {
+        return fullName;
+    }
+
+    public LocalDate getBirthDate()
+    {
+        return birthDate;
+    }
+
+    public LocalDate getDate()
+    {
+        return date;
+    }
+
+    public int getTurningAge()
+    {
+        return date.getYear() - birthDate.getYear();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "UpcomingBirthday {" +
+                " date = " + date +
+                ", contactId = " + contactId +
+                ", fullName = '" + fullName + '\'' +
+                ", turningAge = " + getTurningAge() +
+                '}';
+    }
+}
@@ -3,9 +3,12 @@ package models;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.Objects;
 
 /**
  * Domain model representing a user record from the {@code users} table.
+ * <p>
+ * Like {@link Contact}, a user tracks which {@link UserField}s its setters changed.
  */
 public class User
 {
@@ -17,6 +20,9 @@ public class User
     private String userRole;
     private LocalDateTime createdAt;
 
+    // Bit (1 << UserField.ordinal()) is set for every field changed since load or last save
+    private int dirtyFields;
+
     /**
      * Default no-arg constructor.
      */
@@ -88,6 +94,7 @@ public class User
     {
         if (username != null && !username.isEmpty())
         {
+            track(UserField.USERNAME, this.username, username);
             this.username = username;
         }
     }
@@ -97,6 +104,7 @@ public class User
         // Example: ensure password hash is not empty
         if (passwordHash != null && !passwordHash.isEmpty())
         {
+            track(UserField.PASSWORD_HASH, this.passwordHash, passwordHash);
             this.passwordHash = passwordHash;
         }
     }
@@ -105,6 +113,7 @@ public class User
     {
         if (firstName != null && !firstName.isEmpty())
         {
+            track(UserField.FIRST_NAME, this.firstName, firstName);
             this.firstName = firstName;
         }
     }
@@ -113,6 +122,7 @@ public class User
     {
         if (lastName != null && !lastName.isEmpty())
         {
+            track(UserField.LAST_NAME, this.lastName, lastName);
             this.lastName = lastName;
         }
     }
@@ -122,15 +132,43 @@ public class User
         // Accept any non-empty role string; higher layers map it to an enum if needed
         if (userRole != null && !userRole.isEmpty())
         {
+            track(UserField.USER_ROLE, this.userRole, userRole);
             this.userRole = userRole;
         }
     }
 
     public void setCreatedAt(LocalDateTime createdAt)
     {
+        track(UserField.CREATED_AT, this.createdAt, createdAt);
         this.createdAt = createdAt;
     }
 
+    // Dirty-field tracking
+    /**
+     * @return bit mask of the fields changed since the user was loaded or last saved
+     *         (bit {@code 1 << field.ordinal()} per {@link UserField})
+     */
+    public int getDirtyFields()
+    {
+        return dirtyFields;
+    }
+
+    /**
+     * Marks the user as in sync with the database; called after it has been saved.
+     */
+    public void clearDirtyFields()
+    {
+        dirtyFields = 0;
+    }
+
+    private void track(UserField field, Object oldValue, Object newValue)
+    {
+        if (!Objects.equals(oldValue, newValue))
+        {
+            dirtyFields |= 1 << field.ordinal();
+        }
+    }
+
     // Other methods
     @Override
     public String toString()
@@ -0,0 +1,94 @@
+package models;
+
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Persistent columns of the {@code users} table, excluding the {@code user_id} key.
+ */
+public enum UserField
+{
+    USERNAME("username", Types.VARCHAR, User::getUsername),
+    PASSWORD_HASH("password_hash", Types.VARCHAR, User::getPasswordHash),
+    FIRST_NAME("first_name", Types.VARCHAR, User::getFirstName),
+    LAST_NAME("last_name", Types.VARCHAR, User::getLastName),
+    USER_ROLE("user_role", Types.VARCHAR, User::getUserRole),
+    CREATED_AT("created_at", Types.TIMESTAMP, User::getCreatedAt);
+
+    private final String column;
+    private final int sqlType;
+    private final Function<User, Object> getter;
+
+    UserField(String column, int sqlType, Function<User, Object> getter)
+    {
+        this.column = column;
+        this.sqlType = sqlType;
+        this.getter = getter;
+    }
+
+    public String column()
+    {
+        return column;
+    }
+
+    /**
+     * @return the {@link Types} constant of the column
+     */
+    public int sqlType()
+    {
+        return sqlType;
+    }
+
+    /**
+     * @param user the user to read
+     * @return the field value in its Java type ({@code String}, {@code LocalDate} or {@code LocalDateTime}), or null
+     */
+    public Object get(User user)
+    {
+        return getter.apply(user);
+    }
+
+    /**
+     * @param user the user to read
+     * @return the field value as text (ISO format for timestamps), or null
+     */
+    public String read(User user)
+    {
+        Object value = getter.apply(user);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * @param column a column name of the {@code users} table
+     * @return the matching field, or null if the column is unknown
+     */
+    public static UserField fromColumn(String column)
+    {
+        for (UserField field : values())
+        {
+            if (field.column.equals(column))
+            {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Captures every field of a user as column name to text value.
+     *
+     * @param user the user to capture
+     * @return an ordered snapshot of the user's columns
+     */
+    public static Map<String, String> snapshot(User user)
+    {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (UserField field : values())
+        {
+            values.put(field.column, field.read(user));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,547 @@
+package mutationlog;
+
+import config.Config;
+import models.UndoEntry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of committed contact and user mutations, kept in local files.
+ * <p>
+ * The log is a sequence of fixed-size segment files named after the sequence number
+ * of their first record ({@code mutations-00000000000000000001.log}). The active
+ * segment is memory-mapped, so an append is a copy into the page cache. Each record
+ * is framed as {@code [payload length][CRC32C of payload][payload]}; a zero length
+ * marks the end of the written part of a segment, and a record that does not fit
+ * rotates to a new segment.
+ * <p>
+ * Durability uses group commit: a background thread forces the mapped segment to
+ * disk every {@code flushIntervalMillis}, or immediately when a caller waits in
+ * {@link #awaitDurable(long)}. All records appended up to that point share the
+ * same force, so concurrent writers pay for one disk flush per batch.
+ * <p>
+ * On open, the last segment is scanned and everything after its last valid record
+ * (a torn or stale write) is zeroed before appending resumes. Only one process can
+ * have a directory open: the log holds an exclusive lock on {@code mutationlog.lock}
+ * in it until it is closed, and opening fails while another process holds that lock.
+ */
+public class MutationLog implements AutoCloseable
+{
+    private static final int MAGIC = 0x4D4C4F47; // "MLOG"
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final String SEGMENT_PREFIX = "mutations-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String LOCK_FILE = "mutationlog.lock";
+
+    private static final Object sharedLock = new Object();
+    private static MutationLog shared;
+    private static boolean sharedInitialized = false;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long flushIntervalMillis;
+    private final Thread flusher;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    // Guarded by this
+    private Path segmentFile;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private long nextSequence;
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean flushRequested = false;
+    private boolean closed = false;
+    private boolean stopped = false;
+
+    /**
+     * Opens (or creates) the log in the given directory and starts its flusher thread.
+     *
+     * @param directory           directory holding the segment files
+     * @param segmentBytes        size of each segment file
+     * @param flushIntervalMillis maximum time an appended record stays unforced
+     * @throws IOException if the directory or the last segment cannot be opened, or another
+     *                     process is using the directory
+     */
+    public MutationLog(Path directory, int segmentBytes, long flushIntervalMillis) throws IOException
+    {
+        if (segmentBytes < SEGMENT_HEADER_BYTES + RECORD_HEADER_BYTES + MutationRecord.FIXED_BYTES)
+        {
+            throw new IllegalArgumentException("Segment size too small: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.flushIntervalMillis = flushIntervalMillis;
+
+        Files.createDirectories(directory);
+        // Recovery zeroes the tail of the last segment, so it must never run while another process appends there
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try
+        {
+            lock = lockChannel.tryLock();
+        }
+        catch (IOException | OverlappingFileLockException e)
+        {
+            lockChannel.close();
+            throw new IOException("cannot lock " + directory + ": " + e.getMessage(), e);
+        }
+        if (lock == null)
+        {
+            lockChannel.close();
+            throw new IOException(directory + " is in use by another process");
+        }
+        try
+        {
+            List<Path> segments = listSegments();
+            if (segments.isEmpty())
+            {
+                openSegment(1);
+            }
+            else
+            {
+                recover(segments.get(segments.size() - 1));
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            lockChannel.close();
+            throw e;
+        }
+        appendedSequence = nextSequence - 1;
+        durableSequence = appendedSequence;
+
+        flusher = new Thread(this::runFlusher, "mutation-log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Returns the process-wide log configured by the {@code mutationlog.*} settings,
+     * opening it on first use. The application's service registry closes it on shutdown.
+     *
+     * @return the shared log, or null if it is disabled or could not be opened
+     */
+    public static MutationLog shared()
+    {
+        synchronized (sharedLock)
+        {
+            if (!sharedInitialized)
+            {
+                sharedInitialized = true;
+                if (Config.getBoolean("mutationlog.enabled", true))
+                {
+                    try
+                    {
+                        shared = new MutationLog(
+                                Paths.get(Config.get("mutationlog.dir", "data/mutations")),
+                                Config.getInt("mutationlog.segmentBytes", 16 * 1024 * 1024),
+                                Config.getLong("mutationlog.flushIntervalMillis", 200L));
+                    }
+                    catch (IOException e)
+                    {
+                        System.out.println("Warning: mutation log disabled (" + e.getMessage() + ")");
+                    }
+                }
+            }
+            return shared;
+        }
+    }
+
+    /**
+     * Closes the shared log if it was opened; see {@link #close()}.
+     */
+    public static void closeShared()
+    {
+        synchronized (sharedLock)
+        {
+            if (shared != null)
+            {
+                shared.close();
+            }
+        }
+    }
+
+    /**
+     * Appends a mutation. The record is in the page cache when this returns; call
+     * {@link #awaitDurable(long)} to wait until it is on disk.
+     *
+     * @param entityType table that was changed
+     * @param operation  kind of change
+     * @param entityId   primary key of the changed row
+     * @param values     written column values, or null for DELETE
+     * @return the sequence number of the record
+     * @throws IOException if the log is closed or a new segment cannot be created
+     */
+    public synchronized long append(UndoEntry.EntityType entityType, UndoEntry.Operation operation,
+                                    int entityId, Map<String, String> values) throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("Mutation log is closed");
+        }
+        long sequence = nextSequence;
+        byte[] payload = new MutationRecord(sequence, Instant.now(), entityType, operation, entityId, values).encode();
+        int needed = RECORD_HEADER_BYTES + payload.length;
+        if (needed > segmentBytes - SEGMENT_HEADER_BYTES)
+        {
+            throw new IOException("Mutation record of " + needed + " bytes does not fit in a segment");
+        }
+        if (segment.remaining() < needed)
+        {
+            rotate(sequence);
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        segment.putInt(payload.length);
+        segment.putInt((int) crc.getValue());
+        segment.put(payload);
+
+        nextSequence++;
+        appendedSequence = sequence;
+        return sequence;
+    }
+
+    /**
+     * Blocks until every record up to the given sequence number has been forced to disk.
+     *
+     * @param sequence a sequence number returned by {@link #append}
+     * @throws IOException if the log was closed before the record became durable
+     */
+    public synchronized void awaitDurable(long sequence) throws IOException
+    {
+        if (durableSequence >= sequence)
+        {
+            return;
+        }
+        flushRequested = true;
+        notifyAll();
+        boolean interrupted = false;
+        while (durableSequence < sequence && !stopped)
+        {
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+        if (durableSequence < sequence)
+        {
+            throw new IOException("Mutation log closed before record " + sequence + " was flushed");
+        }
+    }
+
+    /**
+     * Reads every valid record with a sequence number of at least {@code fromSequence},
+     * in order, across all segments. Records appended while the replay runs are not included.
+     *
+     * @param fromSequence first sequence number of interest
+     * @param consumer     receives the records
+     * @throws IOException if a segment cannot be read
+     */
+    public void replay(long fromSequence, Consumer<MutationRecord> consumer) throws IOException
+    {
+        long lastSequence;
+        synchronized (this)
+        {
+            lastSequence = appendedSequence;
+        }
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++)
+        {
+            // Skip whole segments that end before the requested sequence
+            if (i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) <= fromSequence)
+            {
+                continue;
+            }
+            boolean more = scan(segments.get(i), record ->
+            {
+                if (record.getSequence() >= fromSequence && record.getSequence() <= lastSequence)
+                {
+                    consumer.accept(record);
+                }
+            }) <= lastSequence;
+            if (!more)
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the sequence number of the newest appended record (0 if the log is empty)
+     */
+    public synchronized long getLastSequence()
+    {
+        return appendedSequence;
+    }
+
+    /**
+     * @return the sequence number of the newest record known to be on disk
+     */
+    public synchronized long getDurableSequence()
+    {
+        return durableSequence;
+    }
+
+    /**
+     * Forces outstanding records to disk and stops the flusher thread.
+     */
+    @Override
+    public void close()
+    {
+        synchronized (this)
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try
+        {
+            flusher.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this)
+        {
+            segment.force();
+            durableSequence = appendedSequence;
+            closeChannel();
+            releaseLock();
+            stopped = true;
+            notifyAll();
+        }
+    }
+
+    // Group commit loop: one force covers every record appended since the previous one
+    private void runFlusher()
+    {
+        while (true)
+        {
+            MappedByteBuffer toForce;
+            long target;
+            synchronized (this)
+            {
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (!closed && !flushRequested)
+                {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0 && appendedSequence > durableSequence)
+                    {
+                        break;
+                    }
+                    if (remaining <= 0)
+                    {
+                        deadline = System.currentTimeMillis() + flushIntervalMillis;
+                        remaining = flushIntervalMillis;
+                    }
+                    try
+                    {
+                        wait(remaining);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                }
+                if (closed)
+                {
+                    return;
+                }
+                flushRequested = false;
+                toForce = segment;
+                target = appendedSequence;
+            }
+
+            // Outside the lock so appends continue while the disk flush runs
+            toForce.force();
+
+            synchronized (this)
+            {
+                if (target > durableSequence)
+                {
+                    durableSequence = target;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Called with the lock held; earlier records are forced so durability stays in sequence order
+    private void rotate(long firstSequence) throws IOException
+    {
+        segment.force();
+        durableSequence = appendedSequence;
+        notifyAll();
+        closeChannel();
+        openSegment(firstSequence);
+    }
+
+    private void openSegment(long firstSequence) throws IOException
+    {
+        segmentFile = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        segmentChannel = FileChannel.open(segmentFile,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segment.putInt(MAGIC);
+        segment.putInt(VERSION);
+        segment.putLong(firstSequence);
+        segment.force();
+        nextSequence = firstSequence;
+    }
+
+    // Reopens the last segment and positions after its last valid record
+    private void recover(Path file) throws IOException
+    {
+        long firstSequence = firstSequenceOf(file);
+        long[] last = {firstSequence - 1};
+        int end = scanForEnd(file, record -> last[0] = record.getSequence());
+
+        segmentFile = file;
+        segmentChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(segmentBytes, segmentChannel.size());
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        // Zero everything after the last valid record so stale bytes are never read as records
+        for (int i = end; i < size; i++)
+        {
+            if (segment.get(i) != 0)
+            {
+                segment.put(i, (byte) 0);
+            }
+        }
+        segment.position(end);
+        segment.force();
+        nextSequence = last[0] + 1;
+    }
+
+    // Returns the sequence number following the last valid record of the segment
+    private static long scan(Path file, Consumer<MutationRecord> consumer) throws IOException
+    {
+        long[] last = {firstSequenceOf(file) - 1};
+        scanForEnd(file, record ->
+        {
+            last[0] = record.getSequence();
+            consumer.accept(record);
+        });
+        return last[0] + 1;
+    }
+
+    // Reads records until the end marker, a checksum mismatch or a sequence gap; returns that offset
+    private static int scanForEnd(Path file, Consumer<MutationRecord> consumer) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < SEGMENT_HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            {
+                throw new IOException("Not a mutation log segment: " + file);
+            }
+            long expected = buffer.getLong();
+            CRC32C crc = new CRC32C();
+            while (buffer.remaining() >= RECORD_HEADER_BYTES)
+            {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < MutationRecord.FIXED_BYTES || length > buffer.remaining())
+                {
+                    return start;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum)
+                {
+                    return start;
+                }
+                MutationRecord record = MutationRecord.decode(payload);
+                if (record.getSequence() != expected)
+                {
+                    return start;
+                }
+                consumer.accept(record);
+                expected++;
+            }
+            return buffer.position();
+        }
+    }
+
+    private List<Path> listSegments() throws IOException
+    {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory))
+        {
+            files.filter(p ->
+                    {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private static long firstSequenceOf(Path file)
+    {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // Closing the channel releases the directory lock as well
+    private void releaseLock()
+    {
+        try
+        {
+            lockChannel.close();
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    private void closeChannel()
+    {
+        try
+        {
+            segmentChannel.close();
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+}
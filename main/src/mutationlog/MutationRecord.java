@@ -0,0 +1,123 @@
+package mutationlog;
+
+import models.UndoEntry;
+import utils.ColumnCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One committed change to the {@code contacts} or {@code users} table as stored in
+ * the {@link MutationLog}.
+ * <p>
+ * ADD records carry the full row, UPDATE records the written columns and DELETE
+ * records no values. Applying the records of a log in sequence order to an empty
+ * copy of the tables rebuilds their current contents.
+ */
+public class MutationRecord
+{
+    // Fixed part of the payload: sequence, timestamp, entity type, operation, entity id, values flag
+    static final int FIXED_BYTES = 8 + 8 + 1 + 1 + 4 + 1;
+
+    private final long sequence;
+    private final Instant timestamp;
+    private final UndoEntry.EntityType entityType;
+    private final UndoEntry.Operation operation;
+    private final int entityId;
+    private final Map<String, String> values;
+
+    public MutationRecord(long sequence, Instant timestamp, UndoEntry.EntityType entityType,
+                          UndoEntry.Operation operation, int entityId, Map<String, String> values)
+    {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.entityType = entityType;
+        this.operation = operation;
+        this.entityId = entityId;
+        this.values = values;
+    }
+
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    public Instant getTimestamp()
+    {
+        return timestamp;
+    }
+
+    public UndoEntry.EntityType getEntityType()
+    {
+        return entityType;
+    }
+
+    public UndoEntry.Operation getOperation()
+    {
+        return operation;
+    }
+
+    public int getEntityId()
+    {
+        return entityId;
+    }
+
+    /**
+     * @return written column values ({@code column -> value}), or null for DELETE
+     */
+    public Map<String, String> getValues()
+    {
+        return values;
+    }
+
+    /**
+     * Serializes the record payload (everything except the length and checksum header).
+     */
+    byte[] encode()
+    {
+        byte[] text = values == null ? new byte[0] : ColumnCodec.encode(values).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_BYTES + text.length);
+        buffer.putLong(sequence);
+        buffer.putLong(timestamp.toEpochMilli());
+        buffer.put((byte) entityType.ordinal());
+        buffer.put((byte) operation.ordinal());
+        buffer.putInt(entityId);
+        buffer.put((byte) (values == null ? 0 : 1));
+        buffer.put(text);
+        return buffer.array();
+    }
+
+    /**
+     * @param payload bytes produced by {@link #encode()}
+     * @return the decoded record
+     */
+    static MutationRecord decode(byte[] payload)
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long sequence = buffer.getLong();
+        Instant timestamp = Instant.ofEpochMilli(buffer.getLong());
+        UndoEntry.EntityType entityType = UndoEntry.EntityType.values()[buffer.get()];
+        UndoEntry.Operation operation = UndoEntry.Operation.values()[buffer.get()];
+        int entityId = buffer.getInt();
+        boolean hasValues = buffer.get() != 0;
+        Map<String, String> values = null;
+        if (hasValues)
+        {
+            values = ColumnCodec.decode(new String(payload, FIXED_BYTES, payload.length - FIXED_BYTES, StandardCharsets.UTF_8));
+        }
+        return new MutationRecord(sequence, timestamp, entityType, operation, entityId, values);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MutationRecord {" +
+                " sequence = " + sequence +
+                ", timestamp = " + timestamp +
+                ", " + operation + " " + entityType + " #" + entityId +
+                ", values = " + values +
+                '}';
+    }
+}
@@ -0,0 +1,140 @@
+package server;
+
+import app.Application;
+import config.Config;
+import services.ServiceRegistry;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the console application to many users of one JVM over plain TCP
+ * (e.g. {@code telnet host 2323} or {@code nc host 2323}).
+ * <p>
+ * Every connection gets its own virtual thread running the usual login and role
+ * menus with a {@link Scanner} on the socket, while {@link SessionPrintStream}
+ * sends that thread's {@code System.out} to the socket. Connection pool, caches and
+ * indexes are static and therefore shared by all sessions. At most
+ * {@code server.maxSessions} (default 50) sessions run at once; further
+ * connections are told to retry later. On shutdown the server stops accepting
+ * and waits for the running sessions until the shutdown timeout.
+ */
+public class ConsoleServer
+{
+    private static final int MAX_SESSIONS = Config.getInt("server.maxSessions", 50);
+
+    private final int port;
+    private final Semaphore sessions = new Semaphore(MAX_SESSIONS);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SessionPrintStream out;
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * @param port TCP port to listen on
+     */
+    public ConsoleServer(int port)
+    {
+        this.port = port;
+        this.out = new SessionPrintStream(System.out);
+    }
+
+    /**
+     * Accepts connections until the server is stopped.
+     *
+     * @throws IOException if the port cannot be opened
+     */
+    public void run() throws IOException
+    {
+        System.setOut(out);
+        try (ServerSocket serverSocket = new ServerSocket(port))
+        {
+            this.serverSocket = serverSocket;
+            ServiceRegistry.get().register(new ServiceRegistry.Component("Console server", List.of("Database"), () -> { },
+                    this::stop));
+            System.out.println("Contact Management System listening on port " + port +
+                    " (max " + MAX_SESSIONS + " sessions)");
+            while (true)
+            {
+                Socket socket = serverSocket.accept();
+                if (!sessions.tryAcquire())
+                {
+                    reject(socket);
+                    continue;
+                }
+                executor.execute(() -> serve(socket));
+            }
+        }
+        catch (SocketException e)
+        {
+            if (!serverSocket.isClosed())
+            {
+                throw e;
+            }
+            // Closed by stop()
+        }
+    }
+
+    /**
+     * Stops accepting connections and waits for the running sessions.
+     *
+     * @return false if sessions were still running after the timeout
+     */
+    public boolean stop(long timeoutMillis) throws IOException, InterruptedException
+    {
+        if (serverSocket != null)
+        {
+            serverSocket.close();
+        }
+        executor.shutdown();
+        return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void serve(Socket socket)
+    {
+        String client = String.valueOf(socket.getRemoteSocketAddress());
+        try (socket)
+        {
+            PrintStream sessionOut = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            out.attach(sessionOut);
+            Scanner in = new Scanner(socket.getInputStream(), StandardCharsets.UTF_8);
+            new Application(in).runSession();
+        }
+        catch (NoSuchElementException e)
+        {
+            // The client closed the connection while a prompt was waiting for input
+        }
+        catch (Exception e)
+        {
+            System.err.println("Session " + client + " ended with an error: " + e.getMessage());
+        }
+        finally
+        {
+            out.detach();
+            sessions.release();
+        }
+    }
+
+    private static void reject(Socket socket)
+    {
+        try (socket)
+        {
+            PrintStream sessionOut = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            sessionOut.println("All sessions are in use, please try again later.");
+        }
+        catch (IOException e)
+        {
+            System.err.println("Error rejecting a connection: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package services;
+
+import config.Config;
+
+/**
+ * Picks the size of the next chunk of a long-running batch operation from the
+ * latency of the previous ones.
+ * <p>
+ * Each chunk should take about {@code targetMillis}. A chunk that finished in less
+ * than half the target doubles the next size; a slower one scales the size down in
+ * proportion to how far it overshot. The size always stays within
+ * {@code [min, max]}, so a single chunk never holds its row locks for long.
+ */
+public class AdaptiveChunkSizer
+{
+    private final int min;
+    private final int max;
+    private final long targetNanos;
+    private int size;
+
+    /**
+     * @param initial      size of the first chunk
+     * @param min          smallest chunk size
+     * @param max          largest chunk size
+     * @param targetMillis desired duration of one chunk
+     */
+    public AdaptiveChunkSizer(int initial, int min, int max, long targetMillis)
+    {
+        if (min <= 0 || min > max || targetMillis <= 0)
+        {
+            throw new IllegalArgumentException("Invalid chunk size bounds or target");
+        }
+        this.min = min;
+        this.max = max;
+        this.targetNanos = targetMillis * 1_000_000L;
+        this.size = Math.max(min, Math.min(max, initial));
+    }
+
+    /**
+     * Chunk sizer configured by {@code bulk.chunk.initial} (200), {@code bulk.chunk.min} (10),
+     * {@code bulk.chunk.max} (5000) and {@code bulk.chunk.targetMillis} (200), as
+     * configured when the operation starts.
+     */
+    public static AdaptiveChunkSizer fromConfig()
+    {
+        return new AdaptiveChunkSizer(
+                Config.getInt("bulk.chunk.initial", 200),
+                Config.getInt("bulk.chunk.min", 10),
+                Config.getInt("bulk.chunk.max", 5000),
+                Config.getLong("bulk.chunk.targetMillis", 200L));
+    }
+
+    /**
+     * @return the size to use for the next chunk
+     */
+    public int next()
+    {
+        return size;
+    }
+
+    /**
+     * Adjusts the size after a full chunk has been processed.
+     *
+     * @param elapsedNanos how long the chunk took
+     */
+    public void record(long elapsedNanos)
+    {
+        long next;
+        if (elapsedNanos < targetNanos / 2)
+        {
+            next = (long) size * 2;
+        }
+        else if (elapsedNanos > targetNanos)
+        {
+            next = (long) ((double) size * targetNanos / elapsedNanos);
+        }
+        else
+        {
+            next = size;
+        }
+        size = (int) Math.max(min, Math.min(max, next));
+    }
+}
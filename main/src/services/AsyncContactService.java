@@ -0,0 +1,131 @@
+package services;
+
+import dao.UpsertResult;
+import models.Contact;
+import models.UpcomingBirthday;
+import statistics.Granularity;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking facade over {@link ContactService}: every database operation returns
+ * at once with a {@link CompletableFuture} and runs on {@link DatabaseExecutor}.
+ * Failures complete the future exceptionally with the {@link exceptions.DatabaseException}
+ * the blocking method throws. In-memory helpers such as
+ * {@link ContactService#sortContacts} are not wrapped.
+ */
+public class AsyncContactService
+{
+    private final ContactService contactService;
+
+    public AsyncContactService(ContactService contactService)
+    {
+        this.contactService = contactService;
+    }
+
+    // List every contact
+    public CompletableFuture<List<Contact>> listAll()
+    {
+        return DatabaseExecutor.submit(contactService::listAll);
+    }
+
+    // One page of contacts in id order, starting after the given id
+    public CompletableFuture<List<Contact>> listPage(int afterId, int limit)
+    {
+        return DatabaseExecutor.submit(() -> contactService.listPage(afterId, limit));
+    }
+
+    // Stream every contact to the consumer, on the executor's thread
+    public CompletableFuture<Void> forEachContact(Consumer<Contact> consumer)
+    {
+        return DatabaseExecutor.run(() -> contactService.forEachContact(consumer));
+    }
+
+    // Find a contact by id
+    public CompletableFuture<Contact> findById(int id)
+    {
+        return DatabaseExecutor.submit(() -> contactService.findById(id));
+    }
+
+    // Search by a single field
+    public CompletableFuture<List<Contact>> searchSingleField(String field, String value)
+    {
+        return DatabaseExecutor.submit(() -> contactService.searchSingleField(field, value));
+    }
+
+    // Search by multiple fields
+    public CompletableFuture<List<Contact>> searchMultipleFields(Map<String, String> fields)
+    {
+        return DatabaseExecutor.submit(() -> contactService.searchMultipleFields(fields));
+    }
+
+    // Search by a single field, optionally also in the archived contacts
+    public CompletableFuture<List<Contact>> searchSingleField(String field, String value, boolean includeArchive)
+    {
+        return DatabaseExecutor.submit(() -> contactService.searchSingleField(field, value, includeArchive));
+    }
+
+    // Search by multiple fields, optionally also in the archived contacts
+    public CompletableFuture<List<Contact>> searchMultipleFields(Map<String, String> fields, boolean includeArchive)
+    {
+        return DatabaseExecutor.submit(() -> contactService.searchMultipleFields(fields, includeArchive));
+    }
+
+    // Add a new contact
+    public CompletableFuture<Void> addContact(Contact contact)
+    {
+        return DatabaseExecutor.run(() -> contactService.addContact(contact));
+    }
+
+    // Update the changed columns of a contact
+    public CompletableFuture<Void> updateContact(Contact contact)
+    {
+        return DatabaseExecutor.run(() -> contactService.updateContact(contact));
+    }
+
+    // Insert or update contacts from an external source
+    public CompletableFuture<UpsertResult> upsertContacts(List<Contact> contacts)
+    {
+        return DatabaseExecutor.submit(() -> contactService.upsertContacts(contacts));
+    }
+
+    // Delete a contact
+    public CompletableFuture<Void> deleteContact(int id)
+    {
+        return DatabaseExecutor.run(() -> contactService.deleteContact(id));
+    }
+
+    // Apply the same changes to every contact matching the criteria
+    public CompletableFuture<BulkResult> bulkUpdate(Map<String, String> criteria, Map<String, String> changes)
+    {
+        return DatabaseExecutor.submit(() -> contactService.bulkUpdate(criteria, changes));
+    }
+
+    // Delete every contact matching the criteria
+    public CompletableFuture<BulkResult> bulkDelete(Map<String, String> criteria)
+    {
+        return DatabaseExecutor.submit(() -> contactService.bulkDelete(criteria));
+    }
+
+    // Number of contacts per time bucket since the given date
+    public CompletableFuture<Map<LocalDate, Long>> countPerPeriod(String timestampColumn, Granularity granularity, LocalDate since)
+    {
+        return DatabaseExecutor.submit(() -> contactService.countPerPeriod(timestampColumn, granularity, since));
+    }
+
+    // Re-sync in-memory indexes after a contact was changed outside the service
+    public CompletableFuture<Void> reindexContact(int id)
+    {
+        return DatabaseExecutor.run(() -> contactService.reindexContact(id));
+    }
+
+    // Birthdays in the given window
+    public CompletableFuture<List<UpcomingBirthday>> upcomingBirthdays(LocalDate from, int days)
+    {
+        return DatabaseExecutor.submit(() -> contactService.upcomingBirthdays(from, days));
+    }
+}
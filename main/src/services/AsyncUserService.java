@@ -0,0 +1,49 @@
+package services;
+
+import models.User;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking facade over {@link UserService}; see {@link AsyncContactService}.
+ */
+public class AsyncUserService
+{
+    private final UserService userService;
+
+    public AsyncUserService(UserService userService)
+    {
+        this.userService = userService;
+    }
+
+    // List every user
+    public CompletableFuture<List<User>> listUsers()
+    {
+        return DatabaseExecutor.submit(userService::listUsers);
+    }
+
+    // One page of users after the given id
+    public CompletableFuture<List<User>> listPage(int afterId, int limit)
+    {
+        return DatabaseExecutor.submit(() -> userService.listPage(afterId, limit));
+    }
+
+    // Update an existing user
+    public CompletableFuture<Void> updateUser(User user)
+    {
+        return DatabaseExecutor.run(() -> userService.updateUser(user));
+    }
+
+    // Add a new user
+    public CompletableFuture<Void> addUser(User user)
+    {
+        return DatabaseExecutor.run(() -> userService.addUser(user));
+    }
+
+    // Delete a user
+    public CompletableFuture<Void> deleteUser(int userId)
+    {
+        return DatabaseExecutor.run(() -> userService.deleteUser(userId));
+    }
+}
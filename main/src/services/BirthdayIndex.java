@@ -0,0 +1,293 @@
+package services;
+
+import models.Contact;
+import models.UpcomingBirthday;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of contact birthdays keyed by day of year.
+ * <p>
+ * Keys are days of a leap year (1..366), so February 29 has its own slot and
+ * every other date keeps the same key in every year. In non-leap years a
+ * February 29 birthday is reported on February 28. Range queries walk one or
+ * two {@link TreeMap} sub-maps, i.e. {@code O(log n + k)} for {@code k} results.
+ * <p>
+ * The index is filled by one streaming pass ({@link #startLoading()},
+ * {@link #load(Contact)}, {@link #finishLoading(long)}). Changes committed while
+ * that pass runs are applied right away through {@link #put(Contact)} and
+ * {@link #remove(int)}, and the pass skips the contacts they touched, since the
+ * rows it reads may be older. State changes happen under the index's monitor, so
+ * no change falls between "not loaded yet" and "loaded".
+ */
+public class BirthdayIndex
+{
+    private static final int LEAP_YEAR = 2000;
+    private static final int FEB_29_KEY = LocalDate.of(LEAP_YEAR, Month.FEBRUARY, 29).getDayOfYear();
+
+    // Maximum query window; longer windows would visit the same day twice
+    public static final int MAX_DAYS = 365;
+
+    private final NavigableMap<Integer, Map<Integer, Entry>> byDay = new TreeMap<>();
+    private final Map<Integer, Integer> dayByContact = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded = false;
+
+    // Guarded by this
+    private boolean loading = false;
+    private long generation = 0;
+    private final Set<Integer> changedWhileLoading = new HashSet<>();
+
+    /**
+     * @return true once the index has been filled from the database
+     */
+    public boolean isLoaded()
+    {
+        return loaded;
+    }
+
+    /**
+     * @return true if changes are applied to the index, i.e. it is loaded or being loaded
+     */
+    public synchronized boolean isTracking()
+    {
+        return loaded || loading;
+    }
+
+    /**
+     * Starts a loading pass; from now on changes are applied and remembered.
+     *
+     * @return the generation to pass to {@link #finishLoading(long)}
+     */
+    public synchronized long startLoading()
+    {
+        loading = true;
+        changedWhileLoading.clear();
+        return generation;
+    }
+
+    /**
+     * Adds a contact read by the loading pass, unless a change to it was applied meanwhile.
+     *
+     * @param contact the contact as read from the database
+     */
+    public synchronized void load(Contact contact)
+    {
+        if (loading && !changedWhileLoading.contains(contact.getContactId()))
+        {
+            putIndexed(contact);
+        }
+    }
+
+    /**
+     * Marks the index as loaded, unless it was reset while the pass ran.
+     *
+     * @param generation the value returned by {@link #startLoading()}
+     */
+    public synchronized void finishLoading(long generation)
+    {
+        if (loading && generation == this.generation)
+        {
+            loaded = true;
+        }
+        loading = false;
+        changedWhileLoading.clear();
+    }
+
+    /**
+     * Empties the index and marks it as not loaded, so the next query reloads it.
+     * Used after bulk changes that would otherwise need one lookup per row, and
+     * after a failed loading pass.
+     */
+    public synchronized void reset()
+    {
+        lock.writeLock().lock();
+        try
+        {
+            generation++;
+            loaded = false;
+            loading = false;
+            changedWhileLoading.clear();
+            byDay.clear();
+            dayByContact.clear();
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a committed add or update. Contacts without a birth date are removed.
+     * Does nothing while the index is neither loaded nor being loaded.
+     *
+     * @param contact the contact to index
+     */
+    public synchronized void put(Contact contact)
+    {
+        if (!loaded && !loading)
+        {
+            return;
+        }
+        if (loading)
+        {
+            changedWhileLoading.add(contact.getContactId());
+        }
+        putIndexed(contact);
+    }
+
+    /**
+     * Applies a committed delete. Does nothing while the index is neither loaded nor being loaded.
+     *
+     * @param contactId id of the contact to remove
+     */
+    public synchronized void remove(int contactId)
+    {
+        if (!loaded && !loading)
+        {
+            return;
+        }
+        if (loading)
+        {
+            changedWhileLoading.add(contactId);
+        }
+        lock.writeLock().lock();
+        try
+        {
+            removeUnlocked(contactId);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putIndexed(Contact contact)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            removeUnlocked(contact.getContactId());
+            if (contact.getBirthDate() == null)
+            {
+                return;
+            }
+            int key = keyOf(contact.getBirthDate());
+            byDay.computeIfAbsent(key, k -> new LinkedHashMap<>())
+                    .put(contact.getContactId(), new Entry(contact.getContactId(), contact.fullName(), contact.getBirthDate()));
+            dayByContact.put(contact.getContactId(), key);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns birthdays falling within {@code days} days starting at {@code from}, in date order.
+     *
+     * @param from first day of the window (inclusive)
+     * @param days window length in days, between 1 and {@link #MAX_DAYS}
+     * @return the upcoming birthdays in the window
+     */
+    public List<UpcomingBirthday> upcoming(LocalDate from, int days)
+    {
+        if (days < 1 || days > MAX_DAYS)
+        {
+            throw new IllegalArgumentException("Days must be between 1 and " + MAX_DAYS + ": " + days);
+        }
+        LocalDate to = from.plusDays(days - 1);
+        List<UpcomingBirthday> result = new ArrayList<>();
+
+        lock.readLock().lock();
+        try
+        {
+            if (from.getYear() == to.getYear())
+            {
+                collect(result, from.getYear(), keyOf(from), endKeyOf(to));
+            }
+            else
+            {
+                collect(result, from.getYear(), keyOf(from), Integer.MAX_VALUE);
+                collect(result, to.getYear(), 1, endKeyOf(to));
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private void collect(List<UpcomingBirthday> result, int year, int fromKey, int toKey)
+    {
+        boolean leap = Year.isLeap(year);
+        for (Map.Entry<Integer, Map<Integer, Entry>> day : byDay.subMap(fromKey, true, toKey, true).entrySet())
+        {
+            for (Entry e : day.getValue().values())
+            {
+                LocalDate date = (day.getKey() == FEB_29_KEY && !leap)
+                        ? LocalDate.of(year, Month.FEBRUARY, 28)
+                        : LocalDate.of(year, e.birthDate.getMonth(), e.birthDate.getDayOfMonth());
+                result.add(new UpcomingBirthday(e.contactId, e.fullName, e.birthDate, date));
+            }
+        }
+    }
+
+    private void removeUnlocked(int contactId)
+    {
+        Integer key = dayByContact.remove(contactId);
+        if (key != null)
+        {
+            Map<Integer, Entry> bucket = byDay.get(key);
+            bucket.remove(contactId);
+            if (bucket.isEmpty())
+            {
+                byDay.remove(key);
+            }
+        }
+    }
+
+    // Day of year in a leap year, so the key of a calendar date never depends on the year
+    private static int keyOf(LocalDate date)
+    {
+        return LocalDate.of(LEAP_YEAR, date.getMonth(), date.getDayOfMonth()).getDayOfYear();
+    }
+
+    // A window ending on Feb 28 of a non-leap year must also include Feb 29 birthdays
+    private static int endKeyOf(LocalDate date)
+    {
+        if (!date.isLeapYear() && date.getMonth() == Month.FEBRUARY && date.getDayOfMonth() == 28)
+        {
+            return FEB_29_KEY;
+        }
+        return keyOf(date);
+    }
+
+    private static final class Entry
+    {
+        private final int contactId;
+        private final String fullName;
+        private final LocalDate birthDate;
+
+        private Entry(int contactId, String fullName, LocalDate birthDate)
+        {
+            this.contactId = contactId;
+            this.fullName = fullName;
+            this.birthDate = birthDate;
+        }
+    }
+}
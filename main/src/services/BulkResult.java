@@ -0,0 +1,49 @@
+package services;
+
+import exceptions.DatabaseException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk update or bulk delete in {@link ContactService}.
+ * <p>
+ * Every chunk commits on its own, so a failure part-way leaves the earlier chunks
+ * applied. The result therefore always lists the rows that were changed, plus the
+ * error that stopped the operation, if any.
+ */
+public class BulkResult
+{
+    private final List<Map<String, String>> rows;
+    private final int chunks;
+    private final DatabaseException error;
+
+    public BulkResult(List<Map<String, String>> rows, int chunks, DatabaseException error)
+    {
+        this.rows = rows;
+        this.chunks = chunks;
+        this.error = error;
+    }
+
+    /**
+     * @return per-row snapshots with {@code contact_id}: the previous values of the changed
+     *         columns for a bulk update, the full rows for a bulk delete
+     */
+    public List<Map<String, String>> getRows()
+    {
+        return rows;
+    }
+
+    public int getChunks()
+    {
+        return chunks;
+    }
+
+    /**
+     * @return the error that stopped the operation, or null if it completed
+     */
+    public DatabaseException getError()
+    {
+        return error;
+    }
+}
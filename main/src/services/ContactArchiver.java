@@ -0,0 +1,97 @@
+package services;
+
+import config.Config;
+import dao.ArchiveCursor;
+import dao.ContactArchiveDao;
+import dao.ShardedContactDao;
+import exceptions.DatabaseException;
+import models.UndoEntry;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves contacts that have not been updated for a number of months from
+ * {@code contacts} to {@code contacts_archive}.
+ * <p>
+ * The move runs in batches of {@code archive.batchSize} rows (default 500), each in
+ * its own short transaction, and pauses {@code archive.pauseMillis} (default 200)
+ * between batches so that interactive sessions keep getting the database. Archived
+ * contacts no longer appear in listings or statistics; searches can include them
+ * (see {@link ContactService#searchSingleField(String, String, boolean)}).
+ * <p>
+ * Archiving only scans the primary database and is therefore refused while
+ * contacts are sharded ({@code db.shards}).
+ */
+public class ContactArchiver
+{
+    private final ContactArchiveDao archiveDao;
+    private final ContactService contactService;
+
+    /**
+     * @param archiveDao     access to {@code contacts_archive}
+     * @param contactService told which contacts left the live table
+     */
+    public ContactArchiver(ContactArchiveDao archiveDao, ContactService contactService)
+    {
+        this.archiveDao = archiveDao;
+        this.contactService = contactService;
+    }
+
+    /**
+     * Archives every contact whose {@code updated_at} is more than {@code months} months old.
+     *
+     * @param months age threshold in months (at least 1)
+     * @return the archived contact ids (as {@code contact_id} rows) and the error that stopped the run, if any
+     */
+    public BulkResult archiveOlderThan(int months)
+    {
+        if (months < 1)
+        {
+            throw new IllegalArgumentException("Months must be at least 1: " + months);
+        }
+        if (ShardedContactDao.isEnabled())
+        {
+            return new BulkResult(List.of(), 0, new DatabaseException(
+                    "Archiving is not available while contacts are sharded (db.shards); nothing was archived"));
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusMonths(months);
+        // Read per run, so a changed configuration applies to the next run
+        int batchSize = Config.getInt("archive.batchSize", 500);
+        long pauseMillis = Config.getLong("archive.pauseMillis", 200L);
+        ArchiveCursor cursor = new ArchiveCursor();
+        int batches = 0;
+        DatabaseException error = null;
+        try
+        {
+            while (archiveDao.archiveBatch(cutoff, batchSize, cursor) == batchSize)
+            {
+                batches++;
+                Thread.sleep(pauseMillis);
+            }
+            batches++;
+        }
+        catch (SQLException e)
+        {
+            error = new DatabaseException("Archiving stopped after " + cursor.getArchivedIds().size() + " contacts: " + e.getMessage(), e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            error = new DatabaseException("Archiving interrupted after " + cursor.getArchivedIds().size() + " contacts");
+        }
+
+        List<Map<String, String>> rows = new ArrayList<>();
+        for (int id : cursor.getArchivedIds())
+        {
+            rows.add(Map.of("contact_id", String.valueOf(id)));
+        }
+        // For the hot table an archived contact is a deleted one
+        MutationRecorder.contactsBulkChanged(UndoEntry.Operation.DELETE, rows, null);
+        contactService.forgetContacts(cursor.getArchivedIds());
+        return new BulkResult(rows, batches, error);
+    }
+}
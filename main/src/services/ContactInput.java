@@ -0,0 +1,94 @@
+package services;
+
+import models.Contact;
+import utils.InputValidator;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies column values given as text (by the HTTP API or a batch script) to a
+ * contact, with the same validation as the console forms.
+ */
+public final class ContactInput
+{
+    /**
+     * Columns a new contact must have.
+     */
+    public static final List<String> REQUIRED = List.of("first_name", "last_name", "nickname", "phone_primary", "email",
+            "birth_date");
+
+    private static final InputValidator validator = new InputValidator();
+
+    private ContactInput()
+    {
+    }
+
+    /**
+     * Sets the given columns on the contact. Blank values clear optional columns.
+     *
+     * @param contact contact to change
+     * @param fields  column name to new value; only the editable columns are accepted
+     * @throws IllegalArgumentException naming the first invalid column or value
+     */
+    public static void apply(Contact contact, Map<String, String> fields)
+    {
+        for (Map.Entry<String, String> entry : fields.entrySet())
+        {
+            String column = entry.getKey();
+            String value = entry.getValue();
+            boolean empty = value == null || value.isBlank();
+            switch (column)
+            {
+                case "first_name" -> contact.setFirstName(requireName(column, value));
+                case "last_name" -> contact.setLastName(requireName(column, value));
+                case "nickname" -> contact.setNickname(requireName(column, value));
+                case "middle_name" -> contact.setMiddleName(empty ? null : requireName(column, value));
+                case "phone_primary" ->
+                {
+                    if (empty || !validator.isValidPhoneNumber(value))
+                    {
+                        throw new IllegalArgumentException("Invalid phone number format: phone_primary");
+                    }
+                    contact.setPhonePrimary(value.trim());
+                }
+                case "phone_secondary" ->
+                {
+                    if (!empty && !validator.isValidPhoneNumber(value))
+                    {
+                        throw new IllegalArgumentException("Invalid phone number format: phone_secondary");
+                    }
+                    contact.setPhoneSecondary(empty ? null : value.trim());
+                }
+                case "email" ->
+                {
+                    if (empty || !validator.isValidEmail(value))
+                    {
+                        throw new IllegalArgumentException("Invalid email format");
+                    }
+                    contact.setEmail(value.trim());
+                }
+                case "linkedin_url" -> contact.setLinkedinUrl(empty ? null : value.trim());
+                case "birth_date" ->
+                {
+                    if (empty || !validator.isValidDate(value))
+                    {
+                        throw new IllegalArgumentException("Invalid date, use yyyy-MM-dd: birth_date");
+                    }
+                    contact.setBirthDate(LocalDate.parse(value.trim()));
+                }
+                default -> throw new IllegalArgumentException("Column cannot be set: " + column);
+            }
+        }
+    }
+
+    private static String requireName(String column, String value)
+    {
+        if (value == null || value.isBlank() || !validator.isValidNameLength(value) || !validator.containsOnlyLetters(value))
+        {
+            throw new IllegalArgumentException(column + " must be 1-50 letters");
+        }
+        return value.trim();
+    }
+}
@@ -1,17 +1,43 @@
 package services;
 
+import dao.ContactArchiveDao;
 import dao.ContactDao;
-import dao.ContactDaoImplementation;
+import dao.UpsertResult;
 import models.Contact;
+import models.ContactField;
+import models.UndoEntry;
+import models.UpcomingBirthday;
+import exceptions.ConcurrentUpdateException;
 import exceptions.DatabaseException;
+import exceptions.DuplicateValueException;
+import statistics.Granularity;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public class ContactService
 {
-    private final ContactDao contactDao = new ContactDaoImplementation();
+    // Contacts live either in the primary database or, with db.shards set, on several shards
+    private final ContactDao contactDao;
+    private final ContactArchiveDao archiveDao;
+
+    // Shared by all service instances; filled on first use and kept current on every write
+    private static final BirthdayIndex birthdayIndex = new BirthdayIndex();
+    // Only one thread runs the loading pass; writers never wait for it
+    private static final Object birthdayLoadLock = new Object();
+
+    // Built once by ServiceRegistry
+    public ContactService(ContactDao contactDao, ContactArchiveDao archiveDao)
+    {
+        this.contactDao = contactDao;
+        this.archiveDao = archiveDao;
+    }
 
     // List all contacts
     public List<Contact> listAll() throws DatabaseException
@@ -26,6 +52,45 @@ public class ContactService
         }
     }
 
+    // One page of contacts in id order, starting after the given id
+    public List<Contact> listPage(int afterId, int limit) throws DatabaseException
+    {
+        try
+        {
+            return contactDao.getContactsPage(afterId, limit);
+        }
+        catch (Exception e)
+        {
+            throw new DatabaseException("Failed to list contacts", e);
+        }
+    }
+
+    // Stream all contacts without loading them into a list
+    public void forEachContact(Consumer<Contact> consumer) throws DatabaseException
+    {
+        try
+        {
+            contactDao.forEachContact(consumer);
+        }
+        catch (Exception e)
+        {
+            throw new DatabaseException("Failed to stream contacts", e);
+        }
+    }
+
+    // Find one contact by its primary key, or null if it does not exist
+    public Contact findById(int id) throws DatabaseException
+    {
+        try
+        {
+            return contactDao.getContactById(id);
+        }
+        catch (Exception e)
+        {
+            throw new DatabaseException("Failed to load contact", e);
+        }
+    }
+
     // Search by a single field
     public List<Contact> searchSingleField(String field, String value) throws DatabaseException
     {
@@ -52,12 +117,50 @@ public class ContactService
         }
     }
 
+    // Search by a single field, optionally also in the archived contacts
+    public List<Contact> searchSingleField(String field, String value, boolean includeArchive) throws DatabaseException
+    {
+        List<Contact> contacts = searchSingleField(field, value);
+        if (includeArchive)
+        {
+            try
+            {
+                contacts.addAll(archiveDao.searchBySingleField(field, value));
+            }
+            catch (Exception e)
+            {
+                throw new DatabaseException("Failed to search archived contacts by field", e);
+            }
+        }
+        return contacts;
+    }
+
+    // Search by multiple fields, optionally also in the archived contacts
+    public List<Contact> searchMultipleFields(Map<String, String> fields, boolean includeArchive) throws DatabaseException
+    {
+        List<Contact> contacts = searchMultipleFields(fields);
+        if (includeArchive)
+        {
+            try
+            {
+                contacts.addAll(archiveDao.searchByMultipleFields(fields));
+            }
+            catch (Exception e)
+            {
+                throw new DatabaseException("Failed to search archived contacts by multiple fields", e);
+            }
+        }
+        return contacts;
+    }
+
     // Add a new contact
     public void addContact(Contact contact) throws DatabaseException
     {
         try
         {
             contactDao.addContact(contact);
+            MutationRecorder.contactAdded(contact);
+            birthdayIndex.put(contact);
         }
         catch (Exception e)
         {
@@ -65,17 +168,74 @@ public class ContactService
         }
     }
 
-    // Update a contact
+    // Columns of the contact whose value another contact already uses (phone_primary, email)
+    public List<String> findUniqueConflicts(Contact contact) throws DatabaseException
+    {
+        try
+        {
+            return contactDao.findUniqueConflicts(contact);
+        }
+        catch (Exception e)
+        {
+            throw new DatabaseException("Failed to check for duplicate contacts", e);
+        }
+    }
+
+    // Update the changed columns of a contact, provided nobody else changed it since it was loaded
     public void updateContact(Contact contact) throws DatabaseException
     {
+        // A refreshed timestamp alone is not a change worth a write
+        if ((contact.getDirtyFields() & ~(1 << ContactField.UPDATED_AT.ordinal())) == 0)
+        {
+            return;
+        }
+        contact.updateTimestamp();
+
+        boolean written = UnitOfWork.execute(Connection.TRANSACTION_READ_COMMITTED, () ->
+        {
+            if (contact.isDirty(ContactField.PHONE_PRIMARY) || contact.isDirty(ContactField.EMAIL))
+            {
+                List<String> conflicts = contactDao.findUniqueConflicts(contact);
+                if (!conflicts.isEmpty())
+                {
+                    throw new DuplicateValueException(conflicts);
+                }
+            }
+            return contactDao.updateContact(contact);
+        });
+        if (!written)
+        {
+            Contact current = findById(contact.getContactId());
+            if (current == null)
+            {
+                throw new DatabaseException("Contact #" + contact.getContactId() + " no longer exists");
+            }
+            throw new ConcurrentUpdateException(current);
+        }
+        contact.clearDirtyFields();
+
+        // Only after the commit, so a rolled back update leaves no trace
+        MutationRecorder.contactUpdated(contact);
+        birthdayIndex.put(contact);
+    }
+
+    // Insert or update contacts from an external source, matched on primary phone and email
+    public UpsertResult upsertContacts(List<Contact> contacts) throws DatabaseException
+    {
+        UpsertResult result;
         try
         {
-            contactDao.updateContact(contact);
+            result = contactDao.upsertContacts(contacts);
         }
         catch (Exception e)
         {
-            throw new DatabaseException("Failed to update contact", e);
+            throw new DatabaseException("Failed to synchronize contacts", e);
         }
+
+        MutationRecorder.contactsWritten(result.getInserted(), result.getUpdated());
+        result.getInserted().forEach(birthdayIndex::put);
+        result.getUpdated().forEach(birthdayIndex::put);
+        return result;
     }
 
     // Delete a contact
@@ -84,6 +244,8 @@ public class ContactService
         try
         {
             contactDao.deleteContact(id);
+            MutationRecorder.contactDeleted(id);
+            birthdayIndex.remove(id);
         }
         catch (Exception e)
         {
@@ -91,6 +253,157 @@ public class ContactService
         }
     }
 
+    // Apply the same changes to every contact matching the criteria, in small primary-key-ordered transactions
+    public BulkResult bulkUpdate(Map<String, String> criteria, Map<String, String> changes)
+    {
+        BulkResult result = runChunked((afterId, limit, rows) ->
+                contactDao.bulkUpdateChunk(criteria, changes, afterId, limit, rows), "update");
+
+        MutationRecorder.contactsBulkChanged(UndoEntry.Operation.UPDATE, result.getRows(), changes);
+        if (changes.containsKey("first_name") || changes.containsKey("middle_name")
+                || changes.containsKey("last_name") || changes.containsKey("birth_date"))
+        {
+            resetBirthdayIndex();
+        }
+        return result;
+    }
+
+    // Delete every contact matching the criteria, in small primary-key-ordered transactions
+    public BulkResult bulkDelete(Map<String, String> criteria)
+    {
+        BulkResult result = runChunked((afterId, limit, rows) ->
+                contactDao.bulkDeleteChunk(criteria, afterId, limit, rows), "delete");
+
+        MutationRecorder.contactsBulkChanged(UndoEntry.Operation.DELETE, result.getRows(), null);
+        for (Map<String, String> row : result.getRows())
+        {
+            birthdayIndex.remove(Integer.parseInt(row.get("contact_id")));
+        }
+        return result;
+    }
+
+    // One chunk of a bulk operation: process rows after afterId, add their snapshots, return the last id (0 if none)
+    private interface ChunkStep
+    {
+        int run(int afterId, int limit, List<Map<String, String>> rows) throws SQLException;
+    }
+
+    // Walks the matching rows chunk by chunk, sizing each chunk from the latency of the previous one
+    private BulkResult runChunked(ChunkStep step, String operation)
+    {
+        List<Map<String, String>> rows = new ArrayList<>();
+        AdaptiveChunkSizer sizer = AdaptiveChunkSizer.fromConfig();
+        int afterId = 0;
+        int chunks = 0;
+        try
+        {
+            while (true)
+            {
+                int limit = sizer.next();
+                int before = rows.size();
+                long start = System.nanoTime();
+                afterId = step.run(afterId, limit, rows);
+                if (afterId == 0)
+                {
+                    break;
+                }
+                chunks++;
+                if (rows.size() - before < limit)
+                {
+                    break; // a short chunk means no matching rows are left
+                }
+                sizer.record(System.nanoTime() - start);
+            }
+        }
+        catch (SQLException e)
+        {
+            return new BulkResult(rows, chunks, new DatabaseException(
+                    "Bulk " + operation + " stopped after " + rows.size() + " rows: " + e.getMessage(), e));
+        }
+        return new BulkResult(rows, chunks, null);
+    }
+
+    // Number of contacts per time bucket of created_at or updated_at since the given date
+    public Map<LocalDate, Long> countPerPeriod(String timestampColumn, Granularity granularity, LocalDate since)
+            throws DatabaseException
+    {
+        try
+        {
+            return contactDao.countPerPeriod(timestampColumn, granularity, since);
+        }
+        catch (Exception e)
+        {
+            throw new DatabaseException("Failed to count contacts per period", e);
+        }
+    }
+
+    // Re-sync in-memory indexes after a contact was changed outside this service (e.g. by undo)
+    public void reindexContact(int id) throws DatabaseException
+    {
+        if (!birthdayIndex.isTracking())
+        {
+            return;
+        }
+        Contact contact = findById(id);
+        if (contact == null)
+        {
+            birthdayIndex.remove(id);
+        }
+        else
+        {
+            birthdayIndex.put(contact);
+        }
+    }
+
+    // Remove contacts that left the contacts table by other means (e.g. archiving) from the in-memory indexes
+    public void forgetContacts(List<Integer> ids)
+    {
+        for (int id : ids)
+        {
+            birthdayIndex.remove(id);
+        }
+    }
+
+    // Drop the in-memory indexes after many rows changed outside this service; they reload on next use
+    public void resetBirthdayIndex()
+    {
+        birthdayIndex.reset();
+    }
+
+    // Birthdays within the given number of days starting at "from", in date order
+    public List<UpcomingBirthday> upcomingBirthdays(LocalDate from, int days) throws DatabaseException
+    {
+        ensureBirthdayIndexLoaded();
+        return birthdayIndex.upcoming(from, days);
+    }
+
+    // Fill the birthday index with one streaming pass the first time it is needed;
+    // writes committed during the pass go into the index directly (see BirthdayIndex)
+    private void ensureBirthdayIndexLoaded() throws DatabaseException
+    {
+        if (birthdayIndex.isLoaded())
+        {
+            return;
+        }
+        synchronized (birthdayLoadLock)
+        {
+            if (!birthdayIndex.isLoaded())
+            {
+                long generation = birthdayIndex.startLoading();
+                try
+                {
+                    forEachContact(birthdayIndex::load);
+                }
+                catch (DatabaseException | RuntimeException e)
+                {
+                    birthdayIndex.reset();
+                    throw e;
+                }
+                birthdayIndex.finishLoading(generation);
+            }
+        }
+    }
+
     // Sort a list of contacts by a field
     public List<Contact> sortContacts(List<Contact> contacts, String field, boolean ascending)
     {
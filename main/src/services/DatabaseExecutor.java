@@ -0,0 +1,193 @@
+package services;
+
+import config.Config;
+import db.DatabaseConnection;
+import exceptions.DatabaseException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs blocking service calls asynchronously, one virtual thread per call.
+ * <p>
+ * Virtual threads are cheap, connections are not: a semaphore sized to the
+ * connection pool lets at most that many calls touch the database at once, so
+ * extra calls wait for a permit instead of timing out in the pool. The permits
+ * follow {@code db.pool.size} when it is changed at runtime. The caller's
+ * session (see {@link DatabaseConnection#setSession(int)}) is carried over to the
+ * call, which keeps read-your-writes routing intact. A call does not join a
+ * {@link UnitOfWork} running on the caller's thread, and must not wait for other
+ * calls submitted here.
+ */
+public final class DatabaseExecutor
+{
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private static final ResizableSemaphore permits = new ResizableSemaphore(new DatabaseConnection().getPool().getMaxSize());
+    // Guarded by permits
+    private static int permitCount = permits.availablePermits();
+
+    static
+    {
+        // Registered after DatabaseConnection's listener (loaded above), so the pool is already resized
+        Config.onChange("db.pool.", DatabaseExecutor::resizePermits);
+    }
+
+    // Lets the permit count shrink below the number of calls in flight; those simply release into the deficit
+    private static final class ResizableSemaphore extends Semaphore
+    {
+        private ResizableSemaphore(int permits)
+        {
+            super(permits, true);
+        }
+
+        private void reduce(int reduction)
+        {
+            reducePermits(reduction);
+        }
+    }
+
+    private DatabaseExecutor()
+    {
+    }
+
+    // Matches the permits to the pool's current size
+    private static void resizePermits()
+    {
+        synchronized (permits)
+        {
+            int size = new DatabaseConnection().getPool().getMaxSize();
+            if (size > permitCount)
+            {
+                permits.release(size - permitCount);
+            }
+            else if (size < permitCount)
+            {
+                permits.reduce(permitCount - size);
+            }
+            permitCount = size;
+        }
+    }
+
+    /**
+     * A service call that may fail with a {@link DatabaseException}.
+     */
+    @FunctionalInterface
+    public interface Call<T>
+    {
+        T run() throws DatabaseException;
+    }
+
+    /**
+     * A service call without a result.
+     */
+    @FunctionalInterface
+    public interface Action
+    {
+        void run() throws DatabaseException;
+    }
+
+    /**
+     * Starts the call on a virtual thread once a connection permit is free.
+     *
+     * @return a future completed with the call's result, or exceptionally with its exception
+     */
+    public static <T> CompletableFuture<T> submit(Call<T> call)
+    {
+        int session = DatabaseConnection.getSession();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() ->
+        {
+            DatabaseConnection.setSession(session);
+            try
+            {
+                permits.acquire();
+                try
+                {
+                    future.complete(call.run());
+                }
+                finally
+                {
+                    permits.release();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(new DatabaseException("Interrupted while waiting for a database connection", e));
+            }
+            catch (Throwable t)
+            {
+                future.completeExceptionally(t);
+            }
+            finally
+            {
+                DatabaseConnection.clearSession();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Starts an action without a result; see {@link #submit(Call)}.
+     */
+    public static CompletableFuture<Void> run(Action action)
+    {
+        return submit(() ->
+        {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Waits for a future from this executor and rethrows its failure the way the
+     * blocking service method would have thrown it.
+     *
+     * @throws DatabaseException if the call failed with one, or the wait was interrupted
+     */
+    public static <T> T await(CompletableFuture<T> future) throws DatabaseException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while waiting for the database", e);
+        }
+        catch (ExecutionException | CompletionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof DatabaseException databaseException)
+            {
+                throw databaseException;
+            }
+            if (cause instanceof RuntimeException runtimeException)
+            {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error)
+            {
+                throw error;
+            }
+            throw new DatabaseException("Database call failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Stops accepting calls and waits for the running ones to finish.
+     *
+     * @return true if all calls finished in time
+     */
+    public static boolean shutdown(long timeoutMillis) throws InterruptedException
+    {
+        executor.shutdown();
+        return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,195 @@
+package services;
+
+import config.Config;
+import models.Contact;
+import models.ContactField;
+import models.UndoEntry;
+import models.User;
+import models.UserField;
+import mutationlog.MutationLog;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes committed contact and user changes to the shared {@link MutationLog}.
+ * <p>
+ * Changes are logged after the database accepted them, so the log only holds
+ * committed mutations and ADD records carry the generated key. With
+ * {@code mutationlog.sync=true} (default) the caller waits for the group commit
+ * that makes its record durable; otherwise it returns as soon as the record is
+ * in the page cache. A failing log never fails the change itself. Password
+ * hashes are left out of user records, so they are never copied into the log files.
+ */
+class MutationRecorder
+{
+    private static final boolean SYNC = Config.getBoolean("mutationlog.sync", true);
+
+    private MutationRecorder()
+    {
+
+    }
+
+    static void contactAdded(Contact contact)
+    {
+        record(UndoEntry.EntityType.CONTACT, UndoEntry.Operation.ADD, contact.getContactId(), ContactField.snapshot(contact));
+    }
+
+    static void contactUpdated(Contact contact)
+    {
+        record(UndoEntry.EntityType.CONTACT, UndoEntry.Operation.UPDATE, contact.getContactId(), ContactField.snapshot(contact));
+    }
+
+    static void contactDeleted(int contactId)
+    {
+        record(UndoEntry.EntityType.CONTACT, UndoEntry.Operation.DELETE, contactId, null);
+    }
+
+    static void userAdded(User user)
+    {
+        record(UndoEntry.EntityType.USER, UndoEntry.Operation.ADD, user.getUserId(), UserField.snapshot(user));
+    }
+
+    static void userUpdated(User user)
+    {
+        record(UndoEntry.EntityType.USER, UndoEntry.Operation.UPDATE, user.getUserId(), UserField.snapshot(user));
+    }
+
+    static void userDeleted(int userId)
+    {
+        record(UndoEntry.EntityType.USER, UndoEntry.Operation.DELETE, userId, null);
+    }
+
+    // Undo and redo write rows directly, so log the change they made as a regular mutation
+    static void applied(UndoEntry entry, boolean undo)
+    {
+        if (entry.getOperation().isBulk())
+        {
+            appliedBulk(entry, undo);
+            return;
+        }
+        UndoEntry.Operation operation = entry.getOperation();
+        if (undo && operation != UndoEntry.Operation.UPDATE)
+        {
+            operation = operation == UndoEntry.Operation.ADD ? UndoEntry.Operation.DELETE : UndoEntry.Operation.ADD;
+        }
+        Map<String, String> values = operation == UndoEntry.Operation.DELETE ? null
+                : undo ? entry.getBefore() : entry.getAfter();
+        record(entry.getEntityType(), operation, entry.getEntityId(), values);
+    }
+
+    private static void appliedBulk(UndoEntry entry, boolean undo)
+    {
+        MutationLog log = MutationLog.shared();
+        if (log == null)
+        {
+            return;
+        }
+        boolean delete = entry.getOperation() == UndoEntry.Operation.BULK_DELETE;
+        UndoEntry.Operation operation = !delete ? UndoEntry.Operation.UPDATE
+                : undo ? UndoEntry.Operation.ADD : UndoEntry.Operation.DELETE;
+        List<Map<String, String>> rows = delete || undo ? entry.getBeforeRows() : entry.getAfterRows();
+        try
+        {
+            long last = 0;
+            for (Map<String, String> row : rows)
+            {
+                Map<String, String> values = new LinkedHashMap<>(row);
+                int id = Integer.parseInt(values.remove(entry.getEntityType().idColumn()));
+                last = log.append(entry.getEntityType(), operation, id, operation == UndoEntry.Operation.DELETE ? null : values);
+            }
+            if (SYNC && last > 0)
+            {
+                log.awaitDurable(last);
+            }
+        }
+        catch (IOException e)
+        {
+            System.out.println("Warning: mutations not logged (" + e.getMessage() + ")");
+        }
+    }
+
+    // Bulk writes append every record first and wait once, for the group commit covering the last one
+    static void contactsWritten(List<Contact> added, List<Contact> updated)
+    {
+        MutationLog log = MutationLog.shared();
+        if (log == null)
+        {
+            return;
+        }
+        try
+        {
+            long last = 0;
+            for (Contact contact : added)
+            {
+                last = log.append(UndoEntry.EntityType.CONTACT, UndoEntry.Operation.ADD, contact.getContactId(), ContactField.snapshot(contact));
+            }
+            for (Contact contact : updated)
+            {
+                last = log.append(UndoEntry.EntityType.CONTACT, UndoEntry.Operation.UPDATE, contact.getContactId(), ContactField.snapshot(contact));
+            }
+            if (SYNC && last > 0)
+            {
+                log.awaitDurable(last);
+            }
+        }
+        catch (IOException e)
+        {
+            System.out.println("Warning: mutations not logged (" + e.getMessage() + ")");
+        }
+    }
+
+    // Rows of a bulk operation; an update logs the applied changes for each row
+    static void contactsBulkChanged(UndoEntry.Operation operation, List<Map<String, String>> rows, Map<String, String> changes)
+    {
+        MutationLog log = MutationLog.shared();
+        if (log == null || rows.isEmpty())
+        {
+            return;
+        }
+        try
+        {
+            long last = 0;
+            for (Map<String, String> row : rows)
+            {
+                last = log.append(UndoEntry.EntityType.CONTACT, operation, Integer.parseInt(row.get("contact_id")), changes);
+            }
+            if (SYNC)
+            {
+                log.awaitDurable(last);
+            }
+        }
+        catch (IOException e)
+        {
+            System.out.println("Warning: mutations not logged (" + e.getMessage() + ")");
+        }
+    }
+
+    private static void record(UndoEntry.EntityType type, UndoEntry.Operation operation, int entityId, Map<String, String> values)
+    {
+        MutationLog log = MutationLog.shared();
+        if (log == null || entityId <= 0)
+        {
+            return;
+        }
+        if (type == UndoEntry.EntityType.USER && values != null && values.containsKey(UserField.PASSWORD_HASH.column()))
+        {
+            values = new LinkedHashMap<>(values);
+            values.remove(UserField.PASSWORD_HASH.column());
+        }
+        try
+        {
+            long sequence = log.append(type, operation, entityId, values);
+            if (SYNC)
+            {
+                log.awaitDurable(sequence);
+            }
+        }
+        catch (IOException e)
+        {
+            System.out.println("Warning: mutation not logged (" + e.getMessage() + ")");
+        }
+    }
+}
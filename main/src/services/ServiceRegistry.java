@@ -0,0 +1,262 @@
+package services;
+
+import auth.AuthService;
+import config.Config;
+import config.ConfigWatcher;
+import dao.ContactArchiveDao;
+import dao.ContactArchiveDaoImplementation;
+import dao.ContactDao;
+import dao.ContactDaoImplementation;
+import dao.ShardedContactDao;
+import dao.UndoJournalDao;
+import dao.UndoJournalDaoImplementation;
+import dao.UserDao;
+import dao.UserDaoImplementation;
+import db.DatabaseConnection;
+import mutationlog.MutationLog;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Builds the application's shared objects once and stops them in order on shutdown.
+ * <p>
+ * The database handle, the DAOs and the services are created here, each exactly
+ * once, with their dependencies passed in; controllers, the HTTP API and the batch
+ * runner take them from {@link #get()} instead of creating their own.
+ * <p>
+ * Parts with threads or open resources are registered as {@link Component}s, each
+ * naming the components it depends on. They are listed in start order (dependencies
+ * first), so independent ones can be started side by side, and stopped in the
+ * reverse order, so work still in flight can finish before what it uses goes away.
+ * {@link #shutdown()} gives all stops together at most {@code shutdown.timeoutMillis}
+ * (default 10000); a stop that overruns is reported and left behind. It also runs
+ * from a JVM shutdown hook, e.g. on Ctrl+C.
+ */
+public final class ServiceRegistry
+{
+    /**
+     * Starts a component.
+     */
+    @FunctionalInterface
+    public interface Start
+    {
+        void run() throws Exception;
+    }
+
+    /**
+     * Stops a component, waiting at most the given time for its work to drain.
+     */
+    @FunctionalInterface
+    public interface Stop
+    {
+        /**
+         * @return false if the component could not drain in time
+         */
+        boolean run(long timeoutMillis) throws Exception;
+    }
+
+    /**
+     * A part of the application with a lifecycle.
+     *
+     * @param name      shown in startup and shutdown reports
+     * @param dependsOn names of components that must be started first and stopped last
+     * @param start     starts it
+     * @param stop      drains and closes it
+     */
+    public record Component(String name, List<String> dependsOn, Start start, Stop stop)
+    {
+    }
+
+    private static final class Holder
+    {
+        private static final ServiceRegistry INSTANCE = new ServiceRegistry();
+    }
+
+    private final DatabaseConnection database = new DatabaseConnection();
+    private final ContactDao contactDao;
+    private final ContactArchiveDao archiveDao = new ContactArchiveDaoImplementation(database);
+    private final UserDao userDao = new UserDaoImplementation(database);
+    private final UndoJournalDao undoJournal = new UndoJournalDaoImplementation(database);
+
+    private final ContactService contactService;
+    private final UserService userService;
+    private final StatisticalInfoService statisticsService;
+    private final ContactArchiver archiver;
+    private final AuthService authService = new AuthService(database);
+    private final AsyncContactService asyncContactService;
+    private final AsyncUserService asyncUserService;
+
+    private final List<Component> components = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+
+    private ServiceRegistry()
+    {
+        // Contacts live either in the primary database or, with db.shards set, on several shards
+        contactDao = ShardedContactDao.isEnabled() ? ShardedContactDao.shared() : new ContactDaoImplementation(database);
+        contactService = new ContactService(contactDao, archiveDao);
+        userService = new UserService(userDao);
+        statisticsService = new StatisticalInfoService(contactService);
+        archiver = new ContactArchiver(archiveDao, contactService);
+        asyncContactService = new AsyncContactService(contactService);
+        asyncUserService = new AsyncUserService(userService);
+
+        // Applies edits of the configuration file to the components below while they run
+        register(new Component("Config watcher", List.of(), ConfigWatcher::start, ConfigWatcher::stop));
+        register(new Component("Database", List.of(), database::getPool,
+                DatabaseConnection::shutdown));
+        register(new Component("Mutation log", List.of(), MutationLog::shared, timeout ->
+        {
+            MutationLog.closeShared();
+            return true;
+        }));
+        if (contactDao instanceof ShardedContactDao sharded)
+        {
+            register(new Component("Contact shards", List.of("Database"), () -> { }, sharded::close));
+        }
+        register(new Component("Database executor", List.of("Database"), () -> { }, DatabaseExecutor::shutdown));
+        register(new Component("Statistics cache", List.of("Database"), () -> { }, statisticsService::shutdown));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "service-shutdown"));
+    }
+
+    /**
+     * @return the registry, built on first use
+     */
+    public static ServiceRegistry get()
+    {
+        return Holder.INSTANCE;
+    }
+
+    public DatabaseConnection database()
+    {
+        return database;
+    }
+
+    public ContactService contacts()
+    {
+        return contactService;
+    }
+
+    public UserService users()
+    {
+        return userService;
+    }
+
+    public StatisticalInfoService statistics()
+    {
+        return statisticsService;
+    }
+
+    public ContactArchiver archiver()
+    {
+        return archiver;
+    }
+
+    public AuthService auth()
+    {
+        return authService;
+    }
+
+    public AsyncContactService asyncContacts()
+    {
+        return asyncContactService;
+    }
+
+    public AsyncUserService asyncUsers()
+    {
+        return asyncUserService;
+    }
+
+    /**
+     * @return an undo service for the user, sharing the journal and contact service
+     */
+    public UndoService undoFor(int userId)
+    {
+        return new UndoService(userId, undoJournal, contactService);
+    }
+
+    /**
+     * Adds a component, e.g. a server once it listens. Its dependencies must already be registered.
+     */
+    public void register(Component component)
+    {
+        List<String> names = components.stream().map(Component::name).toList();
+        if (!names.containsAll(component.dependsOn()))
+        {
+            throw new IllegalArgumentException("Unknown dependency of " + component.name() + ": " + component.dependsOn());
+        }
+        components.add(component);
+    }
+
+    /**
+     * @return the components in start order: every component after the ones it depends on
+     */
+    public List<Component> components()
+    {
+        return Collections.unmodifiableList(components);
+    }
+
+    /**
+     * Stops every component in reverse start order. Only the first call does anything.
+     */
+    public void shutdown()
+    {
+        if (!stopped.compareAndSet(false, true))
+        {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + Config.getLong("shutdown.timeoutMillis", 10_000L);
+        List<Component> reversed = new ArrayList<>(components);
+        Collections.reverse(reversed);
+        for (Component component : reversed)
+        {
+            long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            String problem = stop(component, remaining);
+            if (problem != null)
+            {
+                System.out.println("Warning: " + component.name() + " " + problem);
+            }
+        }
+    }
+
+    // Runs the stop on its own thread so one that hangs cannot hold up the rest; returns a problem or null
+    private static String stop(Component component, long timeoutMillis)
+    {
+        boolean[] drained = new boolean[1];
+        Exception[] failure = new Exception[1];
+        Thread stopper = Thread.ofVirtual().name("stop-" + component.name()).start(() ->
+        {
+            try
+            {
+                drained[0] = component.stop().run(timeoutMillis);
+            }
+            catch (Exception e)
+            {
+                failure[0] = e;
+            }
+        });
+        try
+        {
+            // A little slack so a stop that honours its timeout can still report
+            if (!stopper.join(Duration.ofMillis(timeoutMillis + 100)))
+            {
+                return "did not stop within " + timeoutMillis + " ms";
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return "was interrupted while stopping";
+        }
+        if (failure[0] != null)
+        {
+            return "failed to stop: " + failure[0].getMessage();
+        }
+        return drained[0] ? null : "did not drain within " + timeoutMillis + " ms";
+    }
+}
@@ -1,19 +1,62 @@
 package services;
 
+import config.Config;
+import dao.ChunkedContactScanner;
+import dao.ShardedContactDao;
+import db.DatabaseConnection;
 import models.Contact;
 import exceptions.DatabaseException;
+import statistics.ApproximationSettings;
+import statistics.ContactStatsAccumulator;
+import statistics.Granularity;
+import statistics.HyperLogLog;
+import statistics.TDigest;
+import statistics.TopKTracker;
 
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 public class StatisticalInfoService
 {
-    private final ContactService contactService = new ContactService();
+    private final ContactService contactService;
+
+    // Shared by every service instance so all manager screens reuse one cached result
+    private static final StatisticsCache statisticsCache = new StatisticsCache(cacheTtlMillis());
+
+    static
+    {
+        Config.onChange("stats.cache.ttlSeconds", () -> statisticsCache.setTtlMillis(cacheTtlMillis()));
+    }
+
+    // Upper bound on buckets per series so long histories never grow the result
+    public static final int MAX_GROWTH_BUCKETS = 400;
+
+    // Built once by ServiceRegistry
+    public StatisticalInfoService(ContactService contactService)
+    {
+        this.contactService = contactService;
+    }
+
+    private static long cacheTtlMillis()
+    {
+        return Config.getLong("stats.cache.ttlSeconds", 60L) * 1000;
+    }
+
+    /**
+     * Stops the background refresh of the cached statistics.
+     *
+     * @return true if a running refresh finished in time
+     */
+    public boolean shutdown(long timeoutMillis) throws InterruptedException
+    {
+        return statisticsCache.close(timeoutMillis);
+    }
 
     /**
      * Returns statistics about users and contacts
@@ -96,13 +139,14 @@ public class StatisticalInfoService
 
 
         /* -----------------------------
-           7. Birthdays this Month
+           7. Birthdays this Month and in the next week (birthday index)
         ----------------------------- */
-        long birthdaysThisMonth = contacts.stream()
-                .filter(c -> c.getBirthDate() != null &&
-                        c.getBirthDate().getMonthValue() == LocalDate.now().getMonthValue())
-                .count();
+        LocalDate today = LocalDate.now();
+        long birthdaysThisMonth = contactService
+                .upcomingBirthdays(today.withDayOfMonth(1), today.lengthOfMonth())
+                .size();
         stats.put("birthdaysThisMonth", birthdaysThisMonth);
+        stats.put("birthdaysNext7Days", contactService.upcomingBirthdays(today, 7));
 
 
         /* -----------------------------
@@ -115,6 +159,226 @@ public class StatisticalInfoService
         stats.put("emailDomainCounts", emailDomains);
 
 
+        return stats;
+    }
+
+    /**
+     * Returns how many contacts were created and last updated per day, week or month.
+     * <p>
+     * Only the most recent {@code buckets} periods (the current one included) are
+     * aggregated, by an indexed {@code GROUP BY} on the timestamp column. Periods
+     * without rows are reported as zero so the series has no gaps. Because a row only
+     * keeps its latest {@code updated_at}, the "updated" series counts contacts whose
+     * last change fell into a period, not every individual edit.
+     *
+     * @param granularity bucket size
+     * @param buckets     number of periods, between 1 and {@link #MAX_GROWTH_BUCKETS}
+     * @return Map with "created" and "updated" series (label to count) and window totals
+     * @throws DatabaseException if fetching data fails
+     */
+    public Map<String, Object> getGrowthStatistics(Granularity granularity, int buckets) throws DatabaseException
+    {
+        if (buckets < 1 || buckets > MAX_GROWTH_BUCKETS)
+        {
+            throw new IllegalArgumentException("Buckets must be between 1 and " + MAX_GROWTH_BUCKETS + ": " + buckets);
+        }
+        LocalDate current = granularity.bucketStart(LocalDate.now());
+        LocalDate since = granularity.plus(current, -(buckets - 1));
+
+        Map<String, Long> created = fillSeries(granularity, since, buckets,
+                contactService.countPerPeriod("created_at", granularity, since));
+        Map<String, Long> updated = fillSeries(granularity, since, buckets,
+                contactService.countPerPeriod("updated_at", granularity, since));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("granularity", granularity);
+        stats.put("since", since);
+        stats.put("createdInWindow", created.values().stream().mapToLong(Long::longValue).sum());
+        stats.put("updatedInWindow", updated.values().stream().mapToLong(Long::longValue).sum());
+        stats.put("created", created);
+        stats.put("updated", updated);
+        return stats;
+    }
+
+    // Expands sparse bucket counts into a gap-free series labelled per bucket
+    private Map<String, Long> fillSeries(Granularity granularity, LocalDate since, int buckets,
+                                         Map<LocalDate, Long> counts)
+    {
+        Map<String, Long> series = new LinkedHashMap<>();
+        for (int i = 0; i < buckets; i++)
+        {
+            LocalDate bucket = granularity.plus(since, i);
+            series.put(granularity.label(bucket), counts.getOrDefault(bucket, 0L));
+        }
+        return series;
+    }
+
+    /**
+     * Returns the result of {@link #getStatistics()} from a stale-while-revalidate cache.
+     * <p>
+     * Only the first call blocks. After the TTL expires the previous result is returned
+     * immediately while one background refresh recomputes it.
+     *
+     * @return cached statistics together with their age
+     * @throws DatabaseException if the first computation fails
+     */
+    public StatisticsCache.Snapshot getCachedStatistics() throws DatabaseException
+    {
+        return statisticsCache.get(this::getStatistics);
+    }
+
+    /**
+     * Returns the same exact statistics as {@link #getStatistics()}, computed in parallel.
+     * <p>
+     * The {@code contact_id} range is split into chunks that are scanned concurrently over
+     * several pooled connections, each inside a consistent-snapshot read-only transaction,
+     * and the per-chunk {@link ContactStatsAccumulator}s are merged on a fork-join pool.
+     *
+     * @return Map with statistical info
+     * @throws DatabaseException if fetching data fails
+     */
+    public Map<String, Object> getStatisticsParallel() throws DatabaseException
+    {
+        LocalDate today = LocalDate.now();
+        // Sharded contacts are scanned shard by shard and the accumulators merged like chunks
+        List<DatabaseConnection> sources = ShardedContactDao.isEnabled()
+                ? ShardedContactDao.shared().getShardConnections()
+                : List.of(new DatabaseConnection());
+        try
+        {
+            ContactStatsAccumulator total = null;
+            for (DatabaseConnection source : sources)
+            {
+                // Read per scan; the scanner also caps it at half of the (possibly resized) pool
+                int parallelism = Math.max(1, Config.getInt("stats.parallel.threads", Runtime.getRuntime().availableProcessors()));
+                ChunkedContactScanner scanner = new ChunkedContactScanner(
+                        Config.getInt("stats.parallel.chunkSize", 10_000), parallelism, source);
+                ContactStatsAccumulator part = scanner.scan(() -> new ContactStatsAccumulator(today),
+                        ContactStatsAccumulator::accept,
+                        ContactStatsAccumulator::merge);
+                total = total == null ? part : total.merge(part);
+            }
+            return total.toStatistics();
+        }
+        catch (Exception e)
+        {
+            throw new DatabaseException("Failed to compute statistics in parallel", e);
+        }
+    }
+
+    /**
+     * Returns approximate statistics using the default error bounds.
+     * @return Map with statistical info
+     * @throws DatabaseException if fetching data fails
+     * @see #getApproximateStatistics(ApproximationSettings)
+     */
+    public Map<String, Object> getApproximateStatistics() throws DatabaseException
+    {
+        return getApproximateStatistics(ApproximationSettings.defaults());
+    }
+
+    /**
+     * Returns approximate statistics computed in a single streaming pass with fixed memory.
+     * <p>
+     * Instead of grouping every name and domain into exact maps, distinct counts come
+     * from HyperLogLog, the most frequent values from Count-Min sketches with a top-K heap,
+     * and age percentiles from a t-digest. Counts such as totals, LinkedIn coverage and
+     * the youngest/oldest contact are still exact because they need constant memory anyway.
+     *
+     * @param settings error bounds used to size the sketches
+     * @return Map with statistical info
+     * @throws DatabaseException if fetching data fails
+     */
+    public Map<String, Object> getApproximateStatistics(ApproximationSettings settings) throws DatabaseException
+    {
+        HyperLogLog distinctFirstNames = settings.newDistinctCounter();
+        HyperLogLog distinctLastNames = settings.newDistinctCounter();
+        HyperLogLog distinctDomains = settings.newDistinctCounter();
+        TopKTracker topFirstNames = settings.newTopKTracker();
+        TopKTracker topLastNames = settings.newTopKTracker();
+        TopKTracker topDomains = settings.newTopKTracker();
+        TDigest ages = settings.newDigest();
+
+        LocalDate today = LocalDate.now();
+        long[] counters = new long[4]; // total, withLinkedIn, birthdaysThisMonth, ageSum
+        Contact[] extremes = new Contact[2]; // youngest, oldest
+
+        try
+        {
+            contactService.forEachContact(c ->
+            {
+                counters[0]++;
+
+                distinctFirstNames.add(c.getFirstName());
+                topFirstNames.add(c.getFirstName());
+                distinctLastNames.add(c.getLastName());
+                topLastNames.add(c.getLastName());
+
+                if (c.getLinkedinUrl() != null && !c.getLinkedinUrl().isEmpty())
+                {
+                    counters[1]++;
+                }
+
+                if (c.getEmail() != null && c.getEmail().contains("@"))
+                {
+                    String domain = c.getEmail().substring(c.getEmail().indexOf("@") + 1);
+                    distinctDomains.add(domain);
+                    topDomains.add(domain);
+                }
+
+                LocalDate birthDate = c.getBirthDate();
+                if (birthDate != null)
+                {
+                    int age = Period.between(birthDate, today).getYears();
+                    ages.add(age);
+                    counters[3] += age;
+
+                    if (birthDate.getMonthValue() == today.getMonthValue())
+                    {
+                        counters[2]++;
+                    }
+                    if (extremes[0] == null || birthDate.isAfter(extremes[0].getBirthDate()))
+                    {
+                        extremes[0] = c;
+                    }
+                    if (extremes[1] == null || birthDate.isBefore(extremes[1].getBirthDate()))
+                    {
+                        extremes[1] = c;
+                    }
+                }
+            });
+        }
+        catch (DatabaseException e)
+        {
+            // A partial scan would give sketches of only part of the table
+            throw new DatabaseException("Failed to compute approximate statistics", e);
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("approximate", true);
+        stats.put("totalContacts", counters[0]);
+        stats.put("distinctFirstNames", distinctFirstNames.estimate());
+        stats.put("distinctLastNames", distinctLastNames.estimate());
+        stats.put("distinctEmailDomains", distinctDomains.estimate());
+        stats.put("topFirstNames", topFirstNames.topK());
+        stats.put("topLastNames", topLastNames.topK());
+        stats.put("topEmailDomains", topDomains.topK());
+        stats.put("withLinkedIn", counters[1]);
+        stats.put("withoutLinkedIn", counters[0] - counters[1]);
+        stats.put("youngestContact", extremes[0]);
+        stats.put("oldestContact", extremes[1]);
+        stats.put("averageAge", ages.size() == 0 ? 0 : (double) counters[3] / ages.size());
+        stats.put("birthdaysThisMonth", counters[2]);
+
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        if (ages.size() > 0)
+        {
+            percentiles.put("p50", ages.quantile(0.50));
+            percentiles.put("p90", ages.quantile(0.90));
+            percentiles.put("p99", ages.quantile(0.99));
+        }
+        stats.put("agePercentiles", percentiles);
+
         return stats;
     }
 }
@@ -0,0 +1,204 @@
+package services;
+
+import exceptions.DatabaseException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stale-while-revalidate cache for the statistics map.
+ * <p>
+ * Only the very first call waits for the statistics to be computed. Once the
+ * cached value is older than the TTL, callers still get it immediately while a
+ * single background refresh replaces it; concurrent callers never start a
+ * second refresh. The value and its timestamp are replaced together, so a
+ * snapshot's age always belongs to its statistics. A failed background refresh
+ * is not printed from the refresher thread; it is reported with the next
+ * snapshot until a refresh succeeds.
+ */
+public class StatisticsCache
+{
+    /**
+     * Computes a fresh statistics map.
+     */
+    @FunctionalInterface
+    public interface Loader
+    {
+        Map<String, Object> load() throws DatabaseException;
+    }
+
+    /**
+     * Immutable cached statistics together with the time they were computed.
+     */
+    public static class Snapshot
+    {
+        private final Map<String, Object> statistics;
+        private final Instant computedAt;
+        private final boolean refreshing;
+        private final String refreshError;
+
+        private Snapshot(Cached cached, boolean refreshing, String refreshError)
+        {
+            this.statistics = cached.statistics();
+            this.computedAt = cached.computedAt();
+            this.refreshing = refreshing;
+            this.refreshError = refreshError;
+        }
+
+        public Map<String, Object> getStatistics()
+        {
+            return statistics;
+        }
+
+        public Instant getComputedAt()
+        {
+            return computedAt;
+        }
+
+        public Duration getAge()
+        {
+            return Duration.between(computedAt, Instant.now());
+        }
+
+        /**
+         * @return true if a background refresh was running when this snapshot was returned
+         */
+        public boolean isRefreshing()
+        {
+            return refreshing;
+        }
+
+        /**
+         * @return why the last background refresh failed, or null if it succeeded
+         */
+        public String getRefreshError()
+        {
+            return refreshError;
+        }
+    }
+
+    // Statistics together with the time they were computed, replaced as one
+    private record Cached(Map<String, Object> statistics, Instant computedAt)
+    {
+    }
+
+    private volatile long ttlMillis;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r ->
+    {
+        Thread t = new Thread(r, "statistics-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicReference<Cached> cached = new AtomicReference<>();
+    private volatile String refreshError;
+
+    /**
+     * @param ttlMillis how long a computed value counts as fresh
+     */
+    public StatisticsCache(long ttlMillis)
+    {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Changes the TTL; a cached value older than the new TTL is refreshed on the next call.
+     *
+     * @param ttlMillis how long a computed value counts as fresh
+     */
+    public void setTtlMillis(long ttlMillis)
+    {
+        if (ttlMillis < 0)
+        {
+            throw new IllegalArgumentException("TTL must not be negative: " + ttlMillis);
+        }
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns the cached statistics, loading them synchronously only if nothing is cached yet.
+     *
+     * @param loader computes fresh statistics
+     * @return the cached (possibly stale) statistics and their age
+     * @throws DatabaseException if the initial load fails
+     */
+    public Snapshot get(Loader loader) throws DatabaseException
+    {
+        Cached current = cached.get();
+        if (current == null)
+        {
+            synchronized (this)
+            {
+                // Callers that raced on the first load wait here and reuse its result
+                current = cached.get();
+                if (current == null)
+                {
+                    current = store(loader.load());
+                }
+            }
+        }
+        else if (isExpired(current) && refreshing.compareAndSet(false, true))
+        {
+            try
+            {
+                refresher.execute(() -> refresh(loader));
+            }
+            catch (RejectedExecutionException e)
+            {
+                // Shutting down; keep serving the stale value
+                refreshing.set(false);
+            }
+        }
+        return new Snapshot(current, refreshing.get(), refreshError);
+    }
+
+    /**
+     * Stops background refreshes, letting a running one finish.
+     *
+     * @return true if no refresh was still running after the timeout
+     */
+    public boolean close(long timeoutMillis) throws InterruptedException
+    {
+        refresher.shutdown();
+        return refresher.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean isExpired(Cached current)
+    {
+        return Duration.between(current.computedAt(), Instant.now()).toMillis() >= ttlMillis;
+    }
+
+    private void refresh(Loader loader)
+    {
+        try
+        {
+            store(loader.load());
+            refreshError = null;
+        }
+        catch (Exception e)
+        {
+            // Keep serving the stale value; the next expired read retries the refresh
+            refreshError = String.valueOf(e.getMessage());
+        }
+        finally
+        {
+            refreshing.set(false);
+        }
+    }
+
+    private Cached store(Map<String, Object> fresh)
+    {
+        Cached stored = new Cached(Collections.unmodifiableMap(fresh), Instant.now());
+        cached.set(stored);
+        return stored;
+    }
+}
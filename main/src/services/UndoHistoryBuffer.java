@@ -0,0 +1,185 @@
+package services;
+
+import models.UndoEntry;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring buffer holding the newest undo entries of one session.
+ * <p>
+ * The buffer keeps at most {@code capacity} entries and at most {@code maxBytes}
+ * estimated heap bytes; the oldest entries are evicted first. It always holds a
+ * contiguous, newest-first slice of the user's journal, so the latest undoable
+ * entry and the oldest redoable entry can be answered without a database query
+ * whenever they are still buffered.
+ */
+public class UndoHistoryBuffer
+{
+    private UndoEntry[] ring;
+    private long maxBytes;
+
+    private int head = 0;   // index of the oldest entry
+    private int size = 0;
+    private long usedBytes = 0;
+
+    /**
+     * @param capacity maximum number of entries
+     * @param maxBytes maximum estimated heap bytes of all entries together
+     */
+    public UndoHistoryBuffer(int capacity, long maxBytes)
+    {
+        if (capacity <= 0 || maxBytes <= 0)
+        {
+            throw new IllegalArgumentException("Capacity and byte budget must be positive");
+        }
+        this.ring = new UndoEntry[capacity];
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Appends a newly recorded entry. Entries that could still be redone are dropped
+     * first, because a new operation invalidates them.
+     *
+     * @param entry the entry to add
+     */
+    public synchronized void push(UndoEntry entry)
+    {
+        while (size > 0 && newest().isUndone())
+        {
+            removeNewest();
+        }
+
+        long bytes = entry.estimatedBytes();
+        if (bytes > maxBytes)
+        {
+            // Too large to buffer; older entries are no longer a contiguous suffix either
+            clear();
+            return;
+        }
+        while (size == ring.length || usedBytes + bytes > maxBytes)
+        {
+            removeOldest();
+        }
+        ring[(head + size) % ring.length] = entry;
+        size++;
+        usedBytes += bytes;
+    }
+
+    /**
+     * @return the newest entry that has not been undone, or null if none is buffered
+     */
+    public synchronized UndoEntry latestActive()
+    {
+        for (int i = size - 1; i >= 0; i--)
+        {
+            UndoEntry entry = at(i);
+            if (!entry.isUndone())
+            {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the oldest entry that has been undone, or null if none is buffered
+     */
+    public synchronized UndoEntry oldestUndone()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            UndoEntry entry = at(i);
+            if (entry.isUndone())
+            {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Changes the limits, keeping the newest entries that still fit.
+     *
+     * @param capacity maximum number of entries
+     * @param maxBytes maximum estimated heap bytes of all entries together
+     */
+    public synchronized void resize(int capacity, long maxBytes)
+    {
+        if (capacity <= 0 || maxBytes <= 0)
+        {
+            throw new IllegalArgumentException("Capacity and byte budget must be positive");
+        }
+        while (size > capacity || usedBytes > maxBytes)
+        {
+            removeOldest();
+        }
+        UndoEntry[] resized = new UndoEntry[capacity];
+        for (int i = 0; i < size; i++)
+        {
+            resized[i] = at(i);
+        }
+        ring = resized;
+        head = 0;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Drops the oldest entries until at most {@code maxEntries} are left.
+     *
+     * @param maxEntries number of newest entries to keep
+     */
+    public synchronized void trimTo(int maxEntries)
+    {
+        while (size > Math.max(0, maxEntries))
+        {
+            removeOldest();
+        }
+    }
+
+    /**
+     * Drops every buffered entry.
+     */
+    public synchronized void clear()
+    {
+        Arrays.fill(ring, null);
+        head = 0;
+        size = 0;
+        usedBytes = 0;
+    }
+
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    public synchronized long usedBytes()
+    {
+        return usedBytes;
+    }
+
+    private UndoEntry at(int offset)
+    {
+        return ring[(head + offset) % ring.length];
+    }
+
+    private UndoEntry newest()
+    {
+        return at(size - 1);
+    }
+
+    private void removeNewest()
+    {
+        int index = (head + size - 1) % ring.length;
+        usedBytes -= ring[index].estimatedBytes();
+        ring[index] = null;
+        size--;
+    }
+
+    private void removeOldest()
+    {
+        usedBytes -= ring[head].estimatedBytes();
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        size--;
+    }
+}
@@ -1,50 +1,261 @@
 package services;
 
-import java.util.Stack;
+import config.Config;
+import dao.ShardedContactDao;
+import dao.UndoJournalDao;
+import exceptions.DatabaseException;
+import models.Contact;
+import models.ContactField;
+import models.FieldDelta;
+import models.UndoEntry;
+import models.User;
+import models.UserField;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Generic Undo service to save and restore previous states.
- * Can be used for Users, Contacts, or other objects.
+ * Undo/redo service backed by the database undo journal.
+ * <p>
+ * Every add, update and delete on contacts and users is recorded as a command holding
+ * the row's column values before and after the change. Undo applies the inverse
+ * command and redo re-applies the original one, each in a single transaction. The
+ * journal lives in the {@code undo_journal} table, keyed by user, so it survives
+ * logout and holds at most {@code undo.retain} entries per user (default 50).
+ * Contact entries cannot be undone or redone while contacts are sharded, because
+ * the journal applies rows to the primary database only.
+ * <p>
+ * Updates are stored as field-level diffs. The newest entries of the session are also
+ * kept in an {@link UndoHistoryBuffer} bounded by {@code undo.buffer.capacity} entries
+ * and {@code undo.buffer.maxBytes} bytes, so undo and redo usually need no lookup query.
+ * The buffer never holds more than {@code undo.retain} entries, so it never offers an
+ * entry that has already been trimmed from the journal.
+ * All three limits can be changed in the configuration file while the application runs.
  */
 public class UndoService
 {
-    private final Stack<Object> history = new Stack<>();
+    private final int userId;
+    private final UndoJournalDao journal;
+    private final ContactService contactService;
+    // One buffer per user, shared by all sessions of that user so none of them sees a stale history
+    private static final Map<Integer, UndoHistoryBuffer> buffers = new ConcurrentHashMap<>();
+
+    static
+    {
+        // undo.retain caps the buffer as well as the journal
+        Config.onChange("undo.", () -> buffers.values().forEach(
+                b -> b.resize(bufferCapacity(), bufferMaxBytes())));
+    }
+
+    private final UndoHistoryBuffer buffer;
 
     /**
-     * Save the previous state for undo
-     * @param previousState the object representing the previous state
+     * Use {@link ServiceRegistry#undoFor(int)}.
+     *
+     * @param userId         the user whose history this service manages
+     * @param journal        the shared undo journal
+     * @param contactService applies contact undo/redo so caches stay current
      */
-    public void saveState(Object previousState)
+    UndoService(int userId, UndoJournalDao journal, ContactService contactService)
+    {
+        this.userId = userId;
+        this.journal = journal;
+        this.contactService = contactService;
+        this.buffer = buffers.computeIfAbsent(userId, id -> new UndoHistoryBuffer(bufferCapacity(), bufferMaxBytes()));
+    }
+
+    private static int retain()
+    {
+        return Config.getInt("undo.retain", 50);
+    }
+
+    // Never more than the journal retains
+    private static int bufferCapacity()
     {
-        if (previousState != null)
+        return Math.max(1, Math.min(Config.getInt("undo.buffer.capacity", 100), retain()));
+    }
+
+    private static long bufferMaxBytes()
+    {
+        return Config.getLong("undo.buffer.maxBytes", 64 * 1024L);
+    }
+
+    // Recording helpers; call them after the change has been persisted
+    public void recordContactAdded(Contact contact)
+    {
+        record(new UndoEntry(userId, UndoEntry.EntityType.CONTACT, UndoEntry.Operation.ADD,
+                contact.getContactId(), ContactField.snapshot(contact)));
+    }
+
+    public void recordContactUpdated(Map<String, String> before, Contact after)
+    {
+        recordUpdate(UndoEntry.EntityType.CONTACT, after.getContactId(), before, ContactField.snapshot(after));
+    }
+
+    public void recordContactDeleted(Contact contact)
+    {
+        record(new UndoEntry(userId, UndoEntry.EntityType.CONTACT, UndoEntry.Operation.DELETE,
+                contact.getContactId(), ContactField.snapshot(contact)));
+    }
+
+    public void recordContactsBulkUpdated(List<Map<String, String>> beforeRows, Map<String, String> changes)
+    {
+        if (beforeRows.isEmpty())
         {
-            history.push(previousState);
+            return;
         }
+        List<Map<String, String>> afterRows = new ArrayList<>();
+        for (Map<String, String> before : beforeRows)
+        {
+            Map<String, String> after = new LinkedHashMap<>();
+            after.put("contact_id", before.get("contact_id"));
+            after.putAll(changes);
+            afterRows.add(after);
+        }
+        record(new UndoEntry(userId, UndoEntry.EntityType.CONTACT, UndoEntry.Operation.BULK_UPDATE, beforeRows, afterRows));
     }
 
-    /**
-     * Undo the last operation by returning the previous state
-     * @return the last saved state, or null if none exists
-     */
-    public Object undoLastOperation()
+    public void recordContactsBulkDeleted(List<Map<String, String>> deletedRows)
     {
-        if (!history.isEmpty())
+        if (!deletedRows.isEmpty())
         {
-            return history.pop();
+            record(new UndoEntry(userId, UndoEntry.EntityType.CONTACT, UndoEntry.Operation.BULK_DELETE, deletedRows, null));
         }
-        else
+    }
+
+    public void recordUserAdded(User user)
+    {
+        record(new UndoEntry(userId, UndoEntry.EntityType.USER, UndoEntry.Operation.ADD,
+                user.getUserId(), UserField.snapshot(user)));
+    }
+
+    public void recordUserUpdated(Map<String, String> before, User after)
+    {
+        recordUpdate(UndoEntry.EntityType.USER, after.getUserId(), before, UserField.snapshot(after));
+    }
+
+    public void recordUserDeleted(User user)
+    {
+        record(new UndoEntry(userId, UndoEntry.EntityType.USER, UndoEntry.Operation.DELETE,
+                user.getUserId(), UserField.snapshot(user)));
+    }
+
+    /**
+     * Undoes the most recent operation that has not been undone yet.
+     *
+     * @return the entry that was undone, or null if there is nothing to undo
+     * @throws DatabaseException if the inverse operation fails (nothing is changed then)
+     */
+    public UndoEntry undo() throws DatabaseException
+    {
+        UndoEntry entry = buffer.latestActive();
+        if (entry == null)
         {
-            System.out.println("Nothing to undo.");
-            return null;
+            entry = fromJournal(journal.findLatestActive(userId));
+            if (entry == null)
+            {
+                return null;
+            }
         }
+        requireUnsharded(entry);
+        journal.apply(entry, true);
+        MutationRecorder.applied(entry, true);
+        afterApply(entry);
+        return entry;
     }
 
     /**
-     * Check if undo is possible
-     * @return true if history is not empty
+     * Re-applies the most recently undone operation.
+     *
+     * @return the entry that was redone, or null if there is nothing to redo
+     * @throws DatabaseException if the operation fails (nothing is changed then)
      */
-    public boolean canUndo()
+    public UndoEntry redo() throws DatabaseException
+    {
+        UndoEntry entry = buffer.oldestUndone();
+        if (entry == null)
+        {
+            entry = fromJournal(journal.findOldestUndone(userId));
+            if (entry == null)
+            {
+                return null;
+            }
+        }
+        requireUnsharded(entry);
+        journal.apply(entry, false);
+        MutationRecorder.applied(entry, false);
+        afterApply(entry);
+        return entry;
+    }
+
+    // The journal applies contact rows to the primary database, which a sharded setup never reads
+    private static void requireUnsharded(UndoEntry entry) throws DatabaseException
+    {
+        if (entry.getEntityType() == UndoEntry.EntityType.CONTACT && ShardedContactDao.isEnabled())
+        {
+            throw new DatabaseException("Undo and redo of contact changes are not available while contacts are "
+                    + "sharded (db.shards); " + entry.describe() + " was left as it is");
+        }
+    }
+
+    private void recordUpdate(UndoEntry.EntityType type, int entityId, Map<String, String> before, Map<String, String> after)
+    {
+        FieldDelta delta = FieldDelta.between(type, before, after);
+        if (!delta.isEmpty())
+        {
+            record(new UndoEntry(userId, type, entityId, delta));
+        }
+    }
+
+    private void record(UndoEntry entry)
+    {
+        if (!entry.getOperation().isBulk() && entry.getEntityId() <= 0)
+        {
+            return; // the change was not persisted, so there is nothing to undo
+        }
+        try
+        {
+            int retain = retain();
+            journal.record(entry, retain);
+            buffer.push(entry);
+            // The journal just dropped everything older than its newest "retain" entries
+            buffer.trimTo(retain);
+        }
+        catch (DatabaseException e)
+        {
+            // The change itself succeeded; only its history is missing
+            System.out.println("Warning: " + e.getMessage() + " (" + entry.describe() + ")");
+        }
+    }
+
+    // Entries older than the buffer come from the database; the buffer no longer
+    // mirrors the journal's newest slice once one of them is applied, so drop it
+    private UndoEntry fromJournal(UndoEntry entry)
+    {
+        if (entry != null)
+        {
+            buffer.clear();
+        }
+        return entry;
+    }
+
+    // The journal writes rows directly, so derived in-memory state must be refreshed
+    private void afterApply(UndoEntry entry) throws DatabaseException
     {
-        return !history.isEmpty();
+        if (entry.getEntityType() != UndoEntry.EntityType.CONTACT)
+        {
+            return;
+        }
+        if (entry.getOperation().isBulk())
+        {
+            contactService.resetBirthdayIndex();
+        }
+        else
+        {
+            contactService.reindexContact(entry.getEntityId());
+        }
     }
 }
@@ -0,0 +1,131 @@
+package services;
+
+import db.DatabaseConnection;
+import exceptions.DatabaseException;
+import exceptions.DuplicateValueException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+/**
+ * Runs several DAO calls as one database transaction.
+ * <p>
+ * The unit of work borrows one pooled connection, binds it to the current thread
+ * and turns off autocommit, so every DAO call made by the work reuses that
+ * connection. The transaction commits when the work returns and rolls back when it
+ * throws. A unit of work started while another one is running on the same thread
+ * joins the outer transaction.
+ * <p>
+ * DAO methods that manage their own transaction (the undo journal, the chunked
+ * scanner) must not be called from inside a unit of work.
+ */
+public class UnitOfWork
+{
+    /**
+     * Steps to run inside the transaction.
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    public interface Work<T>
+    {
+        T run() throws Exception;
+    }
+
+    private UnitOfWork()
+    {
+
+    }
+
+    /**
+     * Runs the work at {@link Connection#TRANSACTION_REPEATABLE_READ}, which lets
+     * locking reads also lock the gaps where a conflicting row would be inserted.
+     */
+    public static <T> T execute(Work<T> work) throws DatabaseException
+    {
+        return execute(Connection.TRANSACTION_REPEATABLE_READ, work);
+    }
+
+    /**
+     * Runs the work in one transaction with the given isolation level.
+     *
+     * @param isolation one of the {@code Connection.TRANSACTION_*} constants
+     * @param work      the steps to run
+     * @return the result of the work
+     * @throws DatabaseException the exception thrown by the work (wrapped unless it already is one);
+     *                           the transaction is rolled back in that case
+     */
+    public static <T> T execute(int isolation, Work<T> work) throws DatabaseException
+    {
+        if (DatabaseConnection.isBound())
+        {
+            return runJoined(work);
+        }
+
+        DatabaseConnection db = new DatabaseConnection();
+        Connection conn = db.getConnection();
+        if (conn == null)
+        {
+            throw new DatabaseException("No database connection available");
+        }
+        try
+        {
+            conn.setTransactionIsolation(isolation);
+            conn.setAutoCommit(false);
+            DatabaseConnection.bind(conn);
+            T result = work.run();
+            conn.commit();
+            return result;
+        }
+        catch (Exception e)
+        {
+            rollback(conn);
+            throw translate(e);
+        }
+        finally
+        {
+            DatabaseConnection.unbind();
+            // The pool resets autocommit and isolation on release
+            db.close(conn);
+        }
+    }
+
+    private static <T> T runJoined(Work<T> work) throws DatabaseException
+    {
+        try
+        {
+            return work.run();
+        }
+        catch (Exception e)
+        {
+            throw translate(e);
+        }
+    }
+
+    private static DatabaseException translate(Exception e)
+    {
+        if (e instanceof DatabaseException databaseException)
+        {
+            return databaseException;
+        }
+        // The unique keys are the last line of defence if a duplicate slipped past the checks
+        if (e instanceof SQLIntegrityConstraintViolationException)
+        {
+            return new DuplicateValueException("Value already used by another row: " + e.getMessage(), e);
+        }
+        return new DatabaseException("Transaction failed: " + e.getMessage(), e);
+    }
+
+    private static void rollback(Connection conn)
+    {
+        try
+        {
+            conn.rollback();
+        }
+        catch (SQLException e)
+        {
+            System.out.println("Error rolling back: " + e.getMessage());
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package services;
 
 import dao.UserDao;
-import dao.UserDaoImplementation;
 import models.User;
 import exceptions.DatabaseException;
 
@@ -9,7 +8,13 @@ import java.util.List;
 
 public class UserService
 {
-    private final UserDao userDao = new UserDaoImplementation();
+    private final UserDao userDao;
+
+    // Built once by ServiceRegistry
+    public UserService(UserDao userDao)
+    {
+        this.userDao = userDao;
+    }
 
     // List all users
     public List<User> listUsers() throws DatabaseException
@@ -24,12 +29,26 @@ public class UserService
         }
     }
 
+    // One page of users in id order, starting after the given id
+    public List<User> listPage(int afterId, int limit) throws DatabaseException
+    {
+        try
+        {
+            return userDao.findUsersPage(afterId, limit);
+        }
+        catch (Exception e)
+        {
+            throw new DatabaseException("Failed to list users", e);
+        }
+    }
+
     // Update a user
     public void updateUser(User user) throws DatabaseException
     {
         try
         {
             userDao.updateUser(user);
+            MutationRecorder.userUpdated(user);
         }
         catch (Exception e)
         {
@@ -43,6 +62,7 @@ public class UserService
         try
         {
             userDao.addUser(user);
+            MutationRecorder.userAdded(user);
         }
         catch (Exception e)
         {
@@ -56,6 +76,7 @@ public class UserService
         try
         {
             userDao.deleteUser(userId);
+            MutationRecorder.userDeleted(userId);
         }
         catch (Exception e)
         {
@@ -0,0 +1,83 @@
+package statistics;
+
+/**
+ * Error bounds used by the approximate statistics mode.
+ * <p>
+ * Every sketch is sized from these values up front, so the memory used by an
+ * approximate statistics run does not grow with the number of contacts.
+ */
+public class ApproximationSettings
+{
+    private final double distinctError;
+    private final double frequencyError;
+    private final double confidence;
+    private final int topK;
+    private final double compression;
+
+    /**
+     * @param distinctError  relative standard error of distinct counts (HyperLogLog)
+     * @param frequencyError additive error of frequency counts as a fraction of all rows (Count-Min)
+     * @param confidence     probability that the frequency error bound holds
+     * @param topK           number of most frequent names/domains to report
+     * @param compression    t-digest compression for age percentiles
+     */
+    public ApproximationSettings(double distinctError, double frequencyError, double confidence,
+                                 int topK, double compression)
+    {
+        this.distinctError = distinctError;
+        this.frequencyError = frequencyError;
+        this.confidence = confidence;
+        this.topK = topK;
+        this.compression = compression;
+    }
+
+    /**
+     * @return settings with ~1% distinct-count error, 0.1% frequency error at 99% confidence,
+     *         top 10 and t-digest compression 100
+     */
+    public static ApproximationSettings defaults()
+    {
+        return new ApproximationSettings(0.01, 0.001, 0.99, 10, 100);
+    }
+
+    public double getDistinctError()
+    {
+        return distinctError;
+    }
+
+    public double getFrequencyError()
+    {
+        return frequencyError;
+    }
+
+    public double getConfidence()
+    {
+        return confidence;
+    }
+
+    public int getTopK()
+    {
+        return topK;
+    }
+
+    public double getCompression()
+    {
+        return compression;
+    }
+
+    // Factory helpers so every caller sizes the sketches the same way
+    public HyperLogLog newDistinctCounter()
+    {
+        return HyperLogLog.withRelativeError(distinctError);
+    }
+
+    public TopKTracker newTopKTracker()
+    {
+        return new TopKTracker(topK, CountMinSketch.withErrorBounds(frequencyError, confidence));
+    }
+
+    public TDigest newDigest()
+    {
+        return new TDigest(compression);
+    }
+}
@@ -0,0 +1,131 @@
+package statistics;
+
+import models.Contact;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mergeable accumulator for the exact contact statistics.
+ * <p>
+ * Each worker folds the rows of its own chunk into a private accumulator;
+ * partial results are then combined with {@link #merge(ContactStatsAccumulator)}.
+ * {@link #toStatistics()} produces the same keys as
+ * {@code StatisticalInfoService.getStatistics()}.
+ */
+public class ContactStatsAccumulator
+{
+    private final LocalDate today;
+
+    private long totalContacts;
+    private long withLinkedIn;
+    private long birthdaysThisMonth;
+    private long ageSum;
+    private long ageCount;
+    private Contact youngest;
+    private Contact oldest;
+    private final Map<String, Long> firstNameCounts = new HashMap<>();
+    private final Map<String, Long> lastNameCounts = new HashMap<>();
+    private final Map<String, Long> emailDomainCounts = new HashMap<>();
+
+    /**
+     * @param today reference date for ages and "this month"; all merged accumulators must share it
+     */
+    public ContactStatsAccumulator(LocalDate today)
+    {
+        this.today = today;
+    }
+
+    /**
+     * Folds one contact into the running totals.
+     *
+     * @param c the contact to add
+     */
+    public void accept(Contact c)
+    {
+        totalContacts++;
+        firstNameCounts.merge(c.getFirstName(), 1L, Long::sum);
+        lastNameCounts.merge(c.getLastName(), 1L, Long::sum);
+
+        if (c.getLinkedinUrl() != null && !c.getLinkedinUrl().isEmpty())
+        {
+            withLinkedIn++;
+        }
+
+        if (c.getEmail() != null && c.getEmail().contains("@"))
+        {
+            emailDomainCounts.merge(c.getEmail().substring(c.getEmail().indexOf("@") + 1), 1L, Long::sum);
+        }
+
+        LocalDate birthDate = c.getBirthDate();
+        if (birthDate != null)
+        {
+            ageSum += Period.between(birthDate, today).getYears();
+            ageCount++;
+            if (birthDate.getMonthValue() == today.getMonthValue())
+            {
+                birthdaysThisMonth++;
+            }
+            youngest = younger(youngest, c);
+            oldest = older(oldest, c);
+        }
+    }
+
+    /**
+     * Adds another partial result into this one.
+     *
+     * @param other the accumulator to merge
+     * @return this accumulator, for use as a reduction combiner
+     */
+    public ContactStatsAccumulator merge(ContactStatsAccumulator other)
+    {
+        totalContacts += other.totalContacts;
+        withLinkedIn += other.withLinkedIn;
+        birthdaysThisMonth += other.birthdaysThisMonth;
+        ageSum += other.ageSum;
+        ageCount += other.ageCount;
+        if (other.youngest != null)
+        {
+            youngest = younger(youngest, other.youngest);
+        }
+        if (other.oldest != null)
+        {
+            oldest = older(oldest, other.oldest);
+        }
+        other.firstNameCounts.forEach((k, v) -> firstNameCounts.merge(k, v, Long::sum));
+        other.lastNameCounts.forEach((k, v) -> lastNameCounts.merge(k, v, Long::sum));
+        other.emailDomainCounts.forEach((k, v) -> emailDomainCounts.merge(k, v, Long::sum));
+        return this;
+    }
+
+    /**
+     * @return the accumulated statistics keyed like {@code StatisticalInfoService.getStatistics()}
+     */
+    public Map<String, Object> toStatistics()
+    {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalContacts", (int) totalContacts);
+        stats.put("firstNameCounts", firstNameCounts);
+        stats.put("lastNameCounts", lastNameCounts);
+        stats.put("withLinkedIn", withLinkedIn);
+        stats.put("withoutLinkedIn", totalContacts - withLinkedIn);
+        stats.put("youngestContact", youngest);
+        stats.put("oldestContact", oldest);
+        stats.put("averageAge", ageCount == 0 ? 0.0 : (double) ageSum / ageCount);
+        stats.put("birthdaysThisMonth", birthdaysThisMonth);
+        stats.put("emailDomainCounts", emailDomainCounts);
+        return stats;
+    }
+
+    private static Contact younger(Contact current, Contact candidate)
+    {
+        return current == null || candidate.getBirthDate().isAfter(current.getBirthDate()) ? candidate : current;
+    }
+
+    private static Contact older(Contact current, Contact candidate)
+    {
+        return current == null || candidate.getBirthDate().isBefore(current.getBirthDate()) ? candidate : current;
+    }
+}
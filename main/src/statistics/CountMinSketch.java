@@ -0,0 +1,107 @@
+package statistics;
+
+/**
+ * Count-Min sketch for approximate frequency counts.
+ * <p>
+ * With width {@code w = ceil(e / epsilon)} and depth {@code d = ceil(ln(1 / delta))}
+ * an estimate never under-counts and over-counts by at most
+ * {@code epsilon * totalCount} with probability {@code 1 - delta}.
+ */
+public class CountMinSketch
+{
+    private final int width;
+    private final int depth;
+    private final long[][] counters;
+    private long totalCount;
+
+    /**
+     * Creates a sketch with explicit dimensions.
+     *
+     * @param width  counters per row
+     * @param depth  number of independent rows
+     */
+    public CountMinSketch(int width, int depth)
+    {
+        if (width <= 0 || depth <= 0)
+        {
+            throw new IllegalArgumentException("Count-Min dimensions must be positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[depth][width];
+    }
+
+    /**
+     * Creates a sketch sized for the requested error bounds.
+     *
+     * @param epsilon    additive error as a fraction of the total count
+     * @param confidence probability that the error bound holds, e.g. {@code 0.99}
+     * @return a new sketch
+     */
+    public static CountMinSketch withErrorBounds(double epsilon, double confidence)
+    {
+        if (epsilon <= 0 || epsilon >= 1)
+        {
+            throw new IllegalArgumentException("Epsilon must be in (0, 1): " + epsilon);
+        }
+        if (confidence <= 0 || confidence >= 1)
+        {
+            throw new IllegalArgumentException("Confidence must be in (0, 1): " + confidence);
+        }
+        int w = (int) Math.ceil(Math.E / epsilon);
+        int d = (int) Math.ceil(Math.log(1 / (1 - confidence)));
+        return new CountMinSketch(w, Math.max(1, d));
+    }
+
+    /**
+     * Increments the count of a value by one and returns its new estimate.
+     *
+     * @param value the value to count
+     * @return the estimated count after the increment
+     */
+    public long addAndEstimate(String value)
+    {
+        long hash = Hashing.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++)
+        {
+            int column = Math.floorMod(h1 + row * h2, width);
+            long updated = ++counters[row][column];
+            if (updated < min)
+            {
+                min = updated;
+            }
+        }
+        totalCount++;
+        return min;
+    }
+
+    /**
+     * Returns the estimated count of a value.
+     *
+     * @param value the value to look up
+     * @return the estimated count (never below the true count)
+     */
+    public long estimate(String value)
+    {
+        long hash = Hashing.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++)
+        {
+            min = Math.min(min, counters[row][Math.floorMod(h1 + row * h2, width)]);
+        }
+        return min;
+    }
+
+    /**
+     * @return the number of values added so far
+     */
+    public long getTotalCount()
+    {
+        return totalCount;
+    }
+}
@@ -0,0 +1,80 @@
+package statistics;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Bucket size for time-series statistics.
+ * <p>
+ * Each bucket is identified by the date it starts on: the day itself, the Monday
+ * of an ISO week, or the first day of a month.
+ */
+public enum Granularity
+{
+    DAY("DATE(%1$s)"),
+    WEEK("DATE(%1$s) - INTERVAL WEEKDAY(%1$s) DAY"),
+    MONTH("DATE(%1$s) - INTERVAL (DAYOFMONTH(%1$s) - 1) DAY");
+
+    private final String sqlTemplate;
+
+    Granularity(String sqlTemplate)
+    {
+        this.sqlTemplate = sqlTemplate;
+    }
+
+    /**
+     * @param column timestamp column to bucket
+     * @return MySQL expression returning the bucket start date of {@code column}
+     */
+    public String bucketExpression(String column)
+    {
+        return String.format(sqlTemplate, column);
+    }
+
+    /**
+     * @param date any date
+     * @return start date of the bucket containing {@code date}
+     */
+    public LocalDate bucketStart(LocalDate date)
+    {
+        return switch (this)
+        {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+
+    /**
+     * @param bucketStart start of a bucket
+     * @param count       number of buckets to move (may be negative)
+     * @return start of the bucket {@code count} steps away
+     */
+    public LocalDate plus(LocalDate bucketStart, long count)
+    {
+        return switch (this)
+        {
+            case DAY -> bucketStart.plusDays(count);
+            case WEEK -> bucketStart.plusWeeks(count);
+            case MONTH -> bucketStart.plusMonths(count);
+        };
+    }
+
+    /**
+     * @param bucketStart start of a bucket
+     * @return display label such as {@code 2025-03-14}, {@code 2025-W11} or {@code 2025-03}
+     */
+    public String label(LocalDate bucketStart)
+    {
+        return switch (this)
+        {
+            case DAY -> bucketStart.toString();
+            case WEEK -> String.format("%d-W%02d",
+                    bucketStart.get(IsoFields.WEEK_BASED_YEAR), bucketStart.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            case MONTH -> bucketStart.format(DateTimeFormatter.ofPattern("yyyy-MM"));
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package statistics;
+
+/**
+ * 64-bit string hashing shared by the probabilistic sketches.
+ * <p>
+ * {@link String#hashCode()} is only 32 bits wide and collides far too often
+ * once a sketch sees millions of distinct keys, so the sketches use FNV-1a
+ * over the UTF-16 characters followed by the MurmurHash3 finalizer.
+ */
+final class Hashing
+{
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Hashing()
+    {
+
+    }
+
+    /**
+     * Hashes a string into a well-mixed 64-bit value.
+     *
+     * @param value the string to hash (null is treated as the empty string)
+     * @return the 64-bit hash
+     */
+    static long hash64(String value)
+    {
+        long h = FNV_OFFSET;
+        if (value != null)
+        {
+            for (int i = 0; i < value.length(); i++)
+            {
+                h ^= value.charAt(i);
+                h *= FNV_PRIME;
+            }
+        }
+        // MurmurHash3 fmix64 spreads the low FNV entropy over all bits
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,139 @@
+package statistics;
+
+/**
+ * HyperLogLog cardinality estimator.
+ * <p>
+ * Counts distinct strings in a fixed number of one-byte registers. The
+ * standard error of the estimate is roughly {@code 1.04 / sqrt(m)}, where
+ * {@code m = 2^precision} is the number of registers.
+ */
+public class HyperLogLog
+{
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Creates an estimator with {@code 2^precision} registers.
+     *
+     * @param precision number of index bits, between 4 and 18
+     */
+    public HyperLogLog(int precision)
+    {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION)
+        {
+            throw new IllegalArgumentException("HyperLogLog precision must be between "
+                    + MIN_PRECISION + " and " + MAX_PRECISION + ": " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Creates an estimator sized for the requested relative standard error.
+     *
+     * @param relativeError target standard error, e.g. {@code 0.01} for 1%
+     * @return a new estimator
+     */
+    public static HyperLogLog withRelativeError(double relativeError)
+    {
+        if (relativeError <= 0 || relativeError >= 1)
+        {
+            throw new IllegalArgumentException("Relative error must be in (0, 1): " + relativeError);
+        }
+        double registersNeeded = Math.pow(1.04 / relativeError, 2);
+        int p = (int) Math.ceil(Math.log(registersNeeded) / Math.log(2));
+        return new HyperLogLog(Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, p)));
+    }
+
+    /**
+     * Records a value; null values are ignored.
+     *
+     * @param value the value to count
+     */
+    public void add(String value)
+    {
+        if (value == null)
+        {
+            return;
+        }
+        long hash = Hashing.hash64(value);
+        int index = (int) (hash >>> (64 - precision));
+        // Rank = position of the first 1-bit in the remaining bits (1-based)
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index])
+        {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Returns the estimated number of distinct values added so far.
+     *
+     * @return the cardinality estimate
+     */
+    public long estimate()
+    {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers)
+        {
+            sum += 1.0 / (1L << r);
+            if (r == 0)
+            {
+                zeros++;
+            }
+        }
+
+        double raw = alpha(m) * m * m / sum;
+        if (raw <= 2.5 * m && zeros > 0)
+        {
+            // Small-range correction: linear counting is more accurate here
+            return Math.round(m * Math.log((double) m / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    /**
+     * Folds another estimator with the same precision into this one.
+     *
+     * @param other the estimator to merge
+     */
+    public void merge(HyperLogLog other)
+    {
+        if (other.precision != precision)
+        {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches of different precision");
+        }
+        for (int i = 0; i < registers.length; i++)
+        {
+            if (other.registers[i] > registers[i])
+            {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * @return the theoretical relative standard error of this estimator
+     */
+    public double relativeError()
+    {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    private static double alpha(int m)
+    {
+        return switch (m)
+        {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+}
@@ -0,0 +1,200 @@
+package statistics;
+
+import java.util.Arrays;
+
+/**
+ * Merging t-digest for streaming quantile estimates.
+ * <p>
+ * Values are buffered and periodically merged into at most roughly
+ * {@code compression} centroids. Centroids near the tails are kept small, so
+ * extreme percentiles stay accurate while memory stays fixed.
+ */
+public class TDigest
+{
+    private final double compression;
+
+    private double[] means;
+    private double[] weights;
+    private int centroidCount;
+
+    private final double[] buffer;
+    private int buffered;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param compression accuracy/size trade-off; 100 is a good default
+     */
+    public TDigest(double compression)
+    {
+        if (compression < 10)
+        {
+            throw new IllegalArgumentException("Compression must be at least 10: " + compression);
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) * 2 + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.buffer = new double[(int) Math.ceil(compression) * 5];
+    }
+
+    /**
+     * Adds one observation.
+     *
+     * @param value the observed value
+     */
+    public void add(double value)
+    {
+        if (Double.isNaN(value))
+        {
+            return;
+        }
+        if (buffered == buffer.length)
+        {
+            compress();
+        }
+        buffer[buffered++] = value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Estimates the value at the given quantile.
+     *
+     * @param q quantile between 0 and 1
+     * @return the estimated value, or {@code NaN} if the digest is empty
+     */
+    public double quantile(double q)
+    {
+        if (q < 0 || q > 1)
+        {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]: " + q);
+        }
+        compress();
+        if (centroidCount == 0)
+        {
+            return Double.NaN;
+        }
+        if (centroidCount == 1)
+        {
+            return means[0];
+        }
+
+        double index = q * totalWeight;
+        if (index < weights[0] / 2)
+        {
+            return min + (means[0] - min) * (index / (weights[0] / 2));
+        }
+
+        double cumulative = weights[0] / 2;
+        for (int i = 0; i < centroidCount - 1; i++)
+        {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (index <= cumulative + step)
+            {
+                double fraction = (index - cumulative) / step;
+                return means[i] + (means[i + 1] - means[i]) * fraction;
+            }
+            cumulative += step;
+        }
+
+        int last = centroidCount - 1;
+        double tail = weights[last] / 2;
+        double fraction = Math.min(1, (index - cumulative) / tail);
+        return means[last] + (max - means[last]) * fraction;
+    }
+
+    /**
+     * @return the number of observations added so far
+     */
+    public long size()
+    {
+        return Math.round(totalWeight) + buffered;
+    }
+
+    // Merges the buffered values into the centroid list using the k1 scale function
+    private void compress()
+    {
+        if (buffered == 0)
+        {
+            return;
+        }
+
+        int incoming = centroidCount + buffered;
+        double[] mergedMeans = new double[incoming];
+        double[] mergedWeights = new double[incoming];
+        System.arraycopy(means, 0, mergedMeans, 0, centroidCount);
+        System.arraycopy(weights, 0, mergedWeights, 0, centroidCount);
+        for (int i = 0; i < buffered; i++)
+        {
+            mergedMeans[centroidCount + i] = buffer[i];
+            mergedWeights[centroidCount + i] = 1;
+        }
+        totalWeight += buffered;
+        buffered = 0;
+
+        Integer[] order = new Integer[incoming];
+        for (int i = 0; i < incoming; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(mergedMeans[a], mergedMeans[b]));
+
+        double[] newMeans = new double[Math.max(means.length, 16)];
+        double[] newWeights = new double[newMeans.length];
+        int count = 0;
+
+        double currentMean = mergedMeans[order[0]];
+        double currentWeight = mergedWeights[order[0]];
+        double weightSoFar = 0;
+        double qLimit = qFromK(kFromQ(0) + 1);
+
+        for (int i = 1; i <= incoming; i++)
+        {
+            boolean last = i == incoming;
+            double mean = last ? 0 : mergedMeans[order[i]];
+            double weight = last ? 0 : mergedWeights[order[i]];
+            if (!last && (weightSoFar + currentWeight + weight) / totalWeight <= qLimit)
+            {
+                currentWeight += weight;
+                currentMean += (mean - currentMean) * weight / currentWeight;
+                continue;
+            }
+
+            if (count == newMeans.length)
+            {
+                newMeans = Arrays.copyOf(newMeans, count * 2);
+                newWeights = Arrays.copyOf(newWeights, count * 2);
+            }
+            newMeans[count] = currentMean;
+            newWeights[count] = currentWeight;
+            count++;
+
+            weightSoFar += currentWeight;
+            qLimit = qFromK(kFromQ(weightSoFar / totalWeight) + 1);
+            currentMean = mean;
+            currentWeight = weight;
+        }
+
+        means = newMeans;
+        weights = newWeights;
+        centroidCount = count;
+    }
+
+    private double kFromQ(double q)
+    {
+        return compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+    }
+
+    private double qFromK(double k)
+    {
+        double angle = k * 2 * Math.PI / compression;
+        if (angle >= Math.PI / 2)
+        {
+            return 1;
+        }
+        return (Math.sin(angle) + 1) / 2;
+    }
+}
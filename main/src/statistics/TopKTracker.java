@@ -0,0 +1,108 @@
+package statistics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Tracks the approximate top-K most frequent values of a stream.
+ * <p>
+ * Frequencies come from a {@link CountMinSketch}; a min-heap of at most
+ * {@code k} candidates keeps the heaviest values seen so far, so memory stays
+ * fixed no matter how many distinct values flow through.
+ */
+public class TopKTracker
+{
+    private final int k;
+    private final CountMinSketch sketch;
+    private final PriorityQueue<Candidate> heap =
+            new PriorityQueue<>(Comparator.comparingLong((Candidate c) -> c.count));
+    private final Map<String, Candidate> candidates = new HashMap<>();
+
+    /**
+     * @param k      number of heavy hitters to keep
+     * @param sketch frequency sketch backing the estimates
+     */
+    public TopKTracker(int k, CountMinSketch sketch)
+    {
+        if (k <= 0)
+        {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.k = k;
+        this.sketch = sketch;
+    }
+
+    /**
+     * Records one occurrence of a value; null values are ignored.
+     *
+     * @param value the value to count
+     */
+    public void add(String value)
+    {
+        if (value == null)
+        {
+            return;
+        }
+        long estimate = sketch.addAndEstimate(value);
+
+        Candidate existing = candidates.get(value);
+        if (existing != null)
+        {
+            // Re-heapify the candidate with its new count (heap holds at most k entries)
+            heap.remove(existing);
+            existing.count = estimate;
+            heap.add(existing);
+            return;
+        }
+
+        if (heap.size() < k)
+        {
+            Candidate candidate = new Candidate(value, estimate);
+            heap.add(candidate);
+            candidates.put(value, candidate);
+        }
+        else if (estimate > heap.peek().count)
+        {
+            Candidate evicted = heap.poll();
+            candidates.remove(evicted.value);
+            Candidate candidate = new Candidate(value, estimate);
+            heap.add(candidate);
+            candidates.put(value, candidate);
+        }
+    }
+
+    /**
+     * Returns the current heavy hitters ordered by descending estimated count.
+     *
+     * @return value to estimated count, most frequent first
+     */
+    public Map<String, Long> topK()
+    {
+        List<Candidate> sorted = new ArrayList<>(heap);
+        sorted.sort(Comparator.comparingLong((Candidate c) -> c.count).reversed());
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Candidate c : sorted)
+        {
+            result.put(c.value, c.count);
+        }
+        return result;
+    }
+
+    private static final class Candidate
+    {
+        private final String value;
+        private long count;
+
+        private Candidate(String value, long count)
+        {
+            this.value = value;
+            this.count = count;
+        }
+    }
+}
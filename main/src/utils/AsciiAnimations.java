@@ -1,5 +1,7 @@
 package utils;
 
+import java.util.function.DoubleSupplier;
+
 /**
  * Utility class responsible for colorful ASCII-art animations shown at
  * application startup and shutdown.
@@ -13,14 +15,22 @@ public class AsciiAnimations {
     {
         System.out.print("\033[H\033[2J");
         System.out.flush();
-        for (int i = 0; i < 50; i++)
-            System.out.println();
     }
 
     /**
      * Displays a multi-frame startup animation with a short loading effect.
      */
     public static void showStartup() {
+        showStartup(() -> 1.0);
+    }
+
+    /**
+     * Displays the startup animation with a loading bar that follows work running
+     * in the background; it ends once the work is done.
+     *
+     * @param progress fraction of the background work that is done, from 0 to 1
+     */
+    public static void showStartup(DoubleSupplier progress) {
         clearScreen();
         System.out.println(ConsoleColor.CYAN);
         System.out.println("  _____            _             _   ____              _             ");
@@ -31,15 +41,18 @@ public class AsciiAnimations {
         System.out.println(" \\_____\\___/|_| |_|\\__|_|  \\___/|_| |_|  \\__\\___/|____)\\__|\\___|_|   ");
         System.out.println("\n         Contact Management System Launching...\n");
 
-        // Simple loading bar animation
-        String bar = "[==========]";
-        for (int i = 1; i <= bar.length() - 2; i++) {
-            String current = "[" + "=".repeat(i) + " ".repeat((bar.length() - 2) - i) + "]";
+        // Loading bar: one cell per frame, never ahead of the real progress
+        int cells = 10;
+        int filled = 0;
+        while (filled < cells) {
+            filled = Math.min(filled + 1, (int) Math.floor(progress.getAsDouble() * cells));
+            String current = "[" + "=".repeat(filled) + " ".repeat(cells - filled) + "]";
             System.out.print(ConsoleColor.BRIGHT_CYAN + "\rLoading " + current + ConsoleColor.RESET);
             try {
-                Thread.sleep(120);
+                Thread.sleep(60);
             } catch (InterruptedException ignored) {
                 Thread.currentThread().interrupt();
+                break;
             }
         }
         System.out.println();
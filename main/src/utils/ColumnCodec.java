@@ -0,0 +1,163 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes column snapshots ({@code column -> value}) as compact text.
+ * <p>
+ * Each column is written on its own line as {@code column=value}; a line with
+ * only the column name stands for SQL {@code NULL}. Backslashes, carriage
+ * returns and line feeds inside values are escaped.
+ * <p>
+ * Several rows are encoded one after another, separated by an empty line; an
+ * encoded row never contains one because column names are never empty.
+ */
+public class ColumnCodec
+{
+    private ColumnCodec()
+    {
+
+    }
+
+    /**
+     * @param values column snapshot to encode (null values allowed)
+     * @return the encoded text, or null if {@code values} is null
+     */
+    public static String encode(Map<String, String> values)
+    {
+        if (values == null)
+        {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : values.entrySet())
+        {
+            if (sb.length() > 0)
+            {
+                sb.append('\n');
+            }
+            sb.append(entry.getKey());
+            if (entry.getValue() != null)
+            {
+                sb.append('=');
+                escape(entry.getValue(), sb);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param text text produced by {@link #encode(Map)}
+     * @return the decoded snapshot in original column order, or null if {@code text} is null
+     */
+    public static Map<String, String> decode(String text)
+    {
+        if (text == null)
+        {
+            return null;
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        if (text.isEmpty())
+        {
+            return values;
+        }
+        for (String line : text.split("\n", -1))
+        {
+            int eq = line.indexOf('=');
+            if (eq < 0)
+            {
+                values.put(line, null);
+            }
+            else
+            {
+                values.put(line.substring(0, eq), unescape(line.substring(eq + 1)));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @param rows snapshots of several rows, each non-empty
+     * @return the encoded text, or null if {@code rows} is null
+     */
+    public static String encodeRows(List<Map<String, String>> rows)
+    {
+        if (rows == null)
+        {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map<String, String> row : rows)
+        {
+            if (sb.length() > 0)
+            {
+                sb.append("\n\n");
+            }
+            sb.append(encode(row));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param text text produced by {@link #encodeRows(List)}
+     * @return the decoded rows in original order, or null if {@code text} is null
+     */
+    public static List<Map<String, String>> decodeRows(String text)
+    {
+        if (text == null)
+        {
+            return null;
+        }
+        List<Map<String, String>> rows = new ArrayList<>();
+        if (text.isEmpty())
+        {
+            return rows;
+        }
+        for (String row : text.split("\n\n", -1))
+        {
+            rows.add(decode(row));
+        }
+        return rows;
+    }
+
+    private static void escape(String value, StringBuilder sb)
+    {
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            switch (c)
+            {
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String value)
+    {
+        if (value.indexOf('\\') < 0)
+        {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length())
+            {
+                char next = value.charAt(++i);
+                sb.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            }
+            else
+            {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
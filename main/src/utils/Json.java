@@ -0,0 +1,327 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the HTTP API, without external libraries.
+ * <p>
+ * {@link #write(Object)} accepts maps (keys as strings), iterables, strings,
+ * numbers, booleans and null; anything else is written as its {@code toString()},
+ * which gives ISO text for dates. {@link #parse(String)} returns
+ * {@code LinkedHashMap}, {@code ArrayList}, {@code String}, {@code Long} or
+ * {@code Double}, {@code Boolean} and null.
+ */
+public final class Json
+{
+    private Json()
+    {
+    }
+
+    /**
+     * @return the value as JSON text
+     */
+    public static String write(Object value)
+    {
+        StringBuilder out = new StringBuilder();
+        write(value, out);
+        return out.toString();
+    }
+
+    /**
+     * Appends the value as JSON text.
+     */
+    public static void write(Object value, StringBuilder out)
+    {
+        if (value == null)
+        {
+            out.append("null");
+        }
+        else if (value instanceof Map<?, ?> map)
+        {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : map.entrySet())
+            {
+                if (!first)
+                {
+                    out.append(',');
+                }
+                first = false;
+                writeString(String.valueOf(entry.getKey()), out);
+                out.append(':');
+                write(entry.getValue(), out);
+            }
+            out.append('}');
+        }
+        else if (value instanceof Iterable<?> items)
+        {
+            out.append('[');
+            boolean first = true;
+            for (Object item : items)
+            {
+                if (!first)
+                {
+                    out.append(',');
+                }
+                first = false;
+                write(item, out);
+            }
+            out.append(']');
+        }
+        else if (value instanceof Number || value instanceof Boolean)
+        {
+            out.append(value);
+        }
+        else
+        {
+            writeString(value.toString(), out);
+        }
+    }
+
+    private static void writeString(String s, StringBuilder out)
+    {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++)
+        {
+            char c = s.charAt(i);
+            switch (c)
+            {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default ->
+                {
+                    if (c < 0x20)
+                    {
+                        out.append(String.format("\\u%04x", (int) c));
+                    }
+                    else
+                    {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * @param text JSON text
+     * @return the parsed value
+     * @throws IllegalArgumentException if the text is not valid JSON
+     */
+    public static Object parse(String text)
+    {
+        Parser parser = new Parser(text);
+        Object value = parser.value();
+        parser.skipWhitespace();
+        if (parser.pos != text.length())
+        {
+            throw parser.error("Unexpected trailing characters");
+        }
+        return value;
+    }
+
+    private static final class Parser
+    {
+        private final String text;
+        private int pos;
+
+        private Parser(String text)
+        {
+            this.text = text;
+        }
+
+        private Object value()
+        {
+            skipWhitespace();
+            if (pos >= text.length())
+            {
+                throw error("Unexpected end of input");
+            }
+            char c = text.charAt(pos);
+            return switch (c)
+            {
+                case '{' -> object();
+                case '[' -> array();
+                case '"' -> string();
+                case 't' -> literal("true", Boolean.TRUE);
+                case 'f' -> literal("false", Boolean.FALSE);
+                case 'n' -> literal("null", null);
+                default -> number();
+            };
+        }
+
+        private Map<String, Object> object()
+        {
+            Map<String, Object> map = new LinkedHashMap<>();
+            pos++;
+            skipWhitespace();
+            if (peek('}'))
+            {
+                pos++;
+                return map;
+            }
+            while (true)
+            {
+                skipWhitespace();
+                if (!peek('"'))
+                {
+                    throw error("Expected a property name");
+                }
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                map.put(key, value());
+                skipWhitespace();
+                if (peek(','))
+                {
+                    pos++;
+                    continue;
+                }
+                expect('}');
+                return map;
+            }
+        }
+
+        private List<Object> array()
+        {
+            List<Object> list = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek(']'))
+            {
+                pos++;
+                return list;
+            }
+            while (true)
+            {
+                list.add(value());
+                skipWhitespace();
+                if (peek(','))
+                {
+                    pos++;
+                    continue;
+                }
+                expect(']');
+                return list;
+            }
+        }
+
+        private String string()
+        {
+            StringBuilder out = new StringBuilder();
+            pos++;
+            while (pos < text.length())
+            {
+                char c = text.charAt(pos++);
+                if (c == '"')
+                {
+                    return out.toString();
+                }
+                if (c != '\\')
+                {
+                    out.append(c);
+                    continue;
+                }
+                if (pos >= text.length())
+                {
+                    break;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped)
+                {
+                    case '"', '\\', '/' -> out.append(escaped);
+                    case 'b' -> out.append('\b');
+                    case 'f' -> out.append('\f');
+                    case 'n' -> out.append('\n');
+                    case 'r' -> out.append('\r');
+                    case 't' -> out.append('\t');
+                    case 'u' ->
+                    {
+                        if (pos + 4 > text.length())
+                        {
+                            throw error("Incomplete unicode escape");
+                        }
+                        try
+                        {
+                            out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        }
+                        catch (NumberFormatException e)
+                        {
+                            throw error("Invalid unicode escape");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw error("Invalid escape");
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private Object number()
+        {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0)
+            {
+                pos++;
+            }
+            String number = text.substring(start, pos);
+            try
+            {
+                if (number.contains(".") || number.contains("e") || number.contains("E"))
+                {
+                    return Double.parseDouble(number);
+                }
+                return Long.parseLong(number);
+            }
+            catch (NumberFormatException e)
+            {
+                pos = start;
+                throw error("Unexpected character");
+            }
+        }
+
+        private Object literal(String word, Object value)
+        {
+            if (!text.startsWith(word, pos))
+            {
+                throw error("Unexpected character");
+            }
+            pos += word.length();
+            return value;
+        }
+
+        private boolean peek(char c)
+        {
+            return pos < text.length() && text.charAt(pos) == c;
+        }
+
+        private void expect(char c)
+        {
+            if (!peek(c))
+            {
+                throw error("Expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private void skipWhitespace()
+        {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+            {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message)
+        {
+            return new IllegalArgumentException("Malformed JSON: " + message + " at position " + pos);
+        }
+    }
+}
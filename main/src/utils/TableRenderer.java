@@ -0,0 +1,161 @@
+package utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Renders rows as a fixed-width text table.
+ * <p>
+ * Column widths are computed once per table from the header and the longest
+ * value, capped at each column's maximum; longer values are cut with
+ * {@code ...}. Rows are built in one reused {@link StringBuilder} and written
+ * through a large {@link BufferedWriter}, so the console stream is locked
+ * once per buffer instead of once per row and no format string is parsed.
+ *
+ * @param <T> row type
+ */
+public class TableRenderer<T>
+{
+    private static final int BUFFER_CHARS = 64 * 1024;
+    private static final String ELLIPSIS = "...";
+
+    private record Column<T>(String header, int maxWidth, Function<T, String> value)
+    {
+    }
+
+    private final List<Column<T>> columns = new ArrayList<>();
+
+    /**
+     * Adds a column; null values are shown empty.
+     *
+     * @param header   column title
+     * @param maxWidth widest the column may grow; never narrower than the header
+     * @param value    extracts the cell text from a row
+     * @return this renderer
+     */
+    public TableRenderer<T> column(String header, int maxWidth, Function<T, String> value)
+    {
+        columns.add(new Column<>(header, Math.max(maxWidth, Math.max(header.length(), ELLIPSIS.length())), value));
+        return this;
+    }
+
+    /**
+     * Writes the header, a separator line and every row to {@code System.out}.
+     *
+     * @param rows rows to render
+     * @return time spent rendering
+     */
+    public Duration render(List<T> rows)
+    {
+        return render(rows, System.out);
+    }
+
+    /**
+     * Writes the header, a separator line and every row to the stream, which stays open.
+     *
+     * @param rows rows to render
+     * @param out  target stream
+     * @return time spent rendering
+     */
+    public Duration render(List<T> rows, PrintStream out)
+    {
+        long start = System.nanoTime();
+        int[] widths = widths(rows);
+        int lineWidth = widths.length - 1;
+        for (int width : widths)
+        {
+            lineWidth += width;
+        }
+        char[] padding = new char[Arrays.stream(widths).max().orElse(0)];
+        Arrays.fill(padding, ' ');
+
+        StringBuilder line = new StringBuilder(lineWidth + 1);
+        try
+        {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, out.charset()), BUFFER_CHARS);
+            for (int i = 0; i < columns.size(); i++)
+            {
+                appendCell(line, columns.get(i).header(), widths[i], i == columns.size() - 1, padding);
+            }
+            line.append(System.lineSeparator()).append("-".repeat(lineWidth)).append(System.lineSeparator());
+            writer.append(line);
+
+            for (T row : rows)
+            {
+                line.setLength(0);
+                for (int i = 0; i < columns.size(); i++)
+                {
+                    appendCell(line, columns.get(i).value().apply(row), widths[i], i == columns.size() - 1, padding);
+                }
+                line.append(System.lineSeparator());
+                writer.append(line);
+            }
+            // Flush only: closing would close the console stream
+            writer.flush();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    private int[] widths(List<T> rows)
+    {
+        int[] widths = new int[columns.size()];
+        for (int i = 0; i < widths.length; i++)
+        {
+            widths[i] = columns.get(i).header().length();
+        }
+        for (T row : rows)
+        {
+            for (int i = 0; i < widths.length; i++)
+            {
+                Column<T> column = columns.get(i);
+                if (widths[i] < column.maxWidth())
+                {
+                    String value = column.value().apply(row);
+                    if (value != null)
+                    {
+                        widths[i] = Math.min(column.maxWidth(), Math.max(widths[i], value.length()));
+                    }
+                }
+            }
+        }
+        return widths;
+    }
+
+    private static void appendCell(StringBuilder line, String value, int width, boolean last, char[] padding)
+    {
+        if (line.length() > 0)
+        {
+            line.append(' ');
+        }
+        if (value == null)
+        {
+            value = "";
+        }
+        if (value.length() > width)
+        {
+            line.append(value, 0, width - ELLIPSIS.length()).append(ELLIPSIS);
+        }
+        else
+        {
+            line.append(value);
+            // The last column is not padded, which would only add trailing blanks
+            if (!last)
+            {
+                line.append(padding, 0, width - value.length());
+            }
+        }
+    }
+}